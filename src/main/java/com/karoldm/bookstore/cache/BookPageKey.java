@@ -0,0 +1,9 @@
+package com.karoldm.bookstore.cache;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+
+/**
+ * Identifies one page of the book listing within a store.
+ */
+public record BookPageKey(BooksFilterDTO filter, int page, int size) {
+}
@@ -0,0 +1,37 @@
+package com.karoldm.bookstore.cache;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookFacetsDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public StoreScopedCache<BookPageKey, Set<ResponseBookDTO>> bookPageCache(
+            StoreCatalogVersions versions,
+            MeterRegistry meterRegistry,
+            @Value("${api.cache.book-pages.maximum-size:10000}") long maximumSize,
+            @Value("${api.cache.book-pages.expire-after-write:5m}") Duration expireAfterWrite
+    ) {
+        return new StoreScopedCache<>("book-pages", versions, maximumSize, expireAfterWrite, meterRegistry);
+    }
+
+    // a maximum size of 0 turns facet caching off
+    @Bean
+    public StoreScopedCache<BooksFilterDTO, ResponseBookFacetsDTO> bookFacetCache(
+            StoreCatalogVersions versions,
+            MeterRegistry meterRegistry,
+            @Value("${api.cache.book-facets.maximum-size:1000}") long maximumSize,
+            @Value("${api.cache.book-facets.expire-after-write:5m}") Duration expireAfterWrite
+    ) {
+        return new StoreScopedCache<>("book-facets", versions, maximumSize, expireAfterWrite, meterRegistry);
+    }
+}
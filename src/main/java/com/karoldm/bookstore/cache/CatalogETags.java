@@ -0,0 +1,51 @@
+package com.karoldm.bookstore.cache;
+
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong ETags for store reads, derived from the store's
+ * {@link StoreCatalogVersions current version} and a digest of the query
+ * parameters, so a conditional GET is answered without loading anything. The
+ * version is shared through the database, so every instance in sync issues
+ * the same tag, and one that has not seen a change made elsewhere yet catches
+ * up on its next catalog resync.
+ */
+@Component
+public class CatalogETags {
+    /**
+     * Lets clients keep the response but makes them revalidate it on every
+     * use, instead of the no-store Spring Security sends by default.
+     */
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final StoreCatalogVersions versions;
+
+    public CatalogETags(StoreCatalogVersions versions) {
+        this.versions = versions;
+    }
+
+    public String of(Long storeId, Object... query) {
+        return "\"" + storeId
+                + "-" + versions.current(storeId)
+                + "-" + digest(query)
+                + "\"";
+    }
+
+    // digests the parameters themselves, since two queries sharing a 32-bit hash would share a tag
+    private static String digest(Object[] query) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(Arrays.deepToString(query).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
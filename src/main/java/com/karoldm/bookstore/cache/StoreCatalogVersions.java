@@ -0,0 +1,41 @@
+package com.karoldm.bookstore.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What this instance has applied of each store's catalog, as reported by
+ * {@link com.karoldm.bookstore.catalog.CatalogIndexer}. The version is the
+ * shared store.catalog_version, the same on every instance in sync, so it can
+ * go into ETags. The generation is local and moves on every change applied
+ * here, including rebuilds; anything derived from the catalog can be keyed by
+ * it, so a change makes all earlier entries unreachable at once.
+ */
+@Component
+public class StoreCatalogVersions {
+    private record Applied(long version, long generation) {
+    }
+
+    private final Map<Long, Applied> applied = new ConcurrentHashMap<>();
+
+    public long current(Long storeId) {
+        Applied state = applied.get(storeId);
+        return state == null ? 0 : state.version();
+    }
+
+    public long generation(Long storeId) {
+        Applied state = applied.get(storeId);
+        return state == null ? 0 : state.generation();
+    }
+
+    /**
+     * Records a change to the store's catalog, which never moves its version
+     * back: a rebuild may finish after a newer change was applied.
+     */
+    public void advance(Long storeId, long version) {
+        applied.merge(storeId, new Applied(version, 1), (state, ignored) ->
+                new Applied(Math.max(state.version(), version), state.generation() + 1));
+    }
+}
@@ -0,0 +1,47 @@
+package com.karoldm.bookstore.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of values computed from one store's catalog. Entries are keyed
+ * by the store's {@link StoreCatalogVersions#generation generation}, so they
+ * are never served after a change to that store is applied and simply age
+ * out; other stores are unaffected.
+ */
+public class StoreScopedCache<K, V> {
+    private record Key(Long storeId, long generation, Object key) {
+    }
+
+    private final StoreCatalogVersions versions;
+    private final Cache<Key, V> cache;
+
+    public StoreScopedCache(
+            String name,
+            StoreCatalogVersions versions,
+            long maximumSize,
+            Duration expireAfterWrite,
+            MeterRegistry meterRegistry
+    ) {
+        this.versions = versions;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    /**
+     * Returns the cached value or computes it; concurrent misses on the same
+     * key wait for a single load instead of each hitting the database.
+     */
+    public V get(Long storeId, K key, Supplier<V> loader) {
+        return cache.get(new Key(storeId, versions.generation(storeId), key), ignored -> loader.get());
+    }
+}
@@ -0,0 +1,53 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import com.karoldm.bookstore.filters.BooksFilters;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-store columnar snapshot answering the availability, rating and release
+ * date filters of the book listing as bitmap intersections.
+ */
+@Component
+public class AttributeIndex extends PerStoreIndex<StoreAttributeSnapshot> {
+
+    public AttributeIndex(MeterRegistry meterRegistry) {
+        super("attributes", meterRegistry);
+    }
+
+    @Override
+    StoreAttributeSnapshot newSegment(boolean ready) {
+        return new StoreAttributeSnapshot(ready);
+    }
+
+    @Override
+    public void setAvailable(Long storeId, Collection<Long> bookIds, boolean available) {
+        StoreAttributeSnapshot snapshot = segment(storeId);
+        if (snapshot != null) {
+            snapshot.setAvailable(bookIds, available);
+        }
+    }
+
+    /**
+     * Ids of the store's books matching the attribute filters, ordered by
+     * (createdAt, id); empty when the filter has no attribute criteria or the
+     * store is not indexed.
+     */
+    public Optional<List<Long>> findMatchingIds(Long storeId, BooksFilterDTO filter) {
+        StoreAttributeSnapshot snapshot = readySegment(storeId);
+        if (!BooksFilters.hasAttributeFilters(filter) || snapshot == null) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot.search(
+                filter.getAvailable(),
+                filter.getRating(),
+                filter.getStartDate(),
+                filter.getEndDate()
+        ));
+    }
+}
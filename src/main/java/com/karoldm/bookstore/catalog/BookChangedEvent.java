@@ -0,0 +1,25 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link com.karoldm.bookstore.services.BookService} on every book
+ * write; in-memory catalog structures apply it once the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class BookChangedEvent implements StoreCatalogEvent {
+    private Long storeId;
+    private Book book;
+    private boolean deleted;
+
+    public static BookChangedEvent saved(Long storeId, Book book) {
+        return new BookChangedEvent(storeId, book, false);
+    }
+
+    public static BookChangedEvent deleted(Long storeId, Book book) {
+        return new BookChangedEvent(storeId, book, true);
+    }
+}
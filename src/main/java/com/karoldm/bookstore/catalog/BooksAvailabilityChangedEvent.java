@@ -0,0 +1,19 @@
+package com.karoldm.bookstore.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link com.karoldm.bookstore.services.BookService} after a
+ * set-based availability update, which changes the rows without loading
+ * them; in-memory catalog structures apply it once the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class BooksAvailabilityChangedEvent implements StoreCatalogEvent {
+    private Long storeId;
+    private Collection<Long> bookIds;
+    private boolean available;
+}
@@ -0,0 +1,19 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link com.karoldm.bookstore.services.BookImportService} once
+ * per chunk of inserted books; in-memory catalog structures apply it once the
+ * chunk's transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class BooksImportedEvent implements StoreCatalogEvent {
+    private Long storeId;
+    private Collection<Book> books;
+}
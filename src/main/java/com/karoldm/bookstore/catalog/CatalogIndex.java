@@ -0,0 +1,41 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An in-memory, per-store view of the catalog. Implementations are rebuilt
+ * from the database at startup by {@link CatalogIndexer} and then kept up to
+ * date incrementally from committed {@link BookChangedEvent}s, and rebuilt
+ * again whenever the store's catalog version shows a change they missed.
+ */
+public interface CatalogIndex {
+    /**
+     * Replaces everything known about the store with the given books, which
+     * come ordered by (createdAt, id).
+     */
+    void rebuild(Long storeId, List<Book> books);
+
+    /**
+     * Marks the store as unusable after its rebuild failed, so reads fall
+     * back to the database.
+     */
+    void invalidate(Long storeId);
+
+    /**
+     * Inserts or replaces a single book. A store that was never rebuilt is
+     * left unready, since the book alone is not its catalog.
+     */
+    void index(Long storeId, Book book);
+
+    void remove(Long storeId, Long bookId);
+
+    /**
+     * Applies a bulk availability change; indexes that do not hold
+     * availability ignore it.
+     */
+    default void setAvailable(Long storeId, Collection<Long> bookIds, boolean available) {
+    }
+}
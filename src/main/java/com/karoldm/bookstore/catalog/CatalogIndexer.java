@@ -0,0 +1,237 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.cache.StoreCatalogVersions;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.repositories.BookRepository;
+import com.karoldm.bookstore.repositories.StoreCatalogVersionRow;
+import com.karoldm.bookstore.repositories.StoreRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads every {@link CatalogIndex} from the database at startup, one store
+ * per task on a small pool, and afterwards applies committed book changes.
+ * <p>
+ * Every {@link StoreCatalogEvent} bumps the store's catalog version before
+ * its transaction commits, and the indexer remembers which version each
+ * store's indexes reflect. A change arriving here one version ahead is just
+ * applied; anything else means the store was changed by another instance, or
+ * never loaded here, and it is served from the database while it is rebuilt
+ * in the background. {@link #resync()} compares all versions periodically to
+ * catch stores with no local writes. Either way the version is handed to
+ * {@link StoreCatalogVersions} once reads reflect it.
+ */
+@Slf4j
+@Component
+public class CatalogIndexer implements SmartInitializingSingleton {
+    // a rebuild racing a steady stream of writes gives up and waits for the next resync
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    private final List<CatalogIndex> indexes;
+    private final StoreRepository storeRepository;
+    private final BookRepository bookRepository;
+    private final StoreCatalogVersions versions;
+    private final int rebuildThreads;
+    private final ExecutorService resyncExecutor;
+    // catalog version each store's indexes reflect, missing until the store is loaded
+    private final Map<Long, Long> synced = new ConcurrentHashMap<>();
+    // counts the changes applied to each store, so a rebuild can tell one raced it
+    private final Map<Long, AtomicLong> applied = new ConcurrentHashMap<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public CatalogIndexer(
+            List<CatalogIndex> indexes,
+            StoreRepository storeRepository,
+            BookRepository bookRepository,
+            StoreCatalogVersions versions,
+            @Value("${api.catalog.index.rebuild-threads:4}") int rebuildThreads
+    ) {
+        this.indexes = indexes;
+        this.storeRepository = storeRepository;
+        this.bookRepository = bookRepository;
+        this.versions = versions;
+        this.rebuildThreads = rebuildThreads;
+        this.resyncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-resync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuildAll();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resyncExecutor.shutdown();
+    }
+
+    public void rebuildAll() {
+        List<Long> storeIds = storeRepository.findAllIds();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, rebuildThreads));
+        try {
+            CompletableFuture.allOf(storeIds.stream()
+                    .map(storeId -> CompletableFuture.runAsync(() -> rebuildStore(storeId), executor))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("Catalog indexes rebuilt for {} stores in {} ms",
+                storeIds.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void rebuildStore(Long storeId) {
+        try {
+            for (int attempt = 0; attempt < REBUILD_ATTEMPTS; attempt++) {
+                long seen = changesOf(storeId).get();
+                // read before the books, so at worst a change is loaded twice
+                long version = storeRepository.findCatalogVersionById(storeId).orElse(0L);
+                List<Book> books = bookRepository.findByStoreIdOrderByCreatedAtAscIdAsc(storeId);
+                indexes.forEach(index -> index.rebuild(storeId, books));
+
+                if (changesOf(storeId).get() == seen) {
+                    synced.put(storeId, version);
+                    versions.advance(storeId, version);
+                    return;
+                }
+                // a change went to the segments just replaced, so these, and
+                // anything read from them meanwhile, may lack it
+                indexes.forEach(index -> index.invalidate(storeId));
+                versions.advance(storeId, versions.current(storeId));
+            }
+            log.info("Catalog of store {} kept changing while rebuilding it, retrying on the next resync", storeId);
+        } catch (RuntimeException ex) {
+            log.warn("Could not index catalog of store {}, falling back to the database", storeId, ex);
+            indexes.forEach(index -> index.invalidate(storeId));
+        }
+        synced.remove(storeId);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${api.catalog.index.resync-interval:10s}",
+            initialDelayString = "${api.catalog.index.resync-interval:10s}"
+    )
+    public void resync() {
+        for (StoreCatalogVersionRow row : storeRepository.findCatalogVersions()) {
+            Long known = synced.get(row.storeId());
+            if (known == null || known < row.catalogVersion()) {
+                markStale(row.storeId(), row.catalogVersion());
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCatalogChanging(StoreCatalogEvent event) {
+        Long storeId = event.getStoreId();
+        storeRepository.bumpCatalogVersion(storeId);
+        // empty once the store is deleted
+        Optional<Long> version = storeRepository.findCatalogVersionById(storeId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                // after the listeners below applied the change
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                if (version.isPresent()) {
+                    advance(storeId, version.get());
+                } else {
+                    forget(storeId);
+                }
+            }
+        });
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        for (CatalogIndex index : indexes) {
+            if (event.isDeleted()) {
+                index.remove(event.getStoreId(), event.getBook().getId());
+            } else {
+                index.index(event.getStoreId(), event.getBook());
+            }
+        }
+        changesOf(event.getStoreId()).incrementAndGet();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        for (CatalogIndex index : indexes) {
+            event.getBooks().forEach(book -> index.index(event.getStoreId(), book));
+        }
+        changesOf(event.getStoreId()).incrementAndGet();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(BooksAvailabilityChangedEvent event) {
+        indexes.forEach(index ->
+                index.setAvailable(event.getStoreId(), event.getBookIds(), event.isAvailable()));
+        changesOf(event.getStoreId()).incrementAndGet();
+    }
+
+    private void advance(Long storeId, long version) {
+        Long known = synced.computeIfPresent(storeId, (id, current) -> current == version - 1 ? version : current);
+        if (known != null && known == version) {
+            versions.advance(storeId, version);
+        } else if (known == null || known < version) {
+            // skipped a version committed elsewhere, or the store was never loaded here
+            markStale(storeId, version);
+        }
+    }
+
+    // until the rebuild lands the store is read from the database, which is
+    // already at the version, so nothing cached under it is stale
+    private void markStale(Long storeId, long version) {
+        indexes.forEach(index -> index.invalidate(storeId));
+        // a rebuild already running may have loaded the books before the change
+        changesOf(storeId).incrementAndGet();
+        versions.advance(storeId, version);
+        if (pending.add(storeId)) {
+            resyncExecutor.execute(() -> {
+                pending.remove(storeId);
+                rebuildStore(storeId);
+            });
+        }
+    }
+
+    private void forget(Long storeId) {
+        synced.remove(storeId);
+        indexes.forEach(index -> index.invalidate(storeId));
+        versions.advance(storeId, versions.current(storeId));
+    }
+
+    private AtomicLong changesOf(Long storeId) {
+        return applied.computeIfAbsent(storeId, id -> new AtomicLong());
+    }
+}
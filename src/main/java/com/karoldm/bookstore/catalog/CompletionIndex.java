@@ -0,0 +1,45 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.dto.responses.ResponseCompletionsDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-store prefix index of book titles and authors backing the search box
+ * typeahead, ranked by the best rating behind each completion.
+ */
+@Component
+public class CompletionIndex extends PerStoreIndex<StoreCompletionIndex> {
+
+    public CompletionIndex(MeterRegistry meterRegistry) {
+        super("completions", meterRegistry);
+    }
+
+    @Override
+    StoreCompletionIndex newSegment(boolean ready) {
+        return new StoreCompletionIndex(ready);
+    }
+
+    /**
+     * Up to {@code limit} titles and authors starting with the prefix; empty
+     * when the store is not indexed, meaning the caller must ask the database.
+     */
+    public Optional<ResponseCompletionsDTO> complete(Long storeId, String prefix, int limit) {
+        StoreCompletionIndex index = readySegment(storeId);
+        if (index == null) {
+            return Optional.empty();
+        }
+
+        String key = StoreCompletionIndex.key(prefix);
+        if (key.isEmpty()) {
+            return Optional.of(ResponseCompletionsDTO.builder().titles(List.of()).authors(List.of()).build());
+        }
+        return Optional.of(ResponseCompletionsDTO.builder()
+                .titles(index.completeTitle(key, limit))
+                .authors(index.completeAuthor(key, limit))
+                .build());
+    }
+}
@@ -0,0 +1,92 @@
+package com.karoldm.bookstore.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Finds the terms of a sorted dictionary within a Levenshtein distance of a
+ * query term. Terms are walked in order as if they were the paths of a trie:
+ * the edit distance rows of a shared prefix are computed once, and as soon as
+ * every cell of a row exceeds the budget no extension of that prefix can
+ * match, so the walk seeks past all of them at once. The work therefore
+ * follows the prefixes near the query instead of the dictionary size.
+ */
+final class FuzzyTermMatcher {
+
+    private FuzzyTermMatcher() {
+    }
+
+    static List<String> matches(NavigableMap<String, ?> dictionary, String term, int maxEdits) {
+        List<String> matches = new ArrayList<>();
+        if (dictionary.isEmpty()) {
+            return matches;
+        }
+
+        int width = term.length() + 1;
+        int[][] rows = new int[16][];
+        rows[0] = new int[width];
+        for (int column = 0; column < width; column++) {
+            rows[0][column] = column;
+        }
+
+        String previous = "";
+        int validDepth = 0;
+        String key = dictionary.firstKey();
+        while (key != null) {
+            int depth = Math.min(validDepth, commonPrefix(previous, key));
+            boolean pruned = false;
+            while (depth < key.length()) {
+                if (depth + 1 >= rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                rows[depth + 1] = nextRow(rows[depth], rows[depth + 1], term, key.charAt(depth));
+                depth++;
+                if (min(rows[depth]) > maxEdits) {
+                    pruned = true;
+                    break;
+                }
+            }
+            previous = key;
+            validDepth = depth;
+
+            if (pruned) {
+                key = dictionary.higherKey(key.substring(0, depth) + Character.MAX_VALUE);
+                continue;
+            }
+            if (rows[depth][width - 1] <= maxEdits) {
+                matches.add(key);
+            }
+            key = dictionary.higherKey(key);
+        }
+        return matches;
+    }
+
+    private static int[] nextRow(int[] above, int[] reuse, String term, char character) {
+        int[] row = reuse != null && reuse.length == above.length ? reuse : new int[above.length];
+        row[0] = above[0] + 1;
+        for (int column = 1; column < row.length; column++) {
+            int substitution = above[column - 1] + (term.charAt(column - 1) == character ? 0 : 1);
+            row[column] = Math.min(substitution, Math.min(above[column] + 1, row[column - 1] + 1));
+        }
+        return row;
+    }
+
+    private static int min(int[] row) {
+        int min = Integer.MAX_VALUE;
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int commonPrefix(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
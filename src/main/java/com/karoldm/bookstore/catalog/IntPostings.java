@@ -0,0 +1,53 @@
+package com.karoldm.bookstore.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted, growable list of document ordinals for one term.
+ */
+class IntPostings {
+    private int[] ordinals = new int[2];
+    private int size;
+
+    void add(int ordinal) {
+        int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (index >= 0) {
+            return;
+        }
+        int insertAt = -index - 1;
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+        }
+        System.arraycopy(ordinals, insertAt, ordinals, insertAt + 1, size - insertAt);
+        ordinals[insertAt] = ordinal;
+        size++;
+    }
+
+    void remove(int ordinal) {
+        int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+        size--;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void addTo(BitSet bitSet) {
+        for (int i = 0; i < size; i++) {
+            bitSet.set(ordinals[i]);
+        }
+    }
+
+    long estimatedBytes() {
+        return 16 + 16 + 4L * ordinals.length;
+    }
+}
@@ -0,0 +1,106 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one {@link StoreSegment} per store and registers its memory and
+ * size gauges, tagged with the index name and the store id.
+ */
+public abstract class PerStoreIndex<S extends StoreSegment> implements CatalogIndex {
+    private final Map<Long, S> stores = new ConcurrentHashMap<>();
+    private final String name;
+    private final MeterRegistry meterRegistry;
+
+    protected PerStoreIndex(String name, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    abstract S newSegment(boolean ready);
+
+    @Override
+    public void rebuild(Long storeId, List<Book> books) {
+        S segment = newSegment(false);
+        books.forEach(segment::put);
+        segment.markReady();
+        register(storeId, segment);
+    }
+
+    @Override
+    public void invalidate(Long storeId) {
+        register(storeId, newSegment(false));
+    }
+
+    @Override
+    public void index(Long storeId, Book book) {
+        S segment = stores.get(storeId);
+        if (segment == null) {
+            // this instance never loaded the store, so the segment would hold only
+            // this book; it stays unready until CatalogIndexer rebuilds the store
+            S created = newSegment(false);
+            segment = stores.putIfAbsent(storeId, created);
+            if (segment == null) {
+                segment = created;
+                registerMetrics(storeId);
+            }
+        }
+        segment.put(book);
+    }
+
+    @Override
+    public void remove(Long storeId, Long bookId) {
+        S segment = stores.get(storeId);
+        if (segment != null) {
+            segment.remove(bookId);
+        }
+    }
+
+    /**
+     * The store's segment, which may still be loading, or null.
+     */
+    S segment(Long storeId) {
+        return stores.get(storeId);
+    }
+
+    /**
+     * The store's segment, or null while it is missing or not yet loaded.
+     */
+    S readySegment(Long storeId) {
+        S segment = stores.get(storeId);
+        return segment != null && segment.isReady() ? segment : null;
+    }
+
+    private void register(Long storeId, S segment) {
+        if (stores.put(storeId, segment) == null) {
+            registerMetrics(storeId);
+        }
+    }
+
+    private void registerMetrics(Long storeId) {
+        Gauge.builder("bookstore.catalog.index.memory", stores, s -> bytesOf(s.get(storeId)))
+                .description("Estimated heap retained by the in-memory catalog index")
+                .baseUnit("bytes")
+                .tag("index", name)
+                .tag("store", String.valueOf(storeId))
+                .register(meterRegistry);
+        Gauge.builder("bookstore.catalog.index.documents", stores, s -> sizeOf(s.get(storeId)))
+                .description("Books held by the in-memory catalog index")
+                .tag("index", name)
+                .tag("store", String.valueOf(storeId))
+                .register(meterRegistry);
+    }
+
+    private static double bytesOf(StoreSegment segment) {
+        return segment == null ? 0 : segment.estimatedBytes();
+    }
+
+    private static double sizeOf(StoreSegment segment) {
+        return segment == null ? 0 : segment.size();
+    }
+}
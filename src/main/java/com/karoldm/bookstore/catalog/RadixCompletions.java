@@ -0,0 +1,291 @@
+package com.karoldm.bookstore.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Radix tree of completion keys weighted by the ratings of the books behind
+ * them. Every node also holds the best weight found in its subtree, so the
+ * top completions for a prefix come out of a best-first walk that stops after
+ * the requested number instead of visiting every key under the prefix.
+ * Not thread-safe; the owning segment guards it.
+ */
+class RadixCompletions {
+    private static final int MAX_RATING = 5;
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        private char[] label;
+        private Node[] children = NO_CHILDREN;
+        // set only on nodes where a key ends
+        private String display;
+        private int[] ratingCounts;
+        private long weight;
+        private long best;
+
+        private Node(char[] label) {
+            this.label = label;
+        }
+    }
+
+    private record Candidate(Node node, boolean terminal, long priority) {
+    }
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingLong(Candidate::priority).reversed()
+            .thenComparing(candidate -> !candidate.terminal());
+
+    private final Node root = new Node(new char[0]);
+    private int size;
+
+    /**
+     * Counts one more book under the key, showing it as {@code display}.
+     */
+    void add(String key, String display, int rating) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = childIndex(node, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i).toCharArray());
+                insertChild(node, -(index + 1), leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length) {
+                Node split = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                split.children = new Node[]{child};
+                split.best = child.best;
+                node.children[index] = split;
+                child = split;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        if (node.ratingCounts == null) {
+            node.ratingCounts = new int[MAX_RATING + 1];
+            size++;
+        }
+        node.ratingCounts[clamp(rating)]++;
+        node.display = display;
+        node.weight = weight(node.ratingCounts);
+        updateBest(path);
+    }
+
+    /**
+     * Forgets one book under the key; the key disappears with its last book.
+     */
+    void remove(String key, int rating) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = childIndex(node, key.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            node = node.children[index];
+            if (commonPrefix(node.label, key, i) < node.label.length) {
+                return;
+            }
+            path.add(node);
+            i += node.label.length;
+        }
+        if (node.ratingCounts == null || node.ratingCounts[clamp(rating)] == 0) {
+            return;
+        }
+
+        node.ratingCounts[clamp(rating)]--;
+        node.weight = weight(node.ratingCounts);
+        if (node.weight == 0) {
+            node.ratingCounts = null;
+            node.display = null;
+            size--;
+            prune(path);
+        }
+        updateBest(path);
+    }
+
+    /**
+     * Display texts of the best weighted keys starting with the prefix.
+     */
+    List<String> top(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = childIndex(node, prefix.charAt(i));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common < prefix.length() && common < child.label.length) {
+                return List.of();
+            }
+            node = child;
+            i += common;
+        }
+
+        List<String> completions = new ArrayList<>(limit);
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(BEST_FIRST);
+        queue.add(new Candidate(node, false, node.best));
+        while (!queue.isEmpty() && completions.size() < limit) {
+            Candidate candidate = queue.poll();
+            Node current = candidate.node();
+            if (candidate.terminal()) {
+                completions.add(current.display);
+                continue;
+            }
+            if (current.ratingCounts != null) {
+                queue.add(new Candidate(current, true, current.weight));
+            }
+            for (Node child : current.children) {
+                queue.add(new Candidate(child, false, child.best));
+            }
+        }
+        return completions;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes(root);
+    }
+
+    private static long estimatedBytes(Node node) {
+        long bytes = 48 + 16 + 2L * node.label.length + 16 + 4L * node.children.length;
+        if (node.ratingCounts != null) {
+            bytes += 16 + 4L * node.ratingCounts.length + 40 + node.display.length();
+        }
+        for (Node child : node.children) {
+            bytes += estimatedBytes(child);
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops a node left without key and children, and folds a keyless node
+     * with a single child into it, so every inner node keeps branching.
+     */
+    private void prune(List<Node> path) {
+        int depth = path.size() - 1;
+        Node node = path.get(depth);
+        if (node == root) {
+            return;
+        }
+
+        if (node.children.length == 0) {
+            Node parent = path.get(depth - 1);
+            removeChild(parent, node);
+            path.remove(depth);
+            if (parent != root && parent.ratingCounts == null && parent.children.length == 1) {
+                absorbChild(parent);
+            }
+        } else if (node.children.length == 1) {
+            absorbChild(node);
+        }
+    }
+
+    private static void absorbChild(Node node) {
+        Node child = node.children[0];
+        char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+        System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+
+        node.label = label;
+        node.children = child.children;
+        node.display = child.display;
+        node.ratingCounts = child.ratingCounts;
+        node.weight = child.weight;
+        node.best = child.best;
+    }
+
+    private static void updateBest(List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node node = path.get(depth);
+            long best = node.weight;
+            for (Node child : node.children) {
+                best = Math.max(best, child.best);
+            }
+            node.best = best;
+        }
+    }
+
+    /**
+     * Highest rating first, then how many books share the key.
+     */
+    private static long weight(int[] ratingCounts) {
+        long books = 0;
+        int highest = -1;
+        for (int rating = 0; rating < ratingCounts.length; rating++) {
+            books += ratingCounts[rating];
+            if (ratingCounts[rating] > 0) {
+                highest = rating;
+            }
+        }
+        return books == 0 ? 0 : ((long) (highest + 1) << 32) | books;
+    }
+
+    private static int clamp(int rating) {
+        return Math.max(0, Math.min(MAX_RATING, rating));
+    }
+
+    // children are kept sorted by their first character
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char current = node.children[middle].label[0];
+            if (current < first) {
+                low = middle + 1;
+            } else if (current > first) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void insertChild(Node node, int index, Node child) {
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        children[index] = child;
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        node.children = children;
+    }
+
+    private static void removeChild(Node node, Node child) {
+        int index = childIndex(node, child.label[0]);
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        node.children = children;
+    }
+
+    private static int commonPrefix(char[] label, String key, int offset) {
+        int length = Math.min(label.length, key.length() - offset);
+        int i = 0;
+        while (i < length && label[i] == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
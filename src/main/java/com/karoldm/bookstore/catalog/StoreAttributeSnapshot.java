@@ -0,0 +1,320 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar snapshot of one store's filterable attributes. Books get dense
+ * ordinals in (createdAt, id) order, so walking a result bitmap yields the
+ * listing order directly: availability and each rating are bitmaps over those
+ * ordinals, and release dates live in a sorted primitive array of
+ * (epochDay, ordinal) pairs that range filters binary-search.
+ */
+class StoreAttributeSnapshot implements StoreSegment {
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] bookIds = new long[INITIAL_CAPACITY];
+    private long[] createdDays = new long[INITIAL_CAPACITY];
+    private long[] releasedDays = new long[INITIAL_CAPACITY];
+    private int[] ratings = new int[INITIAL_CAPACITY];
+    private int length;
+
+    private BitSet live = new BitSet();
+    private BitSet available = new BitSet();
+    private Map<Integer, BitSet> byRating = new HashMap<>();
+
+    private long[] releaseKeys = new long[0];
+    private boolean releaseKeysStale;
+    private boolean compactionNeeded;
+    private volatile boolean ready;
+
+    StoreAttributeSnapshot(boolean ready) {
+        this.ready = ready;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public void put(Book book) {
+        lock.writeLock().lock();
+        try {
+            long createdDay = toDay(book.getCreatedAt());
+            Integer ordinal = ordinals.get(book.getId());
+
+            if (ordinal == null || createdDays[ordinal] != createdDay) {
+                if (ordinal != null) {
+                    removeLocked(ordinal);
+                }
+                ordinal = append(book.getId(), createdDay);
+            } else {
+                clearAttributes(ordinal);
+            }
+            setAttributes(ordinal, book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(bookId);
+            if (ordinal != null) {
+                removeLocked(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flips the availability bit of the given books in place; unknown ids
+     * are skipped.
+     */
+    void setAvailable(Collection<Long> bookIds, boolean isAvailable) {
+        lock.writeLock().lock();
+        try {
+            for (Long bookId : bookIds) {
+                Integer ordinal = ordinals.get(bookId);
+                if (ordinal != null) {
+                    available.set(ordinal, isAvailable);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the books matching all non-null criteria, ordered by
+     * (createdAt, id). Date bounds are inclusive and books without a release
+     * date never match a date range, as in SQL.
+     */
+    List<Long> search(Boolean isAvailable, Integer rating, LocalDate startDate, LocalDate endDate) {
+        lock.readLock().lock();
+        try {
+            if (compactionNeeded || releaseKeysStale) {
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    // another reader may have done it while no lock was held
+                    if (compactionNeeded || releaseKeysStale) {
+                        maintain();
+                    }
+                } finally {
+                    // downgrade even when maintain() throws, so the outer finally
+                    // releases a read lock this thread actually holds
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
+            }
+
+            BitSet result = (BitSet) live.clone();
+            if (isAvailable != null) {
+                if (isAvailable) {
+                    result.and(available);
+                } else {
+                    result.andNot(available);
+                }
+            }
+            if (rating != null) {
+                result.and(byRating.getOrDefault(rating, new BitSet()));
+            }
+            if (startDate != null || endDate != null) {
+                result.and(releasedBetween(startDate, endDate));
+            }
+
+            List<Long> ids = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+                ids.add(bookIds[ordinal]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 3 * (16 + 8L * bookIds.length) + 16 + 4L * ratings.length;
+            bytes += 16 + 8L * releaseKeys.length;
+            bytes += bitmapBytes(live) + bitmapBytes(available);
+            for (BitSet bitSet : byRating.values()) {
+                bytes += 48 + bitmapBytes(bitSet);
+            }
+            return bytes + ordinals.size() * 64L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet releasedBetween(LocalDate startDate, LocalDate endDate) {
+        long from = startDate == null ? Integer.MIN_VALUE : startDate.toEpochDay();
+        long to = endDate == null ? Integer.MAX_VALUE : endDate.toEpochDay();
+
+        BitSet bitSet = new BitSet(length);
+        if (from > to) {
+            return bitSet;
+        }
+        int i = lowerBound(from << 32);
+        int end = lowerBound((to << 32) | 0xFFFFFFFFL);
+        for (; i < end; i++) {
+            bitSet.set((int) releaseKeys[i]);
+        }
+        return bitSet;
+    }
+
+    private int lowerBound(long key) {
+        int index = Arrays.binarySearch(releaseKeys, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int append(long bookId, long createdDay) {
+        if (length > 0 && isBefore(createdDay, bookId, createdDays[length - 1], bookIds[length - 1])) {
+            // e.g. an imported book dated in the past; reorder before the next read
+            compactionNeeded = true;
+        }
+        if (length == bookIds.length) {
+            int capacity = length + (length >> 1);
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            createdDays = Arrays.copyOf(createdDays, capacity);
+            releasedDays = Arrays.copyOf(releasedDays, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+        }
+        int ordinal = length++;
+        bookIds[ordinal] = bookId;
+        createdDays[ordinal] = createdDay;
+        ordinals.put(bookId, ordinal);
+        live.set(ordinal);
+        return ordinal;
+    }
+
+    private void setAttributes(int ordinal, Book book) {
+        available.set(ordinal, book.isAvailable());
+        ratings[ordinal] = book.getRating();
+        byRating.computeIfAbsent(book.getRating(), rating -> new BitSet()).set(ordinal);
+        releasedDays[ordinal] = toDay(book.getReleasedAt());
+        releaseKeysStale = true;
+    }
+
+    private void clearAttributes(int ordinal) {
+        available.clear(ordinal);
+        BitSet rated = byRating.get(ratings[ordinal]);
+        if (rated != null) {
+            rated.clear(ordinal);
+        }
+    }
+
+    private void removeLocked(int ordinal) {
+        clearAttributes(ordinal);
+        live.clear(ordinal);
+        ordinals.remove(bookIds[ordinal]);
+        releaseKeysStale = true;
+        if (length > INITIAL_CAPACITY && ordinals.size() < length / 2) {
+            compactionNeeded = true;
+        }
+    }
+
+    private void maintain() {
+        if (compactionNeeded) {
+            compact();
+        }
+        if (releaseKeysStale) {
+            long[] keys = new long[ordinals.size()];
+            int count = 0;
+            for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+                if (releasedDays[ordinal] != NO_DATE) {
+                    keys[count++] = (releasedDays[ordinal] << 32) | ordinal;
+                }
+            }
+            keys = Arrays.copyOf(keys, count);
+            Arrays.sort(keys);
+            releaseKeys = keys;
+            releaseKeysStale = false;
+        }
+    }
+
+    /**
+     * Drops deleted ordinals and renumbers the live ones in (createdAt, id)
+     * order.
+     */
+    private void compact() {
+        Integer[] order = new Integer[ordinals.size()];
+        int count = 0;
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            order[count++] = ordinal;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(ordinal -> createdDays[ordinal])
+                .thenComparingLong(ordinal -> bookIds[ordinal]));
+
+        int capacity = Math.max(INITIAL_CAPACITY, count + (count >> 1));
+        long[] newBookIds = new long[capacity];
+        long[] newCreatedDays = new long[capacity];
+        long[] newReleasedDays = new long[capacity];
+        int[] newRatings = new int[capacity];
+        BitSet newAvailable = new BitSet(count);
+        Map<Integer, BitSet> newByRating = new HashMap<>();
+
+        for (int target = 0; target < count; target++) {
+            int source = order[target];
+            newBookIds[target] = bookIds[source];
+            newCreatedDays[target] = createdDays[source];
+            newReleasedDays[target] = releasedDays[source];
+            newRatings[target] = ratings[source];
+            newAvailable.set(target, available.get(source));
+            newByRating.computeIfAbsent(ratings[source], rating -> new BitSet()).set(target);
+            ordinals.put(bookIds[source], target);
+        }
+
+        bookIds = newBookIds;
+        createdDays = newCreatedDays;
+        releasedDays = newReleasedDays;
+        ratings = newRatings;
+        available = newAvailable;
+        byRating = newByRating;
+        live = new BitSet(count);
+        live.set(0, count);
+        length = count;
+        releaseKeysStale = true;
+        compactionNeeded = false;
+    }
+
+    private static boolean isBefore(long day, long id, long otherDay, long otherId) {
+        return day < otherDay || (day == otherDay && id < otherId);
+    }
+
+    private static long toDay(LocalDate date) {
+        return date == null ? NO_DATE : date.toEpochDay();
+    }
+
+    private static long bitmapBytes(BitSet bitSet) {
+        return 40 + bitSet.size() / 8;
+    }
+}
@@ -0,0 +1,9 @@
+package com.karoldm.bookstore.catalog;
+
+/**
+ * A committed change to a store or its catalog. Each one bumps the store's
+ * catalog version in the transaction that publishes it.
+ */
+public interface StoreCatalogEvent {
+    Long getStoreId();
+}
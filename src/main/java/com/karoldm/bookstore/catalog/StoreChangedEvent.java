@@ -0,0 +1,15 @@
+package com.karoldm.bookstore.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a store's own data (name, slogan, banner) changes or the
+ * store is deleted, so anything versioned by the store is refreshed once the
+ * transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class StoreChangedEvent implements StoreCatalogEvent {
+    private Long storeId;
+}
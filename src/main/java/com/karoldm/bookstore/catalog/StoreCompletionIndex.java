@@ -0,0 +1,122 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Title and author completions of one store. Keys are the normalized text,
+ * so "Érico Veríssimo" completes "erico v"; the display text is the one of
+ * the most recently indexed book with that key.
+ */
+class StoreCompletionIndex implements StoreSegment {
+    private record Entry(String titleKey, String authorKey, int rating) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RadixCompletions titles = new RadixCompletions();
+    private final RadixCompletions authors = new RadixCompletions();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private volatile boolean ready;
+
+    StoreCompletionIndex(boolean ready) {
+        this.ready = ready;
+    }
+
+    static String key(String text) {
+        return String.join(" ", CatalogTokenizer.tokenize(text));
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public void put(Book book) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+
+            Entry entry = new Entry(key(book.getTitle()), key(book.getAuthor()), book.getRating());
+            if (!entry.titleKey().isEmpty()) {
+                titles.add(entry.titleKey(), book.getTitle().trim(), entry.rating());
+            }
+            if (!entry.authorKey().isEmpty()) {
+                authors.add(entry.authorKey(), book.getAuthor().trim(), entry.rating());
+            }
+            entries.put(book.getId(), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<String> completeTitle(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return titles.top(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<String> completeAuthor(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return authors.top(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return titles.estimatedBytes() + authors.estimatedBytes() + entries.size() * 88L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long bookId) {
+        Entry entry = entries.remove(bookId);
+        if (entry == null) {
+            return;
+        }
+        if (!entry.titleKey().isEmpty()) {
+            titles.remove(entry.titleKey(), entry.rating());
+        }
+        if (!entry.authorKey().isEmpty()) {
+            authors.remove(entry.authorKey(), entry.rating());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+
+/**
+ * The part of a {@link PerStoreIndex} holding a single store's books.
+ * Implementations guard their own state; a segment only answers queries once
+ * it has been marked ready.
+ */
+interface StoreSegment {
+    boolean isReady();
+
+    void markReady();
+
+    void put(Book book);
+
+    void remove(Long bookId);
+
+    int size();
+
+    long estimatedBytes();
+}
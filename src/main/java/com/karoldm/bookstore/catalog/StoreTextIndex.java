@@ -0,0 +1,226 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.entities.Book;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of one store: for each field, a sorted term dictionary
+ * pointing at posting lists of document ordinals. Query terms match indexed
+ * terms by prefix, so partially typed words still find the book.
+ */
+class StoreTextIndex implements StoreSegment {
+    enum Field { TITLE, AUTHOR, SUMMARY }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private record Doc(long bookId, long createdDay, String[][] terms) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<TreeMap<String, IntPostings>> dictionaries = new ArrayList<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private volatile boolean ready;
+
+    StoreTextIndex(boolean ready) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            dictionaries.add(new TreeMap<>());
+        }
+        this.ready = ready;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void markReady() {
+        ready = true;
+    }
+
+    @Override
+    public void put(Book book) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+
+            int ordinal = freeOrdinals.isEmpty() ? docs.size() : freeOrdinals.pop();
+            String[][] terms = new String[FIELDS.length][];
+            terms[Field.TITLE.ordinal()] = addTerms(Field.TITLE, book.getTitle(), ordinal);
+            terms[Field.AUTHOR.ordinal()] = addTerms(Field.AUTHOR, book.getAuthor(), ordinal);
+            terms[Field.SUMMARY.ordinal()] = addTerms(Field.SUMMARY, book.getSummary(), ordinal);
+
+            long createdDay = book.getCreatedAt() == null ? Long.MIN_VALUE : book.getCreatedAt().toEpochDay();
+            Doc doc = new Doc(book.getId(), createdDay, terms);
+            if (ordinal == docs.size()) {
+                docs.add(doc);
+            } else {
+                docs.set(ordinal, doc);
+            }
+            ordinals.put(book.getId(), ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the books matching every criterion, ordered by (createdAt, id).
+     * Each criterion is tokenized and every token must prefix-match a term of
+     * that field or, when {@code maxEdits} is positive, be within that many
+     * edits of a title or author term.
+     */
+    List<Long> search(Map<Field, String> criteria, int maxEdits) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (Map.Entry<Field, String> criterion : criteria.entrySet()) {
+                List<String> tokens = CatalogTokenizer.tokenize(criterion.getValue());
+                if (tokens.isEmpty()) {
+                    return List.of();
+                }
+                for (String token : tokens) {
+                    BitSet tokenMatches = prefixMatches(criterion.getKey(), token);
+                    if (maxEdits > 0 && criterion.getKey() != Field.SUMMARY) {
+                        fuzzyMatches(criterion.getKey(), token, maxEdits, tokenMatches);
+                    }
+                    if (matches == null) {
+                        matches = tokenMatches;
+                    } else {
+                        matches.and(tokenMatches);
+                    }
+                    if (matches.isEmpty()) {
+                        return List.of();
+                    }
+                }
+            }
+            return matches == null ? List.of() : sortedIds(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough retained size: dictionary entries, posting arrays and per-document
+     * bookkeeping, using 64-bit compressed-oops object sizes.
+     */
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (TreeMap<String, IntPostings> dictionary : dictionaries) {
+                for (Map.Entry<String, IntPostings> entry : dictionary.entrySet()) {
+                    bytes += 40 + 24 + 16 + entry.getKey().length() + entry.getValue().estimatedBytes();
+                }
+            }
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    bytes += 32 + 16 + FIELDS.length * 16L;
+                    for (String[] fieldTerms : doc.terms()) {
+                        bytes += 4L * fieldTerms.length;
+                    }
+                }
+            }
+            return bytes + ordinals.size() * 64L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet prefixMatches(Field field, String token) {
+        BitSet bitSet = new BitSet(docs.size());
+        TreeMap<String, IntPostings> dictionary = dictionaries.get(field.ordinal());
+        for (IntPostings postings : dictionary.subMap(token, true, token + Character.MAX_VALUE, true).values()) {
+            postings.addTo(bitSet);
+        }
+        return bitSet;
+    }
+
+    /**
+     * Short tokens get fewer edits, otherwise "of" would match most of the
+     * two-letter terms of the catalog.
+     */
+    private void fuzzyMatches(Field field, String token, int maxEdits, BitSet bitSet) {
+        int edits = Math.min(maxEdits, token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2);
+        if (edits == 0) {
+            return;
+        }
+        TreeMap<String, IntPostings> dictionary = dictionaries.get(field.ordinal());
+        for (String term : FuzzyTermMatcher.matches(dictionary, token, edits)) {
+            dictionary.get(term).addTo(bitSet);
+        }
+    }
+
+    private List<Long> sortedIds(BitSet matches) {
+        List<Doc> matched = new ArrayList<>(matches.cardinality());
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+            matched.add(docs.get(ordinal));
+        }
+        matched.sort(Comparator.comparingLong(Doc::createdDay).thenComparingLong(Doc::bookId));
+
+        List<Long> ids = new ArrayList<>(matched.size());
+        for (Doc doc : matched) {
+            ids.add(doc.bookId());
+        }
+        return ids;
+    }
+
+    private String[] addTerms(Field field, String text, int ordinal) {
+        TreeMap<String, IntPostings> dictionary = dictionaries.get(field.ordinal());
+        Set<String> distinct = new LinkedHashSet<>(CatalogTokenizer.tokenize(text));
+        String[] terms = new String[distinct.size()];
+        int i = 0;
+        for (String term : distinct) {
+            dictionary.computeIfAbsent(term, key -> new IntPostings()).add(ordinal);
+            // keep the dictionary's own instance so each term is stored once
+            terms[i++] = dictionary.ceilingKey(term);
+        }
+        return terms;
+    }
+
+    private void removeLocked(Long bookId) {
+        Integer ordinal = ordinals.remove(bookId);
+        if (ordinal == null) {
+            return;
+        }
+        Doc doc = docs.get(ordinal);
+        for (Field field : FIELDS) {
+            TreeMap<String, IntPostings> dictionary = dictionaries.get(field.ordinal());
+            for (String term : doc.terms()[field.ordinal()]) {
+                IntPostings postings = dictionary.get(term);
+                if (postings != null) {
+                    postings.remove(ordinal);
+                    if (postings.isEmpty()) {
+                        dictionary.remove(term);
+                    }
+                }
+            }
+        }
+        docs.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+}
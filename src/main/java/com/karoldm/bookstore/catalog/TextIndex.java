@@ -0,0 +1,67 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-store inverted index over title, author and summary, used to answer
+ * the text filters of the book listing without touching the database.
+ */
+@Component
+public class TextIndex extends PerStoreIndex<StoreTextIndex> {
+    /**
+     * Upper bound for {@code maxEdits}; beyond two edits almost every short
+     * term matches.
+     */
+    public static final int MAX_EDITS = 2;
+
+    public TextIndex(MeterRegistry meterRegistry) {
+        super("text", meterRegistry);
+    }
+
+    @Override
+    StoreTextIndex newSegment(boolean ready) {
+        return new StoreTextIndex(ready);
+    }
+
+    /**
+     * Ids of the store's books matching the text filters, ordered by
+     * (createdAt, id); empty when the filter has no text criteria or the
+     * store is not indexed, meaning the caller must ask the database. With
+     * {@code fuzzy} set, title and author terms within {@code maxEdits} of a
+     * query term match as well.
+     */
+    public Optional<List<Long>> findMatchingIds(Long storeId, BooksFilterDTO filter) {
+        Map<StoreTextIndex.Field, String> criteria = new EnumMap<>(StoreTextIndex.Field.class);
+        if (StringUtils.hasText(filter.getTitle())) {
+            criteria.put(StoreTextIndex.Field.TITLE, filter.getTitle());
+        }
+        if (StringUtils.hasText(filter.getAuthor())) {
+            criteria.put(StoreTextIndex.Field.AUTHOR, filter.getAuthor());
+        }
+        if (StringUtils.hasText(filter.getSummary())) {
+            criteria.put(StoreTextIndex.Field.SUMMARY, filter.getSummary());
+        }
+
+        StoreTextIndex index = readySegment(storeId);
+        if (criteria.isEmpty() || index == null) {
+            return Optional.empty();
+        }
+        return Optional.of(index.search(criteria, maxEdits(filter)));
+    }
+
+    private static int maxEdits(BooksFilterDTO filter) {
+        if (!Boolean.TRUE.equals(filter.getFuzzy())) {
+            return 0;
+        }
+        int requested = filter.getMaxEdits() == null ? MAX_EDITS : filter.getMaxEdits();
+        return Math.max(0, Math.min(MAX_EDITS, requested));
+    }
+}
@@ -2,7 +2,7 @@ package com.karoldm.bookstore.controllers;
 
 import com.karoldm.bookstore.dto.requests.UpdateUserDTO;
 import com.karoldm.bookstore.dto.responses.ResponseUserDTO;
-import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.security.StoreMember;
 import com.karoldm.bookstore.services.AdminService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -37,7 +37,7 @@ public class AdminController {
             @RequestBody @Valid UpdateUserDTO updateUserDTO,
             @AuthenticationPrincipal Object principal
     ) {
-        ResponseUserDTO responseUserDTO = adminService.updateAccount((AppUser) principal, updateUserDTO);
+        ResponseUserDTO responseUserDTO = adminService.updateAccount((StoreMember) principal, updateUserDTO);
         return ResponseEntity.status(HttpStatus.OK).body(responseUserDTO);
     }
 
@@ -53,7 +53,7 @@ public class AdminController {
     ResponseEntity<Void> deleteAccount(
             @AuthenticationPrincipal Object principal
     ) {
-        adminService.deleteAccount((AppUser) principal);
+        adminService.deleteAccount((StoreMember) principal);
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
 }
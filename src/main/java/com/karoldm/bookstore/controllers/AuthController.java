@@ -39,6 +39,20 @@ public class AuthController {
         return ResponseEntity.status(HttpStatus.OK).body(responseRefreshTokenDTO);
     }
 
+    @PostMapping("/logout")
+    @Operation(
+            summary = "revoke a refresh token",
+            description = "revoke the refresh token, so it can no longer be used to get new tokens")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "revoked successfully"),
+            @ApiResponse(responseCode = "401", description = "refresh token is invalid or expired",
+                    content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
+    })
+    public ResponseEntity<Void> logout(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        authService.logout(refreshTokenDTO);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
     @PostMapping(
             value = "/register",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
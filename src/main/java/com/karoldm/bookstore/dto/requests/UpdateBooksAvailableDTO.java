@@ -0,0 +1,27 @@
+package com.karoldm.bookstore.dto.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UpdateBooksAvailableDTO {
+    @NotEmpty
+    @Size(max = 10000)
+    private List<@Valid @NotNull Item> books;
+
+    @Data
+    @Builder
+    public static class Item {
+        @NotNull
+        private Long id;
+        @NotNull
+        private Boolean available;
+    }
+}
@@ -0,0 +1,11 @@
+package com.karoldm.bookstore.dto.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ImportErrorDTO {
+    private long line;
+    private String message;
+}
@@ -1,6 +1,7 @@
 package com.karoldm.bookstore.dto.responses;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
@@ -8,6 +9,7 @@ import java.time.LocalDate;
 
 @Data
 @Builder
+@AllArgsConstructor
 public class ResponseBookDTO {
     private Long id;
     private String title;
@@ -0,0 +1,15 @@
+package com.karoldm.bookstore.dto.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class ResponseBookFacetsDTO {
+    private long total;
+    private Map<Integer, Long> rating;
+    private Map<Boolean, Long> available;
+    private Map<Integer, Long> releaseYear;
+}
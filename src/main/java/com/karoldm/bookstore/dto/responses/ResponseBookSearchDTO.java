@@ -0,0 +1,15 @@
+package com.karoldm.bookstore.dto.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class ResponseBookSearchDTO {
+    private ResponseBookDTO book;
+    private double score;
+    // field name (title, author, summary) -> text with matches wrapped in <mark></mark>
+    private Map<String, String> highlights;
+}
@@ -0,0 +1,13 @@
+package com.karoldm.bookstore.dto.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResponseCompletionsDTO {
+    private List<String> titles;
+    private List<String> authors;
+}
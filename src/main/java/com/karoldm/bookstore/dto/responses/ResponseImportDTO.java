@@ -0,0 +1,14 @@
+package com.karoldm.bookstore.dto.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResponseImportDTO {
+    private int imported;
+    private int rejected;
+    private List<ImportErrorDTO> errors;
+}
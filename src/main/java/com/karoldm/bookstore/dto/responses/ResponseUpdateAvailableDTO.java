@@ -0,0 +1,13 @@
+package com.karoldm.bookstore.dto.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResponseUpdateAvailableDTO {
+    private int updated;
+    private List<Long> notFound;
+}
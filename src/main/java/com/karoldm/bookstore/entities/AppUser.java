@@ -1,6 +1,7 @@
 package com.karoldm.bookstore.entities;
 
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.StoreMember;
 import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
@@ -17,7 +18,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class AppUser implements UserDetails {
+public class AppUser implements UserDetails, StoreMember {
     @Serial
     private static final long serialVersionUID = 1L;
 
@@ -33,11 +34,18 @@ public class AppUser implements UserDetails {
     private String password;
     @Column(nullable = false)
     private Roles role;
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
 
     @ManyToOne
     @JoinColumn(name = "store_id")
     private Store store;
 
+    @Override
+    public Long getStoreId() {
+        return store == null ? null : store.getId();
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority("ROLE_" + this.role.name()));
@@ -0,0 +1,20 @@
+package com.karoldm.bookstore.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    @Column(length = 36)
+    private String jti;
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
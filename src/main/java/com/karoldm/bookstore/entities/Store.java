@@ -26,4 +26,7 @@ public class Store implements Serializable {
     private String slogan;
     @Column(columnDefinition = "TEXT")
     private String banner; // base64 image
+    // only ever changed by StoreRepository.bumpCatalogVersion
+    @Column(name = "catalog_version", insertable = false, updatable = false)
+    private long catalogVersion;
 }
@@ -0,0 +1,7 @@
+package com.karoldm.bookstore.exceptions;
+
+public class FuzzySearchUnavailableException extends RuntimeException {
+    public FuzzySearchUnavailableException() {
+        super("A busca aproximada ainda não está disponível para esta loja. Tente novamente em instantes.");
+    }
+}
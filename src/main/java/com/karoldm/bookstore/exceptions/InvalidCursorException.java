@@ -0,0 +1,7 @@
+package com.karoldm.bookstore.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super("Cursor de paginação " + cursor + " inválido.");
+    }
+}
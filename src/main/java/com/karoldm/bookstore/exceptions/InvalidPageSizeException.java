@@ -0,0 +1,7 @@
+package com.karoldm.bookstore.exceptions;
+
+public class InvalidPageSizeException extends RuntimeException {
+    public InvalidPageSizeException(int size, int maximum) {
+        super("Tamanho de página " + size + " inválido. Informe um valor entre 1 e " + maximum + ".");
+    }
+}
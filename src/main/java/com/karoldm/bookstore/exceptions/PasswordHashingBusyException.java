@@ -0,0 +1,7 @@
+package com.karoldm.bookstore.exceptions;
+
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException() {
+        super("Muitas autenticações simultâneas. Tente novamente em instantes.");
+    }
+}
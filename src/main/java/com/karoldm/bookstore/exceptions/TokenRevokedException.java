@@ -0,0 +1,9 @@
+package com.karoldm.bookstore.exceptions;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+
+public class TokenRevokedException extends JWTVerificationException {
+    public TokenRevokedException() {
+        super("Token revogado.");
+    }
+}
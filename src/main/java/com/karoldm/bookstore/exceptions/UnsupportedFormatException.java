@@ -0,0 +1,7 @@
+package com.karoldm.bookstore.exceptions;
+
+public class UnsupportedFormatException extends RuntimeException {
+    public UnsupportedFormatException(String format) {
+        super("Formato " + format + " não suportado.");
+    }
+}
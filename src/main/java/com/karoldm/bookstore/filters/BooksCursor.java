@@ -0,0 +1,88 @@
+package com.karoldm.bookstore.filters;
+
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.exceptions.InvalidCursorException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Keyset position on the (createdAt, id) ordering used by the book listing.
+ * The token handed to clients is opaque: a base64url encoding of both keys,
+ * so ties on the day-precision createdAt column are broken by the id.
+ */
+@Getter
+@AllArgsConstructor
+public class BooksCursor implements Specification<Book> {
+    public static final Sort SORT = Sort.by("createdAt").and(Sort.by("id"));
+
+    private LocalDate createdAt;
+    private Long id;
+
+    public static BooksCursor of(Book book) {
+        return new BooksCursor(book.getCreatedAt(), book.getId());
+    }
+
+    public static BooksCursor of(ResponseBookDTO book) {
+        return new BooksCursor(book.getCreatedAt(), book.getId());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}. A blank token means
+     * "start from the beginning" and yields {@code null}.
+     */
+    public static BooksCursor decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 2) {
+                throw new InvalidCursorException(token);
+            }
+            return new BooksCursor(LocalDate.ofEpochDay(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt.toEpochDay() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Predicate toPredicate(
+            Root<Book> root,
+            CriteriaQuery<?> query,
+            CriteriaBuilder criteriaBuilder
+    ) {
+        Path<LocalDate> createdAtPath = root.get("createdAt");
+        Path<Long> idPath = root.get("id");
+
+        // (createdAt, id) > (:createdAt, :id), spelled out so every dialect can use the index
+        return criteriaBuilder.or(
+                criteriaBuilder.greaterThan(createdAtPath, createdAt),
+                criteriaBuilder.and(
+                        criteriaBuilder.equal(createdAtPath, createdAt),
+                        criteriaBuilder.greaterThan(idPath, id)
+                )
+        );
+    }
+}
@@ -42,6 +42,13 @@ public class BooksFilters implements Specification<Book> {
             ));
         }
 
+        if (StringUtils.hasText(booksFilterDTO.getSummary())) {
+            predicates.add(criteriaBuilder.like(
+                    criteriaBuilder.lower(root.get("summary")),
+                    "%" + booksFilterDTO.getSummary().toLowerCase() + "%"
+            ));
+        }
+
         if (booksFilterDTO.getAvailable() != null) {
             predicates.add(criteriaBuilder.equal(root.get("available"),
                     booksFilterDTO.getAvailable()));
@@ -64,4 +71,40 @@ public class BooksFilters implements Specification<Book> {
 
         return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
     }
+
+    public static boolean hasTextFilters(BooksFilterDTO filter) {
+        return StringUtils.hasText(filter.getTitle())
+                || StringUtils.hasText(filter.getAuthor())
+                || StringUtils.hasText(filter.getSummary());
+    }
+
+    public static boolean hasAttributeFilters(BooksFilterDTO filter) {
+        return filter.getAvailable() != null
+                || filter.getRating() != null
+                || filter.getStartDate() != null
+                || filter.getEndDate() != null;
+    }
+
+    /**
+     * Copy of the filter without the text criteria, for when those were
+     * already answered elsewhere (e.g. by the in-memory catalog index).
+     */
+    public static BooksFilterDTO attributesOnly(BooksFilterDTO filter) {
+        return BooksFilterDTO.builder()
+                .available(filter.getAvailable())
+                .rating(filter.getRating())
+                .startDate(filter.getStartDate())
+                .endDate(filter.getEndDate())
+                .build();
+    }
+
+    public static BooksFilterDTO textOnly(BooksFilterDTO filter) {
+        return BooksFilterDTO.builder()
+                .title(filter.getTitle())
+                .author(filter.getAuthor())
+                .summary(filter.getSummary())
+                .fuzzy(filter.getFuzzy())
+                .maxEdits(filter.getMaxEdits())
+                .build();
+    }
 }
@@ -115,6 +115,51 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    private ProblemDetail errorInvalidCursor(InvalidCursorException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
+        problemDetail.setTitle("Invalid cursor");
+        problemDetail.setType(URI.create("http://localhost:9000/doc/bad-request-errors"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(InvalidPageSizeException.class)
+    private ProblemDetail errorInvalidPageSize(InvalidPageSizeException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
+        problemDetail.setTitle("Invalid page size");
+        problemDetail.setType(URI.create("http://localhost:9000/doc/bad-request-errors"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(UnsupportedFormatException.class)
+    private ProblemDetail errorUnsupportedFormat(UnsupportedFormatException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
+        problemDetail.setTitle("Unsupported format");
+        problemDetail.setType(URI.create("http://localhost:9000/doc/bad-request-errors"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    private ProblemDetail errorPasswordHashingBusy(PasswordHashingBusyException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE,
+                ex.getMessage());
+        problemDetail.setTitle("Authentication busy");
+        problemDetail.setType(URI.create("http://localhost:9000/doc/unavailable-errors"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(FuzzySearchUnavailableException.class)
+    private ProblemDetail errorFuzzySearchUnavailable(FuzzySearchUnavailableException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE,
+                ex.getMessage());
+        problemDetail.setTitle("Fuzzy search unavailable");
+        problemDetail.setType(URI.create("http://localhost:9000/doc/unavailable-errors"));
+        return problemDetail;
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     private ProblemDetail errorMehtodArgumentNotValid(MethodArgumentNotValidException ex) {
         String errorMessage = ex.getBindingResult()
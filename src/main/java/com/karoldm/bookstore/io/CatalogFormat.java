@@ -0,0 +1,36 @@
+package com.karoldm.bookstore.io;
+
+import com.karoldm.bookstore.exceptions.UnsupportedFormatException;
+
+/**
+ * File formats a store catalog can be exported to and imported from.
+ */
+public enum CatalogFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    CatalogFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static CatalogFormat of(String value) {
+        for (CatalogFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value) || format.mediaType.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new UnsupportedFormatException(value);
+    }
+}
@@ -0,0 +1,76 @@
+package com.karoldm.bookstore.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming counterpart of {@link CsvWriter}: reads one RFC 4180 record at a
+ * time, so quoted fields may contain separators, doubled quotes and line
+ * breaks. Both CRLF and LF end a record.
+ */
+public class CsvReader {
+    private final Reader reader;
+    private long line = 1;
+    private long recordLine;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Line on which the record last returned by {@link #readRow()} started.
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * The next record's fields, or null at the end of the input.
+     */
+    public List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        inQuotes = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.isEmpty()) {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.karoldm.bookstore.repositories;
 import com.karoldm.bookstore.entities.AppUser;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.UserPrincipal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.Set;
@@ -11,7 +14,21 @@ import java.util.Set;
 public interface AppUserRepository extends JpaRepository<AppUser, Long> {
     Optional<AppUser> findByUsername(String username);
 
+    @Query("SELECT u FROM AppUser u LEFT JOIN FETCH u.store WHERE u.username = :username")
+    Optional<AppUser> findWithStoreByUsername(@Param("username") String username);
+
+    /**
+     * Only the fields authorization needs, without loading the entity and
+     * its store.
+     */
+    @Query("SELECT new com.karoldm.bookstore.security.UserPrincipal(u.id, u.username, u.role, s.id, u.tokenVersion) " +
+            "FROM AppUser u LEFT JOIN u.store s WHERE u.username = :username")
+    Optional<UserPrincipal> findPrincipalByUsername(@Param("username") String username);
+
     Set<AppUser> findByStoreAndRole(Store store, Roles role);
 
     Optional<AppUser> findByIdAndStoreAndRole(Long id, Store store, Roles role);
+
+    @Query("SELECT u.tokenVersion FROM AppUser u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,9 @@
+package com.karoldm.bookstore.repositories;
+
+/**
+ * One group of the facet aggregate: how many books share a rating,
+ * availability and release year. The year is null for books without a
+ * release date.
+ */
+public record BookFacetRow(Integer rating, Boolean available, Integer releaseYear, Long count) {
+}
@@ -7,7 +7,87 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
+import java.util.Collection;
+import java.util.List;
+
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
     @NotNull Page<Book> findAll(Specification<Book> spec, @NotNull Pageable pageable);
+
+    List<Book> findByStoreIdOrderByCreatedAtAscIdAsc(Long storeId);
+
+    @Query("SELECT b.id FROM Book b WHERE b.store.id = :storeId AND b.id IN :ids")
+    List<Long> findIdsByStoreIdAndIdIn(@Param("storeId") Long storeId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.available = :available WHERE b.store.id = :storeId AND b.id IN :ids")
+    int updateAvailable(
+            @Param("storeId") Long storeId,
+            @Param("ids") Collection<Long> ids,
+            @Param("available") boolean available
+    );
+
+    // The document expression must stay identical to idx_book_search_document
+    // (db/migration/postgresql/V3__add_search_indexes.sql), otherwise PostgreSQL will not use the GIN index.
+    @Query(value = "SELECT b.id AS id, " +
+            "CAST(ts_rank_cd(" + SEARCH_DOCUMENT + ", q.ts) " +
+            "+ greatest(similarity(lower(b.title), lower(:query)), similarity(lower(b.author), lower(:query))) " +
+            "AS double precision) AS score, " +
+            "ts_headline('simple', " + HTML_ESCAPED_START + "coalesce(b.title, '')" + HTML_ESCAPED_END + ", q.ts, 'StartSel=<mark>, StopSel=</mark>, HighlightAll=true') AS titleHighlight, " +
+            "ts_headline('simple', " + HTML_ESCAPED_START + "coalesce(b.author, '')" + HTML_ESCAPED_END + ", q.ts, 'StartSel=<mark>, StopSel=</mark>, HighlightAll=true') AS authorHighlight, " +
+            "ts_headline('simple', " + HTML_ESCAPED_START + "coalesce(b.summary, '')" + HTML_ESCAPED_END + ", q.ts, 'StartSel=<mark>, StopSel=</mark>, MinWords=10, MaxWords=25') AS summaryHighlight " +
+            "FROM book b, (SELECT websearch_to_tsquery('simple', :query) AS ts) q " +
+            "WHERE b.store_id = :storeId " +
+            "AND (" + SEARCH_DOCUMENT + " @@ q.ts " +
+            "OR lower(b.title) % lower(:query) OR lower(b.author) % lower(:query)) " +
+            "ORDER BY score DESC, b.id " +
+            "LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<BookSearchRow> searchFullText(
+            @Param("storeId") Long storeId,
+            @Param("query") String query,
+            @Param("limit") int limit,
+            @Param("offset") long offset
+    );
+
+    @Query("SELECT b FROM Book b " +
+            "WHERE b.store.id = :storeId " +
+            "AND (lower(b.title) LIKE :pattern OR lower(b.author) LIKE :pattern OR lower(b.summary) LIKE :pattern) " +
+            "ORDER BY CASE WHEN lower(b.title) LIKE :pattern THEN 0 " +
+            "WHEN lower(b.author) LIKE :pattern THEN 1 ELSE 2 END, b.createdAt, b.id")
+    List<Book> searchByText(
+            @Param("storeId") Long storeId,
+            @Param("pattern") String pattern,
+            Pageable pageable
+    );
+
+    @Query("SELECT b.title FROM Book b " +
+            "WHERE b.store.id = :storeId AND lower(b.title) LIKE :pattern " +
+            "GROUP BY b.title ORDER BY max(b.rating) DESC, count(b) DESC, b.title")
+    List<String> findTitleCompletions(
+            @Param("storeId") Long storeId,
+            @Param("pattern") String pattern,
+            Pageable pageable
+    );
+
+    @Query("SELECT b.author FROM Book b " +
+            "WHERE b.store.id = :storeId AND lower(b.author) LIKE :pattern " +
+            "GROUP BY b.author ORDER BY max(b.rating) DESC, count(b) DESC, b.author")
+    List<String> findAuthorCompletions(
+            @Param("storeId") Long storeId,
+            @Param("pattern") String pattern,
+            Pageable pageable
+    );
+
+    // Wraps a column so ts_headline sees it HTML-escaped the way SearchHighlighter escapes
+    // text; otherwise markup stored in a book would reach clients inside the highlights.
+    String HTML_ESCAPED_START = "replace(replace(replace(replace(replace(";
+    String HTML_ESCAPED_END = ", '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), '\"', '&quot;'), '''', '&#39;')";
+
+    String SEARCH_DOCUMENT = "(setweight(to_tsvector('simple', coalesce(b.title, '')), 'A') " +
+            "|| setweight(to_tsvector('simple', coalesce(b.author, '')), 'B') " +
+            "|| setweight(to_tsvector('simple', coalesce(b.summary, '')), 'C'))";
 }
@@ -0,0 +1,34 @@
+package com.karoldm.bookstore.repositories;
+
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.entities.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Listing queries that select the response columns straight into
+ * {@link ResponseBookDTO}s: nothing enters the persistence context, the store
+ * is never joined and no count query is issued.
+ */
+public interface BookRepositoryCustom {
+    List<ResponseBookDTO> findResponses(Specification<Book> specification, Pageable pageable);
+
+    /**
+     * Unordered; callers that need a specific order must apply it.
+     */
+    List<ResponseBookDTO> findResponsesByIds(Collection<Long> ids);
+
+    /**
+     * Ids of the books matching the specification, unordered.
+     */
+    List<Long> findIds(Specification<Book> specification);
+
+    /**
+     * Book counts grouped by (rating, available, release year) in a single
+     * aggregate; every facet histogram is a roll-up of these few rows.
+     */
+    List<BookFacetRow> countFacets(Specification<Book> specification);
+}
@@ -0,0 +1,124 @@
+package com.karoldm.bookstore.repositories;
+
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.entities.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.Collection;
+import java.util.List;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ResponseBookDTO> findResponses(Specification<Book> specification, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ResponseBookDTO> query = criteriaBuilder.createQuery(ResponseBookDTO.class);
+        Root<Book> root = query.from(Book.class);
+
+        query.select(projection(criteriaBuilder, root));
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+
+        TypedQuery<ResponseBookDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public List<ResponseBookDTO> findResponsesByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ResponseBookDTO> query = criteriaBuilder.createQuery(ResponseBookDTO.class);
+        Root<Book> root = query.from(Book.class);
+
+        query.select(projection(criteriaBuilder, root))
+                .where(root.get("id").in(ids));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Book> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+
+        query.select(root.get("id"));
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<BookFacetRow> countFacets(Specification<Book> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookFacetRow> query = criteriaBuilder.createQuery(BookFacetRow.class);
+        Root<Book> root = query.from(Book.class);
+
+        Expression<Integer> rating = root.get("rating");
+        Expression<Boolean> available = root.get("available");
+        Expression<Integer> releaseYear = criteriaBuilder.function("year", Integer.class, root.get("releasedAt"));
+
+        query.select(criteriaBuilder.construct(
+                BookFacetRow.class,
+                rating,
+                available,
+                releaseYear,
+                criteriaBuilder.count(root)
+        ));
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.groupBy(rating, available, releaseYear);
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // argument order must follow the ResponseBookDTO constructor
+    private static CompoundSelection<ResponseBookDTO> projection(
+            CriteriaBuilder criteriaBuilder,
+            Root<Book> root
+    ) {
+        return criteriaBuilder.construct(
+                ResponseBookDTO.class,
+                root.get("id"),
+                root.get("title"),
+                root.get("summary"),
+                root.get("releasedAt"),
+                root.get("rating"),
+                root.get("available"),
+                root.get("author"),
+                root.get("cover"),
+                root.get("createdAt")
+        );
+    }
+}
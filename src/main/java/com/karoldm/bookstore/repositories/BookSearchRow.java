@@ -0,0 +1,17 @@
+package com.karoldm.bookstore.repositories;
+
+/**
+ * Row of the native full-text search query; aliases in the query must match
+ * these getter names.
+ */
+public interface BookSearchRow {
+    Long getId();
+
+    Double getScore();
+
+    String getTitleHighlight();
+
+    String getAuthorHighlight();
+
+    String getSummaryHighlight();
+}
@@ -0,0 +1,7 @@
+package com.karoldm.bookstore.repositories;
+
+/**
+ * A store's id and its current catalog version.
+ */
+public record StoreCatalogVersionRow(Long storeId, Long catalogVersion) {
+}
@@ -2,10 +2,27 @@ package com.karoldm.bookstore.repositories;
 
 import com.karoldm.bookstore.entities.Store;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface StoreRepository extends JpaRepository<Store, Long> {
 
     Optional<Store> findByName(String name);
+
+    @Query("SELECT s.id FROM Store s")
+    List<Long> findAllIds();
+
+    @Modifying
+    @Query("UPDATE Store s SET s.catalogVersion = s.catalogVersion + 1 WHERE s.id = :id")
+    int bumpCatalogVersion(@Param("id") Long id);
+
+    @Query("SELECT s.catalogVersion FROM Store s WHERE s.id = :id")
+    Optional<Long> findCatalogVersionById(@Param("id") Long id);
+
+    @Query("SELECT new com.karoldm.bookstore.repositories.StoreCatalogVersionRow(s.id, s.catalogVersion) FROM Store s")
+    List<StoreCatalogVersionRow> findCatalogVersions();
 }
@@ -0,0 +1,11 @@
+package com.karoldm.bookstore.search;
+
+import java.util.List;
+
+/**
+ * Relevance-ranked text search over a store's catalog (title, author and summary).
+ * Implementations return hits ordered from most to least relevant.
+ */
+public interface BookSearchEngine {
+    List<BookSearchHit> search(Long storeId, String query, int page, int size);
+}
@@ -0,0 +1,24 @@
+package com.karoldm.bookstore.search;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class BookSearchHit {
+    private Long id;
+    private String title;
+    private String summary;
+    private LocalDate releasedAt;
+    private String author;
+    private boolean available;
+    private int rating;
+    private String cover;
+    private LocalDate createdAt;
+    private double score;
+    private String titleHighlight;
+    private String authorHighlight;
+    private String summaryHighlight;
+}
@@ -0,0 +1,61 @@
+package com.karoldm.bookstore.search;
+
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.repositories.BookRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Portable fallback used when the database is not PostgreSQL (e.g. H2 in the
+ * test profile). Matching is a case-insensitive substring match, ranked by the
+ * field it hits (title, then author, then summary) and highlighted in Java.
+ */
+@AllArgsConstructor
+public class LikeBookSearchEngine implements BookSearchEngine {
+    private static final double TITLE_WEIGHT = 1.0;
+    private static final double AUTHOR_WEIGHT = 0.4;
+    private static final double SUMMARY_WEIGHT = 0.1;
+
+    private BookRepository bookRepository;
+
+    @Override
+    public List<BookSearchHit> search(Long storeId, String query, int page, int size) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+
+        List<Book> books = bookRepository.searchByText(
+                storeId, "%" + needle + "%", PageRequest.of(page, size));
+
+        return books.stream()
+                .map(book -> toHit(book, needle))
+                .toList();
+    }
+
+    private BookSearchHit toHit(Book book, String needle) {
+        String title = SearchHighlighter.highlight(book.getTitle(), needle);
+        String author = SearchHighlighter.highlight(book.getAuthor(), needle);
+        String summary = SearchHighlighter.snippet(book.getSummary(), needle);
+
+        double score = (title != null ? TITLE_WEIGHT : 0)
+                + (author != null ? AUTHOR_WEIGHT : 0)
+                + (summary != null ? SUMMARY_WEIGHT : 0);
+
+        return BookSearchHit.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .summary(book.getSummary())
+                .releasedAt(book.getReleasedAt())
+                .author(book.getAuthor())
+                .available(book.isAvailable())
+                .rating(book.getRating())
+                .cover(book.getCover())
+                .createdAt(book.getCreatedAt())
+                .score(score)
+                .titleHighlight(title)
+                .authorHighlight(author)
+                .summaryHighlight(summary)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.karoldm.bookstore.search;
+
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.repositories.BookRepository;
+import com.karoldm.bookstore.repositories.BookSearchRow;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Uses the weighted tsvector GIN index for word matches and the pg_trgm indexes
+ * on lower(title)/lower(author) for near matches; ranking and snippets are
+ * computed by PostgreSQL (ts_rank_cd, similarity and ts_headline). The page of
+ * matching ids is then loaded by primary key.
+ */
+@AllArgsConstructor
+public class PostgresBookSearchEngine implements BookSearchEngine {
+    private BookRepository bookRepository;
+
+    @Override
+    public List<BookSearchHit> search(Long storeId, String query, int page, int size) {
+        List<BookSearchRow> rows = bookRepository.searchFullText(
+                storeId, query.trim(), size, (long) page * size);
+
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Book> books = bookRepository.findAllById(rows.stream().map(BookSearchRow::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        return rows.stream()
+                .filter(row -> books.containsKey(row.getId()))
+                .map(row -> toHit(books.get(row.getId()), row))
+                .toList();
+    }
+
+    private BookSearchHit toHit(Book book, BookSearchRow row) {
+        return BookSearchHit.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .summary(book.getSummary())
+                .releasedAt(book.getReleasedAt())
+                .author(book.getAuthor())
+                .available(book.isAvailable())
+                .rating(book.getRating())
+                .cover(book.getCover())
+                .createdAt(book.getCreatedAt())
+                .score(row.getScore() == null ? 0 : row.getScore())
+                .titleHighlight(row.getTitleHighlight())
+                .authorHighlight(row.getAuthorHighlight())
+                .summaryHighlight(row.getSummaryHighlight())
+                .build();
+    }
+}
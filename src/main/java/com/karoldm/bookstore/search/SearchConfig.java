@@ -0,0 +1,28 @@
+package com.karoldm.bookstore.search;
+
+import com.karoldm.bookstore.repositories.BookRepository;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+@Configuration
+public class SearchConfig {
+
+    @Bean
+    public BookSearchEngine bookSearchEngine(DataSource dataSource, BookRepository bookRepository)
+            throws MetaDataAccessException {
+        String productName = JdbcUtils.extractDatabaseMetaData(dataSource,
+                DatabaseMetaData::getDatabaseProductName);
+
+        // full-text and trigram operators only exist on PostgreSQL
+        if (DatabaseDriver.fromProductName(productName) == DatabaseDriver.POSTGRESQL) {
+            return new PostgresBookSearchEngine(bookRepository);
+        }
+        return new LikeBookSearchEngine(bookRepository);
+    }
+}
@@ -0,0 +1,82 @@
+package com.karoldm.bookstore.search;
+
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * Marks matches with the same {@code <mark>} tags PostgreSQL's ts_headline is
+ * configured to emit, so both search engines produce the same snippet format.
+ * Everything around the tags is HTML-escaped, since clients render the
+ * highlights as markup and the text comes from store employees.
+ */
+public final class SearchHighlighter {
+    public static final String START = "<mark>";
+    public static final String STOP = "</mark>";
+
+    private static final int SNIPPET_CONTEXT = 60;
+
+    private SearchHighlighter() {
+    }
+
+    /**
+     * Returns the text with every case-insensitive occurrence of the needle
+     * marked, or {@code null} when it does not occur.
+     */
+    public static String highlight(String text, String needle) {
+        if (text == null || needle.isEmpty()) {
+            return null;
+        }
+
+        int index = indexOf(text, needle, 0);
+        if (index < 0) {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        int from = 0;
+        while (index >= 0) {
+            builder.append(escape(text, from, index))
+                    .append(START)
+                    .append(escape(text, index, index + needle.length()))
+                    .append(STOP);
+            from = index + needle.length();
+            index = indexOf(text, needle, from);
+        }
+        return builder.append(escape(text, from, text.length())).toString();
+    }
+
+    /**
+     * Like {@link #highlight} but trims long texts to a window around the
+     * first match.
+     */
+    public static String snippet(String text, String needle) {
+        if (text == null || needle.isEmpty()) {
+            return null;
+        }
+
+        int index = indexOf(text, needle, 0);
+        if (index < 0) {
+            return null;
+        }
+
+        int start = Math.max(0, index - SNIPPET_CONTEXT);
+        int end = Math.min(text.length(), index + needle.length() + SNIPPET_CONTEXT);
+
+        String window = highlight(text.substring(start, end), needle);
+        return (start > 0 ? "..." : "") + window + (end < text.length() ? "..." : "");
+    }
+
+    // matches case-insensitively on the text itself: lower-casing it first can
+    // change its length (e.g. "İ"), and the offsets would no longer fit
+    private static int indexOf(String text, String needle, int from) {
+        for (int index = from; index <= text.length() - needle.length(); index++) {
+            if (text.regionMatches(true, index, needle, 0, needle.length())) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String escape(String text, int start, int end) {
+        return HtmlUtils.htmlEscape(text.substring(start, end), "UTF-8");
+    }
+}
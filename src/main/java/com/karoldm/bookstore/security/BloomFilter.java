@@ -0,0 +1,81 @@
+package com.karoldm.bookstore.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter of strings. Lookups hash the characters in place
+ * and only read the bit array, so they allocate nothing and take no lock;
+ * insertions set bits with atomic updates and may run concurrently with
+ * lookups. Never reports false negatives.
+ */
+final class BloomFilter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    private BloomFilter(long bits, int hashes) {
+        this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Sized so that, with up to {@code expectedInsertions} values, about
+     * {@code falsePositiveRate} of the lookups for absent values answer true.
+     */
+    static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long expected = Math.max(1, expectedInsertions);
+        long bits = Math.max(64, (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) bits / expected * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    void put(String value) {
+        long hash = hash(value);
+        long step = mix(hash) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash + i * step, bits);
+            long mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, set) -> word | set);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        long step = mix(hash) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash + i * step, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long bitSize() {
+        return bits;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 code units
+    private static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    // finalizer of MurmurHash3, spreads the bits for the second hash
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
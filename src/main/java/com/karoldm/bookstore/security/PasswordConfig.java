@@ -0,0 +1,70 @@
+package com.karoldm.bookstore.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+public class PasswordConfig {
+    // below 10 BCrypt is too cheap to brute force, above 16 a login takes seconds
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+
+    /**
+     * Single password encoder of the application, also used by the
+     * authentication manager for logins. A {@code bcrypt-strength} of 0
+     * calibrates the cost at startup to the target latency on this hardware;
+     * hashes made with another cost keep verifying since BCrypt stores it.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${api.security.password.bcrypt-strength:0}") int strength,
+            @Value("${api.security.password.target-latency:250ms}") Duration targetLatency,
+            @Value("${api.security.password.threads:0}") int threads,
+            @Value("${api.security.password.queue-capacity:200}") int queueCapacity
+    ) {
+        if (strength <= 0) {
+            strength = calibrateStrength(targetLatency);
+            log.info("BCrypt strength calibrated to {} for a target of {} ms", strength, targetLatency.toMillis());
+        }
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Highest strength whose hash stays within the target, estimated from one
+     * timed hash at the minimum strength since every step doubles the work.
+     */
+    static int calibrateStrength(Duration targetLatency) {
+        // warms up the JIT so the timed run is not dominated by interpretation
+        new BCryptPasswordEncoder(4).encode("calibration");
+
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        long elapsed = Long.MAX_VALUE;
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            elapsed = Math.min(elapsed, System.nanoTime() - start);
+        }
+        return strengthFor(elapsed, targetLatency.toNanos());
+    }
+
+    static int strengthFor(long nanosAtMinStrength, long targetNanos) {
+        int strength = MIN_STRENGTH;
+        long nanos = nanosAtMinStrength;
+        while (strength < MAX_STRENGTH && nanos * 2 <= targetNanos) {
+            strength++;
+            nanos *= 2;
+        }
+        return strength;
+    }
+}
@@ -0,0 +1,64 @@
+package com.karoldm.bookstore.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.repositories.AppUserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Principals of the users authenticated by tokens that only carry a
+ * username, so such requests do not query the user every time. Misses load
+ * the principal columns alone, without the user entity and its store.
+ * Unknown usernames are not cached. Hit ratio and load latency are published
+ * under the "principals" cache metrics.
+ */
+@Component
+public class PrincipalCache implements MeterBinder {
+    private final AppUserRepository userRepository;
+    // null when the maximum size is 0, which turns caching off
+    private final LoadingCache<String, UserPrincipal> principals;
+
+    public PrincipalCache(
+            AppUserRepository userRepository,
+            @Value("${api.security.principals.maximum-size:10000}") long maximumSize,
+            @Value("${api.security.principals.expire-after-write:5m}") Duration expireAfterWrite
+    ) {
+        this.userRepository = userRepository;
+        this.principals = maximumSize == 0 ? null : Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build(this::load);
+    }
+
+    public Optional<UserPrincipal> find(String username) {
+        return Optional.ofNullable(principals == null ? load(username) : principals.get(username));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokensRevoked(TokensRevokedEvent event) {
+        if (principals != null) {
+            principals.invalidateAll(event.getUsers().stream().map(AppUser::getUsername).toList());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (principals != null) {
+            CaffeineCacheMetrics.monitor(registry, principals, "principals");
+        }
+    }
+
+    private UserPrincipal load(String username) {
+        return userRepository.findPrincipalByUsername(username).orElse(null);
+    }
+}
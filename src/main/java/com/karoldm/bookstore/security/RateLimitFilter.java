@@ -0,0 +1,212 @@
+package com.karoldm.bookstore.security;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.karoldm.bookstore.services.TokenService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets in front of the authentication filter: the auth routes are
+ * limited per client address, the store routes per store id, reads and
+ * writes separately. Store requests that do not carry a valid token of a
+ * member of that store are limited per client address instead, in the same
+ * buckets, so they cannot use up the store's allowance before being refused. Each bucket is a single {@link AtomicLong} holding the
+ * time at which it will be full again (the generic cell rate algorithm), so
+ * taking a token is one compare-and-set and no lock is shared between
+ * requests. Rejected requests get 429 with Retry-After and are counted in
+ * {@code rate.limit.rejections} by route.
+ *
+ * <p>Behind a proxy the client address is only meaningful with
+ * {@code server.forward-headers-strategy} set, so the container resolves it
+ * from the trusted forwarded headers.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter implements MeterBinder {
+    private static final String AUTH_PATH = "/v1/auth/";
+    private static final String STORE_PATH = "/v1/store/";
+
+    private static final class Route {
+        private final String name;
+        private final long interval;
+        private final long tolerance;
+        // client address (String) or store id (Long) -> time the bucket is full again
+        private final Cache<Object, AtomicLong> buckets;
+        private Counter rejections;
+
+        private Route(String name, long capacity, long perMinute, long maximumKeys) {
+            this.name = name;
+            this.interval = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            this.tolerance = interval * (Math.max(1, capacity) - 1);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumKeys)
+                    .expireAfterAccess(Duration.ofNanos(interval * Math.max(1, capacity)).plusMinutes(1))
+                    .build();
+        }
+
+        /**
+         * Takes a token for the key; returns 0 when granted, otherwise the
+         * nanoseconds until one is available.
+         */
+        private long acquire(Object key, long now) {
+            AtomicLong bucket = buckets.get(key, ignored -> new AtomicLong(Long.MIN_VALUE));
+            while (true) {
+                long full = bucket.get();
+                long start = Math.max(full, now);
+                long wait = start - now - tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(full, start + interval)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private final Route auth;
+    private final Route storeRead;
+    private final Route storeWrite;
+    private final TokenService tokenService;
+
+    public RateLimitFilter(
+            TokenService tokenService,
+            @Value("${api.rate-limit.auth.capacity:20}") long authCapacity,
+            @Value("${api.rate-limit.auth.per-minute:30}") long authPerMinute,
+            @Value("${api.rate-limit.store-read.capacity:200}") long storeReadCapacity,
+            @Value("${api.rate-limit.store-read.per-minute:6000}") long storeReadPerMinute,
+            @Value("${api.rate-limit.store-write.capacity:50}") long storeWriteCapacity,
+            @Value("${api.rate-limit.store-write.per-minute:1200}") long storeWritePerMinute,
+            @Value("${api.rate-limit.maximum-keys:100000}") long maximumKeys
+    ) {
+        this.tokenService = tokenService;
+        this.auth = new Route("auth", authCapacity, authPerMinute, maximumKeys);
+        this.storeRead = new Route("store-read", storeReadCapacity, storeReadPerMinute, maximumKeys);
+        this.storeWrite = new Route("store-write", storeWriteCapacity, storeWritePerMinute, maximumKeys);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        // decoded, as the route authorization sees it, so encoded segments do not skip the limit
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+
+        Route route = null;
+        Object key = null;
+        if (path.startsWith(AUTH_PATH)) {
+            route = auth;
+            key = request.getRemoteAddr();
+        } else if (path.startsWith(STORE_PATH)) {
+            Long storeId = storeId(path);
+            if (storeId != null) {
+                route = isRead(request) ? storeRead : storeWrite;
+                key = isMemberOf(request, storeId) ? storeId : request.getRemoteAddr();
+            }
+        }
+
+        if (route != null && key != null) {
+            long wait = route.acquire(key, System.nanoTime());
+            if (wait > 0) {
+                reject(route, wait, response);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Route route : new Route[]{auth, storeRead, storeWrite}) {
+            route.rejections = Counter.builder("rate.limit.rejections")
+                    .description("Requests rejected by the rate limiter")
+                    .tag("route", route.name)
+                    .register(registry);
+        }
+    }
+
+    private static void reject(Route route, long waitNanos, HttpServletResponse response) throws IOException {
+        Counter rejections = route.rejections;
+        if (rejections != null) {
+            rejections.increment();
+        }
+
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(
+                "{\"error\":\"Too many requests\",\"message\":\"Muitas requisições. Tente novamente em "
+                        + seconds + " segundos.\"}"
+        );
+    }
+
+    /**
+     * Whether the request carries a valid access token issued to a member of
+     * the store. Anything else, a missing, forged or expired token or one of
+     * another store, is refused further on and must not use up the store's
+     * allowance. Tokens without the store claim cannot be checked here
+     * without a database lookup, so they are treated the same way.
+     */
+    private boolean isMemberOf(HttpServletRequest request, Long storeId) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null) {
+            return false;
+        }
+        try {
+            // verified tokens are cached, so the security filter does not verify it again
+            return tokenService.principalOf(authHeader.replace("Bearer ", ""))
+                    .map(principal -> storeId.equals(principal.getStoreId()))
+                    .orElse(false);
+        } catch (JWTVerificationException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    // the numeric segment after /v1/store/, or null when there is none
+    private static Long storeId(String path) {
+        int from = STORE_PATH.length();
+        int end = path.indexOf('/', from);
+        end = end < 0 ? path.length() : end;
+        if (end == from || end - from > 18) {
+            return null;
+        }
+
+        long id = 0;
+        for (int i = from; i < end; i++) {
+            char digit = path.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return null;
+            }
+            id = id * 10 + (digit - '0');
+        }
+        return id;
+    }
+}
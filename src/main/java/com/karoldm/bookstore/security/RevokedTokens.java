@@ -0,0 +1,102 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.RevokedToken;
+import com.karoldm.bookstore.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Ids of the refresh tokens revoked before their expiration. The table is
+ * the source of truth; a Bloom filter of its rows sits in front of it, so a
+ * token that was never revoked, which is nearly every one, is answered from
+ * memory without locking or allocating, and only a possible hit goes to the
+ * database. Revocations made here are visible at once; revocations made by
+ * other instances once the filter is next rebuilt, which also purges the
+ * expired rows and resizes the filter.
+ */
+@Slf4j
+@Component
+public class RevokedTokens {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long minimumCapacity;
+    private final Counter filtered;
+    private final Counter revoked;
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+    // receives the revocations made while a rebuild is loading the table
+    private volatile BloomFilter next;
+
+    public RevokedTokens(
+            RevokedTokenRepository revokedTokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${api.security.revoked-tokens.minimum-capacity:10000}") long minimumCapacity
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.minimumCapacity = minimumCapacity;
+        this.filtered = lookups(meterRegistry, "filtered");
+        this.revoked = lookups(meterRegistry, "revoked");
+        this.falsePositives = lookups(meterRegistry, "false-positive");
+        rebuild();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (!filter.mightContain(tokenId)) {
+            filtered.increment();
+            return false;
+        }
+        if (revokedTokenRepository.existsById(tokenId)) {
+            revoked.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        revokedTokenRepository.save(RevokedToken.builder().jti(tokenId).expiresAt(expiresAt).build());
+
+        // saved first, so a rebuild that did not see this id yet has already published its filter here
+        BloomFilter pending = next;
+        if (pending != null) {
+            pending.put(tokenId);
+        }
+        filter.put(tokenId);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${api.security.revoked-tokens.rebuild-interval:1m}",
+            initialDelayString = "${api.security.revoked-tokens.rebuild-interval:1m}"
+    )
+    public synchronized void rebuild() {
+        Instant now = Instant.now();
+        revokedTokenRepository.deleteExpired(now);
+
+        long count = revokedTokenRepository.count();
+        BloomFilter rebuilt = BloomFilter.create(Math.max(minimumCapacity, count * 2), FALSE_POSITIVE_RATE);
+        next = rebuilt;
+
+        List<String> ids = revokedTokenRepository.findActiveIds(now);
+        ids.forEach(rebuilt::put);
+
+        filter = rebuilt;
+        next = null;
+        log.debug("Revoked token filter rebuilt with {} ids in {} bits", ids.size(), rebuilt.bitSize());
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("revoked.tokens.lookups")
+                .description("Refresh token revocation checks by how they were answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
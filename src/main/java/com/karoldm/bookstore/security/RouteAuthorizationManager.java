@@ -0,0 +1,292 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.services.StoreSecurityService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Authorization rules of every route, compiled at startup into one tree of
+ * path segments per HTTP method. A request walks its own path down the tree
+ * once, preferring literal segments over {@code *} and over a trailing
+ * {@code **}, and the rule found there decides with a role check and, for
+ * store-scoped routes, a direct call to {@link StoreSecurityService} with the
+ * store id taken from the path. Routes without a rule only require an
+ * authenticated user, unless a {@code **} deny rule covers them.
+ *
+ * <p>The path is matched decoded and without path parameters, the way Spring
+ * MVC resolves the handler, so an encoded segment cannot miss its rule and
+ * still reach the controller. HEAD requests are served by the GET handlers
+ * and are checked against the GET rules.
+ *
+ * <p>Patterns are literal segments, {@code *} for any single segment,
+ * {@code {storeId}} for the segment holding the store id, and a trailing
+ * {@code **} for any remainder.
+ */
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+    private static final String STORE_ID = "{storeId}";
+    private static final String ANY = "*";
+    private static final String REST = "**";
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    private enum Scope {NONE, STORE_MEMBER, STORE_ADMIN, DENY}
+
+    // roles is null for rules that let anyone in, empty for any authenticated user
+    private record Rule(String[] roles, Scope scope, int storeSegment) {
+        static final Rule PERMIT_ALL = new Rule(null, Scope.NONE, -1);
+        static final Rule AUTHENTICATED = new Rule(new String[0], Scope.NONE, -1);
+        static final Rule DENY_ALL = new Rule(new String[0], Scope.DENY, -1);
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node any;
+        private Rule rule;
+        private Rule rest;
+    }
+
+    private final Map<String, Node> roots;
+    private final StoreSecurityService storeSecurityService;
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    private RouteAuthorizationManager(Map<String, Node> roots, StoreSecurityService storeSecurityService) {
+        this.roots = roots;
+        this.storeSecurityService = storeSecurityService;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        String method = HttpMethod.HEAD.matches(request.getMethod()) ? HttpMethod.GET.name() : request.getMethod();
+
+        Rule rule = match(method, path);
+        return allows(rule, authentication.get(), path) ? GRANTED : DENIED;
+    }
+
+    private boolean allows(Rule rule, Authentication authentication, String path) {
+        if (rule.scope() == Scope.DENY) {
+            return false;
+        }
+        if (rule.roles() == null) {
+            return true;
+        }
+        if (!trustResolver.isAuthenticated(authentication) || !hasAnyRole(authentication, rule.roles())) {
+            return false;
+        }
+        if (rule.scope() == Scope.NONE) {
+            return true;
+        }
+
+        Long storeId = storeId(path, rule.storeSegment());
+        if (storeId == null) {
+            return false;
+        }
+        Object principal = authentication.getPrincipal();
+        return rule.scope() == Scope.STORE_ADMIN
+                ? storeSecurityService.isStoreAdmin(principal, storeId)
+                : storeSecurityService.canAccessStore(principal, storeId);
+    }
+
+    private static boolean hasAnyRole(Authentication authentication, String[] roles) {
+        if (roles.length == 0) {
+            return true;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            for (String role : roles) {
+                if (role.equals(authority.getAuthority())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Rule match(String method, String path) {
+        Node root = roots.get(method);
+        Rule rule = root == null ? null : match(root, path, skipSlashes(path, 0));
+        return rule == null ? Rule.AUTHENTICATED : rule;
+    }
+
+    private static Rule match(Node node, String path, int from) {
+        if (from == path.length()) {
+            return node.rule != null ? node.rule : node.rest;
+        }
+
+        int end = path.indexOf('/', from);
+        if (end < 0) {
+            end = path.length();
+        }
+        int next = skipSlashes(path, end);
+
+        Node literal = node.literals.isEmpty() ? null : node.literals.get(path.substring(from, end));
+        Rule rule = literal == null ? null : match(literal, path, next);
+        if (rule == null && node.any != null) {
+            rule = match(node.any, path, next);
+        }
+        return rule != null ? rule : node.rest;
+    }
+
+    private static Long storeId(String path, int segment) {
+        int from = skipSlashes(path, 0);
+        for (int i = 0; i < segment && from < path.length(); i++) {
+            int end = path.indexOf('/', from);
+            from = end < 0 ? path.length() : skipSlashes(path, end);
+        }
+        if (from == path.length()) {
+            return null;
+        }
+
+        int end = path.indexOf('/', from);
+        end = end < 0 ? path.length() : end;
+        long id = 0;
+        for (int i = from; i < end; i++) {
+            char digit = path.charAt(i);
+            if (digit < '0' || digit > '9' || id > (Long.MAX_VALUE - 9) / 10) {
+                return null;
+            }
+            id = id * 10 + (digit - '0');
+        }
+        return id;
+    }
+
+    private static int skipSlashes(String path, int from) {
+        while (from < path.length() && path.charAt(from) == '/') {
+            from++;
+        }
+        return from;
+    }
+
+    public static final class Builder {
+        private final Map<String, Node> roots = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Lets anyone in; a null method applies to every method.
+         */
+        public Builder permitAll(HttpMethod method, String... patterns) {
+            for (String pattern : patterns) {
+                add(method, pattern, Rule.PERMIT_ALL);
+            }
+            return this;
+        }
+
+        /**
+         * Lets nobody in; meant for a trailing {@code **} under which every
+         * route has a rule of its own, so unknown routes are not left to the
+         * authenticated default. A null method applies to every method.
+         */
+        public Builder denyAll(HttpMethod method, String... patterns) {
+            for (String pattern : patterns) {
+                add(method, pattern, Rule.DENY_ALL);
+            }
+            return this;
+        }
+
+        public Builder hasAnyRole(HttpMethod method, String pattern, Roles... roles) {
+            return add(method, pattern, new Rule(authorities(roles), Scope.NONE, -1));
+        }
+
+        /**
+         * Requires one of the roles and access to the store named by the
+         * {@code {storeId}} segment of the pattern.
+         */
+        public Builder storeMember(HttpMethod method, String pattern, Roles... roles) {
+            return add(method, pattern, new Rule(authorities(roles), Scope.STORE_MEMBER, storeSegment(pattern)));
+        }
+
+        /**
+         * Requires the admin role and to be the admin of the store named by
+         * the {@code {storeId}} segment of the pattern.
+         */
+        public Builder storeAdmin(HttpMethod method, String pattern) {
+            return add(method, pattern,
+                    new Rule(authorities(Roles.ADMIN), Scope.STORE_ADMIN, storeSegment(pattern)));
+        }
+
+        public RouteAuthorizationManager build(StoreSecurityService storeSecurityService) {
+            return new RouteAuthorizationManager(roots, storeSecurityService);
+        }
+
+        private Builder add(HttpMethod method, String pattern, Rule rule) {
+            if (method == null) {
+                for (HttpMethod each : METHODS) {
+                    add(each, pattern, rule);
+                }
+                return this;
+            }
+
+            Node node = roots.computeIfAbsent(method.name(), name -> new Node());
+            List<String> segments = segments(pattern);
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if (segment.equals(REST)) {
+                    if (i != segments.size() - 1) {
+                        throw new IllegalArgumentException("** must be the last segment of " + pattern);
+                    }
+                    node.rest = firstRule(node.rest, rule, pattern);
+                    return this;
+                }
+                node = segment.equals(ANY) || segment.equals(STORE_ID)
+                        ? (node.any == null ? node.any = new Node() : node.any)
+                        : node.literals.computeIfAbsent(segment, literal -> new Node());
+            }
+            node.rule = firstRule(node.rule, rule, pattern);
+            return this;
+        }
+
+        private static Rule firstRule(Rule existing, Rule rule, String pattern) {
+            if (existing != null) {
+                throw new IllegalStateException("More than one rule for " + pattern);
+            }
+            return rule;
+        }
+
+        private static int storeSegment(String pattern) {
+            int segment = segments(pattern).indexOf(STORE_ID);
+            if (segment < 0) {
+                throw new IllegalArgumentException(pattern + " has no " + STORE_ID + " segment");
+            }
+            return segment;
+        }
+
+        private static List<String> segments(String pattern) {
+            List<String> segments = new ArrayList<>();
+            for (String segment : pattern.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            return segments;
+        }
+
+        private static String[] authorities(Roles... roles) {
+            return Arrays.stream(roles).map(role -> "ROLE_" + role.name()).toArray(String[]::new);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.karoldm.bookstore.security;
 
 
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.services.StoreSecurityService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -10,12 +12,9 @@ import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -25,16 +24,19 @@ import java.util.Arrays;
 @Configuration
 @EnableConfigurationProperties
 @RequiredArgsConstructor
-@EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
     private final SecurityFilter securityFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final CorsConfigurationSource corsConfigurationSource;
     private final Environment env;
 
-    private static final String STORE_PATH = "/v1/store/*";
+    private static final String STORE_PATH = "/v1/store/{storeId}";
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity httpSecurity,
+            RouteAuthorizationManager routeAuthorizationManager
+    ) throws Exception {
         httpSecurity
                 .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 // CSRF disabled because we're stateless JWT API
@@ -42,35 +44,12 @@ public class SecurityConfig {
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers(HttpMethod.POST, "/v1/auth/*").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/appstatus").permitAll()
-                        .requestMatchers(
-                                "/error",
-                                "/swagger-ui.html",
-                                "/swagger-ui/**",
-                                "/v3/api-docs",
-                                "/v3/api-docs/**",
-                                "/webjars/**",
-                                "/swagger-resources",
-                                "/swagger-resources/**"
-                        ).permitAll()
-                        .requestMatchers(HttpMethod.PUT, STORE_PATH).hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.DELETE, STORE_PATH).hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.GET, STORE_PATH).hasAnyRole(Roles.ADMIN.name(), Roles.EMPLOYEE.name())
-                        .requestMatchers(HttpMethod.PUT, STORE_PATH + "/book/*/available").hasAnyRole(Roles.EMPLOYEE.name(), Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.PUT, STORE_PATH + "/book/*").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.POST, STORE_PATH + "/book").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.DELETE, STORE_PATH + "/book/*").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.GET, STORE_PATH + "/book").hasAnyRole(Roles.ADMIN.name(), Roles.EMPLOYEE.name())
-                        .requestMatchers(HttpMethod.GET, STORE_PATH + "/employee").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.POST, STORE_PATH + "/employee").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.PUT, STORE_PATH + "/employee/*").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.DELETE, STORE_PATH + "/employee/*").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.PUT, "/v1/admin").hasRole(Roles.ADMIN.name())
-                        .requestMatchers(HttpMethod.DELETE, "/v1/admin").hasRole(Roles.ADMIN.name())
-                        .anyRequest().authenticated()// Authenticated for all other endpoints
+                        // the request was already authorized when it was first dispatched
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .anyRequest().access(routeAuthorizationManager)
                 )
-                .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(rateLimitFilter, SecurityFilter.class);
 
         // only https in prod
         if (Arrays.asList(env.getActiveProfiles()).contains("prod")) {
@@ -85,12 +64,45 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration) throws Exception {
-        return authenticationConfiguration.getAuthenticationManager();
+    public RouteAuthorizationManager routeAuthorizationManager(StoreSecurityService storeSecurityService) {
+        return RouteAuthorizationManager.builder()
+                .permitAll(HttpMethod.POST, "/v1/auth/*")
+                .permitAll(HttpMethod.GET, "/appstatus")
+                .permitAll(null,
+                        "/error",
+                        "/swagger-ui.html",
+                        "/swagger-ui/**",
+                        "/v3/api-docs",
+                        "/v3/api-docs/**",
+                        "/webjars/**",
+                        "/swagger-resources",
+                        "/swagger-resources/**"
+                )
+                .storeAdmin(HttpMethod.PUT, STORE_PATH)
+                .hasAnyRole(HttpMethod.DELETE, STORE_PATH, Roles.ADMIN)
+                .storeMember(HttpMethod.GET, STORE_PATH, Roles.ADMIN, Roles.EMPLOYEE)
+                .storeMember(HttpMethod.PUT, STORE_PATH + "/book/*/available", Roles.EMPLOYEE, Roles.ADMIN)
+                .storeMember(HttpMethod.PUT, STORE_PATH + "/book/available", Roles.EMPLOYEE, Roles.ADMIN)
+                .storeAdmin(HttpMethod.PUT, STORE_PATH + "/book/*")
+                .storeAdmin(HttpMethod.POST, STORE_PATH + "/book")
+                .storeAdmin(HttpMethod.POST, STORE_PATH + "/book/import")
+                .storeAdmin(HttpMethod.DELETE, STORE_PATH + "/book/*")
+                .storeMember(HttpMethod.GET, STORE_PATH + "/book", Roles.ADMIN, Roles.EMPLOYEE)
+                .storeMember(HttpMethod.GET, STORE_PATH + "/book/*", Roles.ADMIN, Roles.EMPLOYEE)
+                .storeAdmin(HttpMethod.GET, STORE_PATH + "/book/export")
+                .storeAdmin(HttpMethod.GET, STORE_PATH + "/employee")
+                .storeAdmin(HttpMethod.POST, STORE_PATH + "/employee")
+                .storeAdmin(HttpMethod.PUT, STORE_PATH + "/employee/*")
+                .storeAdmin(HttpMethod.DELETE, STORE_PATH + "/employee/*")
+                // every store route has a rule above, anything else under it is refused
+                .denyAll(null, "/v1/store/**")
+                .hasAnyRole(HttpMethod.PUT, "/v1/admin", Roles.ADMIN)
+                .hasAnyRole(HttpMethod.DELETE, "/v1/admin", Roles.ADMIN)
+                .build(storeSecurityService);
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration) throws Exception {
+        return authenticationConfiguration.getAuthenticationManager();
     }
 }
@@ -1,8 +1,7 @@
 package com.karoldm.bookstore.security;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
-import com.karoldm.bookstore.entities.AppUser;
-import com.karoldm.bookstore.repositories.AppUserRepository;
+import com.karoldm.bookstore.exceptions.TokenRevokedException;
 import com.karoldm.bookstore.services.TokenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -22,8 +21,9 @@ import java.util.Optional;
 @Component
 @AllArgsConstructor
 public class SecurityFilter extends OncePerRequestFilter {
-    private AppUserRepository repository;
+    private PrincipalCache principalCache;
     private TokenService tokenService;
+    private TokenVersions tokenVersions;
 
     @Override
     public void doFilterInternal(
@@ -34,16 +34,23 @@ public class SecurityFilter extends OncePerRequestFilter {
         try {
             Optional<String> token = recoverToken(request);
 
-            if (token.isPresent()) {
-                String username = tokenService.validateToken(token.get());
-                Optional<AppUser> user = repository.findByUsername(username);
+            Optional<UserPrincipal> principal = token.flatMap(tokenService::principalOf);
 
-                if (user.isPresent()) {
-                    var authentication = new UsernamePasswordAuthenticationToken(
-                            user.get(), null, user.get().getAuthorities()
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (principal.isPresent()) {
+                // self-contained token: only the version stamp is looked up, from memory
+                if (!tokenVersions.isCurrent(principal.get())) {
+                    throw new TokenRevokedException();
                 }
+            } else if (token.isPresent()) {
+                String username = tokenService.validateToken(token.get());
+                principal = principalCache.find(username);
+            }
+
+            if (principal.isPresent()) {
+                var authentication = new UsernamePasswordAuthenticationToken(
+                        principal.get(), null, principal.get().getAuthorities()
+                );
+                SecurityContextHolder.getContext().setAuthentication(authentication);
             }
 
             filterChain.doFilter(request, response);
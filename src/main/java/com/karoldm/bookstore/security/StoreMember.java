@@ -0,0 +1,15 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.enums.Roles;
+
+/**
+ * What the authorization rules need to know about an authenticated user,
+ * whether it was loaded from the database or read from the token claims.
+ */
+public interface StoreMember {
+    Long getId();
+
+    Roles getRole();
+
+    Long getStoreId();
+}
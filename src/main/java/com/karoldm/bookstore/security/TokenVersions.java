@@ -0,0 +1,50 @@
+package com.karoldm.bookstore.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.repositories.AppUserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Current token version of each user, read from the database once and then
+ * served from memory. Bumping a user's version, or deleting the user,
+ * revokes every token issued before; this instance sees it as soon as the
+ * change commits, other instances once their entry expires.
+ */
+@Component
+public class TokenVersions {
+    // an empty value marks a user that no longer exists
+    private final LoadingCache<Long, Optional<Integer>> versions;
+
+    public TokenVersions(
+            AppUserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${api.security.token.versions.maximum-size:10000}") long maximumSize,
+            @Value("${api.security.token.versions.expire-after-write:1m}") Duration expireAfterWrite
+    ) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build(userRepository::findTokenVersionById);
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "token-versions");
+    }
+
+    public boolean isCurrent(UserPrincipal principal) {
+        Optional<Integer> current = versions.get(principal.getId());
+        return current.isPresent() && current.get() == principal.getTokenVersion();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokensRevoked(TokensRevokedEvent event) {
+        versions.invalidateAll(event.getUsers().stream().map(AppUser::getId).toList());
+    }
+}
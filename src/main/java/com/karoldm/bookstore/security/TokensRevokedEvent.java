@@ -0,0 +1,18 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.AppUser;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Published when users had their token version bumped or were deleted, so
+ * the cached versions and principals are dropped once the transaction
+ * commits.
+ */
+@Getter
+@AllArgsConstructor
+public class TokensRevokedEvent {
+    private Collection<AppUser> users;
+}
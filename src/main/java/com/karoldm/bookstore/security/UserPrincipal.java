@@ -0,0 +1,33 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.enums.Roles;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the fields authorization needs, built from the claims
+ * of a verified token or from the user row, so authenticated requests do not
+ * carry the user entity and its store around.
+ */
+@Value
+public class UserPrincipal implements StoreMember {
+    Long id;
+    String username;
+    Roles role;
+    Long storeId;
+    int tokenVersion;
+
+    public static UserPrincipal of(AppUser user) {
+        return new UserPrincipal(
+                user.getId(), user.getUsername(), user.getRole(), user.getStoreId(), user.getTokenVersion());
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.karoldm.bookstore.services;
 
+import com.karoldm.bookstore.catalog.StoreChangedEvent;
 import com.karoldm.bookstore.dto.requests.UpdateUserDTO;
 import com.karoldm.bookstore.dto.responses.ResponseUserDTO;
 import com.karoldm.bookstore.entities.AppUser;
@@ -8,13 +9,20 @@ import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.exceptions.InvalidNameException;
 import com.karoldm.bookstore.exceptions.InvalidPasswordException;
 import com.karoldm.bookstore.exceptions.InvalidRoleException;
+import com.karoldm.bookstore.exceptions.UserNotFoundException;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
+import com.karoldm.bookstore.security.StoreMember;
+import com.karoldm.bookstore.security.TokensRevokedEvent;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 @Service
@@ -23,21 +31,30 @@ public class AdminService {
     private AppUserRepository userRepository;
     private StoreRepository storeRepository;
     private FileStorageService fileStorageService;
+    private ApplicationEventPublisher eventPublisher;
+    private PasswordEncoder passwordEncoder;
+    private TransactionTemplate transactionTemplate;
 
     @Transactional
-    public ResponseUserDTO updateAccount(AppUser user, UpdateUserDTO updateUserDTO) {
+    public ResponseUserDTO updateAccount(StoreMember member, UpdateUserDTO updateUserDTO) {
 
-        if (user.getRole() != Roles.ADMIN) {
-            throw new InvalidRoleException(user.getRole());
+        if (member.getRole() != Roles.ADMIN) {
+            throw new InvalidRoleException(member.getRole());
         }
 
+        AppUser user = loadUser(member);
+        boolean passwordChanged = false;
+
         if (updateUserDTO.getPassword() != null) {
             if (updateUserDTO.getPassword().length() < 8) {
                 throw new InvalidPasswordException();
             }
-            String encryptedPassword = new BCryptPasswordEncoder()
+            String encryptedPassword = passwordEncoder
                     .encode(updateUserDTO.getPassword());
             user.setPassword(encryptedPassword);
+            // a new password ends the sessions opened with the old one
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            passwordChanged = true;
         }
 
         if (updateUserDTO.getName() != null) {
@@ -48,6 +65,9 @@ public class AdminService {
         }
 
         userRepository.save(user);
+        if (passwordChanged) {
+            eventPublisher.publishEvent(new TokensRevokedEvent(List.of(user)));
+        }
 
         return ResponseUserDTO.builder()
                 .name(user.getName())
@@ -56,23 +76,46 @@ public class AdminService {
                 .build();
     }
 
-    @Transactional
-    public void deleteAccount(AppUser user) {
-        if (user.getRole() != Roles.ADMIN) {
-            throw new InvalidRoleException(user.getRole());
+    /**
+     * The store banner is removed from the bucket only once the store is
+     * deleted, outside the transaction, like the covers in
+     * {@link BookService#deleteBook}.
+     */
+    public void deleteAccount(StoreMember member) {
+        if (member.getRole() != Roles.ADMIN) {
+            throw new InvalidRoleException(member.getRole());
         }
 
-        // if user is adm, delete your store and the store employees
-        Store store = user.getStore();
+        String banner = transactionTemplate.execute(status -> {
+            AppUser user = loadUser(member);
+
+            // if user is adm, delete your store and the store employees
+            Store store = user.getStore();
 
-        Set<AppUser> employees = userRepository.findByStoreAndRole(store, Roles.EMPLOYEE);
-        userRepository.deleteAll(employees);
+            Set<AppUser> employees = userRepository.findByStoreAndRole(store, Roles.EMPLOYEE);
+            userRepository.deleteAll(employees);
 
-        fileStorageService.removeFileByUrl(store.getBanner());
+            storeRepository.delete(store);
+            eventPublisher.publishEvent(new StoreChangedEvent(store.getId()));
 
-        storeRepository.delete(store);
+            userRepository.delete(user);
 
-        userRepository.delete(user);
+            List<AppUser> revoked = new ArrayList<>(employees);
+            revoked.add(user);
+            eventPublisher.publishEvent(new TokensRevokedEvent(revoked));
+            return store.getBanner();
+        });
+
+        fileStorageService.removeOrphanedFile(banner);
+    }
+
+    // a principal read from the token claims carries no entity to update
+    private AppUser loadUser(StoreMember member) {
+        if (member instanceof AppUser appUser) {
+            return appUser;
+        }
+        return userRepository.findById(member.getId())
+                .orElseThrow(() -> new UserNotFoundException(member.getId()));
     }
 
 }
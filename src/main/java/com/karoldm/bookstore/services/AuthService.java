@@ -12,23 +12,26 @@ import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.exceptions.InvalidRoleException;
 import com.karoldm.bookstore.exceptions.StoreAlreadyExist;
+import com.karoldm.bookstore.exceptions.TokenRevokedException;
 import com.karoldm.bookstore.exceptions.UserNotFoundException;
 import com.karoldm.bookstore.exceptions.UsernameAlreadyExist;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
-import jakarta.transaction.Transactional;
+import com.karoldm.bookstore.security.BoundedPasswordEncoder;
+import com.karoldm.bookstore.security.RevokedTokens;
+import com.karoldm.bookstore.security.UserPrincipal;
 import lombok.AllArgsConstructor;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @AllArgsConstructor
@@ -36,74 +39,115 @@ public class AuthService implements UserDetailsService {
     private AppUserRepository userRepository;
     private StoreRepository storeRepository;
     private TokenService tokenService;
-    private final AuthenticationConfiguration authenticationConfiguration;
     private FileStorageService fileStorageService;
+    private BoundedPasswordEncoder passwordEncoder;
+    private RevokedTokens revokedTokens;
+    private TransactionTemplate transactionTemplate;
 
     public ResponseRefreshTokenDTO refreshToken(RefreshTokenDTO refreshTokenDTO){
-        String username = tokenService.validateToken(refreshTokenDTO.getRefreshToken());
+        String username = tokenService.validateRefreshToken(refreshTokenDTO.getRefreshToken());
 
-                String newAccessToken = tokenService.generateToken(username);
-        String newRefreshToken = tokenService.generateRefreshToken(username);
-
-        return ResponseRefreshTokenDTO.builder()
-                .token(newAccessToken)
-                .refreshToken(newRefreshToken)
-                .build();
-    }
-
-    @Transactional
-    public ResponseAuthDTO register(@NotNull RegisterStoreDTO registerDTO) throws Exception {
-        Optional<AppUser> existingUser = userRepository.findByUsername(registerDTO.getUsername());
-
-        if (existingUser.isPresent()) {
-            throw new UsernameAlreadyExist(registerDTO.getUsername());
+        Optional<String> tokenId = tokenService.idOf(refreshTokenDTO.getRefreshToken());
+        if (tokenId.isPresent() && revokedTokens.isRevoked(tokenId.get())) {
+            throw new TokenRevokedException();
         }
 
-        Optional<Store> existingStore = storeRepository.findByName(registerDTO.getName());
+        AppUser user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException(username));
 
-        if (existingStore.isPresent()) {
-            throw new StoreAlreadyExist(registerDTO.getName());
+        Optional<UserPrincipal> principal = tokenService.refreshPrincipalOf(refreshTokenDTO.getRefreshToken());
+        if (principal.isPresent() && principal.get().getTokenVersion() != user.getTokenVersion()) {
+            throw new TokenRevokedException();
         }
 
-        String encryptedPassword = new BCryptPasswordEncoder()
-                .encode(registerDTO.getPassword());
+        String newAccessToken = tokenService.generateToken(user);
+        String newRefreshToken = tokenService.generateRefreshToken(user);
 
-        Store newStore = Store.builder()
-                .name(registerDTO.getName())
-                .slogan(registerDTO.getSlogan())
-                .build();
-
-        if(registerDTO.getBanner() != null) {
-            String url = fileStorageService.uploadFile(registerDTO.getBanner());
-            newStore.setBanner(url);
-        }
-
-        Store savedStore = storeRepository.save(newStore);
-
-        newStore.setId(savedStore.getId());
-
-        AppUser newAdmin = AppUser.builder()
-                .username(registerDTO.getUsername())
-                .password(encryptedPassword)
-                .name(registerDTO.getAdminName())
-                .role(Roles.ADMIN)
-                .store(newStore)
+        return ResponseRefreshTokenDTO.builder()
+                .token(newAccessToken)
+                .refreshToken(newRefreshToken)
                 .build();
+    }
 
-        AppUser savedAdmin = userRepository.save(newAdmin);
-
-        newAdmin.setId(savedAdmin.getId());
-
-        UsernamePasswordAuthenticationToken usernamePassword = new UsernamePasswordAuthenticationToken(
-                registerDTO.getUsername(), registerDTO.getPassword());
-
-        var auth = authenticationConfiguration.getAuthenticationManager()
-                .authenticate(usernamePassword);
+    /**
+     * Revokes the refresh token until it expires; access tokens are refused.
+     * Tokens issued without an id cannot be revoked and simply run until
+     * their expiration.
+     */
+    public void logout(RefreshTokenDTO refreshTokenDTO) {
+        String refreshToken = refreshTokenDTO.getRefreshToken();
+        tokenService.validateRefreshToken(refreshToken);
+        Optional<String> tokenId = tokenService.idOf(refreshToken);
+        tokenId.ifPresent(id -> revokedTokens.revoke(id, tokenService.expirationOf(refreshToken)));
+    }
 
-        UserDetails userDetails = (UserDetails) auth.getPrincipal();
+    /**
+     * The password hash and the banner upload start first and run side by
+     * side, while the username and store name are checked, so a sign-up waits
+     * for the slowest of them instead of their sum. All of it is done before
+     * the transaction that inserts the store and its admin opens. If the
+     * registration fails, a taken name included, a hash still queued is
+     * cancelled and the upload is waited for, since it reads the multipart
+     * the container discards with the request, and then deleted.
+     */
+    public ResponseAuthDTO register(@NotNull RegisterStoreDTO registerDTO) throws Exception {
+        CompletableFuture<String> encryptedPassword = passwordEncoder.encodeAsync(registerDTO.getPassword());
+        CompletableFuture<String> bannerUrl = CompletableFuture.completedFuture(null);
+
+        Store newStore;
+        AppUser newAdmin;
+        try {
+            if (registerDTO.getBanner() != null) {
+                bannerUrl = fileStorageService.uploadFileAsync(registerDTO.getBanner());
+            }
+
+            Optional<AppUser> existingUser = userRepository.findByUsername(registerDTO.getUsername());
+
+            if (existingUser.isPresent()) {
+                throw new UsernameAlreadyExist(registerDTO.getUsername());
+            }
+
+            Optional<Store> existingStore = storeRepository.findByName(registerDTO.getName());
+
+            if (existingStore.isPresent()) {
+                throw new StoreAlreadyExist(registerDTO.getName());
+            }
+
+            Store store = Store.builder()
+                    .name(registerDTO.getName())
+                    .slogan(registerDTO.getSlogan())
+                    .banner(await(bannerUrl))
+                    .build();
+
+            AppUser admin = AppUser.builder()
+                    .username(registerDTO.getUsername())
+                    .password(await(encryptedPassword))
+                    .name(registerDTO.getAdminName())
+                    .role(Roles.ADMIN)
+                    .store(store)
+                    .build();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Store savedStore = storeRepository.save(store);
+                store.setId(savedStore.getId());
+
+                AppUser savedAdmin = userRepository.save(admin);
+                admin.setId(savedAdmin.getId());
+            });
+
+            newStore = store;
+            newAdmin = admin;
+        } catch (RuntimeException ex) {
+            encryptedPassword.cancel(false);
+            String uploadedBanner = bannerUrl.handle((url, failure) -> url).join();
+            if (uploadedBanner != null) {
+                fileStorageService.removeOrphanedFile(uploadedBanner);
+            }
+            throw ex;
+        }
 
-        String token = tokenService.generateToken(userDetails.getUsername());
-        String refreshToken = tokenService.generateRefreshToken(userDetails.getUsername());
+        String token = tokenService.generateToken(newAdmin);
+        String refreshToken = tokenService.generateRefreshToken(newAdmin);
 
         ResponseUserDTO responseUserDTO = ResponseUserDTO.builder()
                 .id(newAdmin.getId())
@@ -127,26 +171,19 @@ public class AuthService implements UserDetailsService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * The user and its store come from a single query, and the password is
+     * checked against that same entity instead of going through the
+     * authentication manager, which would load the user again.
+     */
     public ResponseAuthDTO login(LoginRequestDTO loginRequestDTO) throws Exception {
-        Optional<AppUser> existingUser = userRepository.findByUsername(loginRequestDTO.getUsername());
+        AppUser appUser = userRepository.findWithStoreByUsername(loginRequestDTO.getUsername())
+                .orElseThrow(() -> new UserNotFoundException(loginRequestDTO.getUsername()));
 
-        if (existingUser.isEmpty()) {
-            throw new UserNotFoundException(loginRequestDTO.getUsername());
+        if (!passwordEncoder.matches(loginRequestDTO.getPassword(), appUser.getPassword())) {
+            throw new BadCredentialsException("Senha incorreta.");
         }
 
-        UsernamePasswordAuthenticationToken usernamePassword = new UsernamePasswordAuthenticationToken(
-                loginRequestDTO.getUsername(), loginRequestDTO.getPassword());
-
-        Authentication auth = authenticationConfiguration.getAuthenticationManager()
-                .authenticate(usernamePassword);
-        UserDetails userDetails = (UserDetails) auth.getPrincipal();
-
-        String token = tokenService.generateToken(userDetails.getUsername());
-        String refreshToken = tokenService.generateRefreshToken(userDetails.getUsername());
-
-        AppUser appUser = existingUser.get();
-
         ResponseUserDTO responseUserDTO = ResponseUserDTO.builder()
                 .username(appUser.getUsername())
                 .name(appUser.getName())
@@ -162,6 +199,9 @@ public class AuthService implements UserDetailsService {
             throw new InvalidRoleException(appUser.getRole());
         }
 
+        String token = tokenService.generateToken(appUser);
+        String refreshToken = tokenService.generateRefreshToken(appUser);
+
         ResponseStoreDTO responseStoreDTO = ResponseStoreDTO.builder()
                 .id(store.getId())
                 .slogan(store.getSlogan())
@@ -177,6 +217,17 @@ public class AuthService implements UserDetailsService {
                 .build();
     }
 
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         Optional<AppUser> appUser = userRepository.findByUsername(username);
@@ -0,0 +1,152 @@
+package com.karoldm.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.io.CatalogFormat;
+import com.karoldm.bookstore.io.CsvWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a whole store catalog from a forward-only JDBC cursor. Rows are
+ * written as they are fetched, {@code fetchSize} at a time, so memory use does
+ * not depend on the catalog size. The PostgreSQL driver only uses a cursor
+ * inside a transaction, hence the read-only one around the query.
+ */
+@Service
+public class BookExportService {
+    static final String[] CSV_HEADER = {
+            "id", "title", "author", "summary", "releasedAt", "rating", "available", "cover", "createdAt"
+    };
+
+    private static final String EXPORT_QUERY = "SELECT id, title, author, summary, released_at, rating, " +
+            "available, cover, created_at FROM book WHERE store_id = ? ORDER BY created_at, id";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter jsonWriter;
+
+    public BookExportService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${api.export.fetch-size:1000}") int fetchSize
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.jsonWriter = objectMapper.writerFor(ResponseBookDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void export(Long storeId, CatalogFormat format, boolean gzip, OutputStream outputStream) throws IOException {
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzip ? gzipStream : outputStream, StandardCharsets.UTF_8),
+                BUFFER_SIZE
+        );
+
+        RowWriter rowWriter = format == CatalogFormat.CSV ? csvRows(writer) : ndjsonRows(writer);
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.query(EXPORT_QUERY, resultSet -> {
+                        try {
+                            rowWriter.write(toResponse(resultSet));
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    }, storeId));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        rowWriter.finish();
+        writer.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+    }
+
+    private interface RowWriter {
+        void write(ResponseBookDTO book) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static RowWriter csvRows(Writer writer) throws IOException {
+        CsvWriter csvWriter = new CsvWriter(writer);
+        csvWriter.writeRow(CSV_HEADER);
+
+        return new RowWriter() {
+            @Override
+            public void write(ResponseBookDTO book) throws IOException {
+                csvWriter.writeRow(
+                        String.valueOf(book.getId()),
+                        book.getTitle(),
+                        book.getAuthor(),
+                        book.getSummary(),
+                        book.getReleasedAt() == null ? null : book.getReleasedAt().toString(),
+                        String.valueOf(book.getRating()),
+                        String.valueOf(book.isAvailable()),
+                        book.getCover(),
+                        book.getCreatedAt() == null ? null : book.getCreatedAt().toString()
+                );
+            }
+
+            @Override
+            public void finish() throws IOException {
+                csvWriter.flush();
+            }
+        };
+    }
+
+    private RowWriter ndjsonRows(Writer writer) throws IOException {
+        JsonGenerator generator = jsonWriter.createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        return new RowWriter() {
+            @Override
+            public void write(ResponseBookDTO book) throws IOException {
+                jsonWriter.writeValue(generator, book);
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void finish() throws IOException {
+                generator.close();
+            }
+        };
+    }
+
+    private static ResponseBookDTO toResponse(ResultSet resultSet) throws SQLException {
+        return ResponseBookDTO.builder()
+                .id(resultSet.getLong("id"))
+                .title(resultSet.getString("title"))
+                .author(resultSet.getString("author"))
+                .summary(resultSet.getString("summary"))
+                .releasedAt(resultSet.getObject("released_at", LocalDate.class))
+                .rating(resultSet.getInt("rating"))
+                .available(resultSet.getBoolean("available"))
+                .cover(resultSet.getString("cover"))
+                .createdAt(resultSet.getObject("created_at", LocalDate.class))
+                .build();
+    }
+}
@@ -0,0 +1,302 @@
+package com.karoldm.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karoldm.bookstore.catalog.BooksImportedEvent;
+import com.karoldm.bookstore.dto.requests.RequestBookDTO;
+import com.karoldm.bookstore.dto.responses.ImportErrorDTO;
+import com.karoldm.bookstore.dto.responses.ResponseImportDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.exceptions.StoreNotFoundException;
+import com.karoldm.bookstore.io.CatalogFormat;
+import com.karoldm.bookstore.io.CsvReader;
+import com.karoldm.bookstore.repositories.StoreRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Imports a store catalog from a CSV or NDJSON stream. Rows are parsed and
+ * validated one at a time and persisted in chunks, each in its own short
+ * transaction. Inside a chunk Hibernate groups the inserts into JDBC batches
+ * of {@code hibernate.jdbc.batch_size}, and the pooled sequence optimizer
+ * fetches ids 50 at a time. Each committed chunk publishes a single
+ * {@link BooksImportedEvent}. Invalid rows are reported by line and skipped;
+ * they never abort the import.
+ */
+@Service
+public class BookImportService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final DateTimeFormatter BR_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final StoreRepository storeRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int batchSize;
+
+    public BookImportService(
+            StoreRepository storeRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            Validator validator,
+            ObjectMapper objectMapper,
+            @Value("${api.import.chunk-size:1000}") int chunkSize,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize
+    ) {
+        this.storeRepository = storeRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    public ResponseImportDTO importBooks(Long storeId, CatalogFormat format, Reader reader) throws IOException {
+        if (!storeRepository.existsById(storeId)) {
+            throw new StoreNotFoundException(storeId);
+        }
+
+        BufferedReader bufferedReader = new BufferedReader(reader, 64 * 1024);
+        RowSource rows = format == CatalogFormat.CSV ? csvRows(bufferedReader) : ndjsonRows(bufferedReader);
+
+        Progress progress = new Progress();
+        List<Book> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        for (Row row = rows.next(); row != null; row = rows.next()) {
+            if (row.error() != null) {
+                progress.reject(row.line(), row.error());
+                continue;
+            }
+            try {
+                chunk.add(toBook(row.values()));
+                chunkLines.add(row.line());
+            } catch (IllegalArgumentException ex) {
+                progress.reject(row.line(), ex.getMessage());
+            }
+
+            if (chunk.size() == chunkSize) {
+                save(storeId, chunk, chunkLines, progress);
+                chunk.clear();
+                chunkLines.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            save(storeId, chunk, chunkLines, progress);
+        }
+
+        return ResponseImportDTO.builder()
+                .imported(progress.imported)
+                .rejected(progress.rejected)
+                .errors(progress.errors)
+                .build();
+    }
+
+    /**
+     * A chunk that fails to commit is split in halves and each half saved
+     * again, down to single rows, so only the rows that cannot be saved are
+     * rejected.
+     */
+    private void save(Long storeId, List<Book> books, List<Long> lines, Progress progress) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Store store = entityManager.getReference(Store.class, storeId);
+                for (int i = 0; i < books.size(); i++) {
+                    Book book = books.get(i);
+                    book.setStore(store);
+                    entityManager.persist(book);
+
+                    if ((i + 1) % batchSize == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+                eventPublisher.publishEvent(new BooksImportedEvent(storeId, List.copyOf(books)));
+            });
+            progress.imported += books.size();
+        } catch (DataAccessException | PersistenceException | TransactionException ex) {
+            if (books.size() == 1) {
+                progress.reject(lines.get(0), "Não foi possível salvar o livro.");
+                return;
+            }
+            // ids handed out by the rolled back persist would make the retry look like an update
+            books.forEach(book -> book.setId(null));
+            int half = books.size() / 2;
+            save(storeId, books.subList(0, half), lines.subList(0, half), progress);
+            save(storeId, books.subList(half, books.size()), lines.subList(half, lines.size()), progress);
+        }
+    }
+
+    private Book toBook(Map<String, String> values) {
+        RequestBookDTO requestBookDTO = RequestBookDTO.builder()
+                .title(text(values, "title"))
+                .summary(text(values, "summary"))
+                .author(text(values, "author"))
+                .releasedAt(date(values, "releasedAt"))
+                .rating(rating(values))
+                .available(available(values))
+                .build();
+
+        Set<ConstraintViolation<RequestBookDTO>> violations = validator.validate(requestBookDTO);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<RequestBookDTO> violation = violations.iterator().next();
+            throw new IllegalArgumentException(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+
+        return Book.builder()
+                .title(requestBookDTO.getTitle())
+                .summary(requestBookDTO.getSummary())
+                .author(requestBookDTO.getAuthor())
+                .releasedAt(requestBookDTO.getReleasedAt())
+                .rating(requestBookDTO.getRating())
+                .available(requestBookDTO.isAvailable())
+                .createdAt(LocalDate.now())
+                .build();
+    }
+
+    private static String text(Map<String, String> values, String field) {
+        String value = values.get(field.toLowerCase(Locale.ROOT));
+        if (value != null && value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(field + ": excede " + MAX_TEXT_LENGTH + " caracteres");
+        }
+        return value;
+    }
+
+    private static LocalDate date(Map<String, String> values, String field) {
+        String value = values.get(field.toLowerCase(Locale.ROOT));
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            return value.contains("/") ? LocalDate.parse(value.trim(), BR_DATE) : LocalDate.parse(value.trim());
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(field + ": data " + value + " inválida");
+        }
+    }
+
+    private static int rating(Map<String, String> values) {
+        String value = values.get("rating");
+        if (!StringUtils.hasText(value)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("rating: número " + value + " inválido");
+        }
+    }
+
+    private static boolean available(Map<String, String> values) {
+        String value = values.get("available");
+        if (!StringUtils.hasText(value)) {
+            return false;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "1" -> true;
+            case "false", "0" -> false;
+            default -> throw new IllegalArgumentException("available: valor " + value + " inválido");
+        };
+    }
+
+    private record Row(long line, Map<String, String> values, String error) {
+    }
+
+    private interface RowSource {
+        Row next() throws IOException;
+    }
+
+    /**
+     * Columns are matched by header name, case-insensitively; unknown
+     * columns, such as the id and createdAt of an export, are ignored.
+     */
+    private static RowSource csvRows(BufferedReader reader) throws IOException {
+        CsvReader csvReader = new CsvReader(reader);
+        List<String> header = csvReader.readRow();
+        List<String> columns = header == null ? List.of() : header.stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+
+        return () -> {
+            List<String> fields;
+            do {
+                fields = csvReader.readRow();
+            } while (fields != null && fields.stream().noneMatch(StringUtils::hasText));
+
+            if (fields == null) {
+                return null;
+            }
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < Math.min(columns.size(), fields.size()); i++) {
+                values.put(columns.get(i), StringUtils.hasText(fields.get(i)) ? fields.get(i) : null);
+            }
+            return new Row(csvReader.getRecordLine(), values, null);
+        };
+    }
+
+    private RowSource ndjsonRows(BufferedReader reader) {
+        long[] lineNumber = {0};
+
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber[0]++;
+            } while (line != null && line.isBlank());
+
+            if (line == null) {
+                return null;
+            }
+            Map<String, String> values = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                node.fields().forEachRemaining(field -> values.put(
+                        field.getKey().toLowerCase(Locale.ROOT),
+                        field.getValue().isNull() ? null : field.getValue().asText()
+                ));
+            } catch (JsonProcessingException ex) {
+                return new Row(lineNumber[0], values, "JSON inválido");
+            }
+            return new Row(lineNumber[0], values, null);
+        };
+    }
+
+    private static class Progress {
+        private int imported;
+        private int rejected;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ImportErrorDTO.builder().line(line).message(message).build());
+            }
+        }
+    }
+}
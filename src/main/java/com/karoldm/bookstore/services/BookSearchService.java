@@ -0,0 +1,91 @@
+package com.karoldm.bookstore.services;
+
+import com.karoldm.bookstore.catalog.CompletionIndex;
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookSearchDTO;
+import com.karoldm.bookstore.dto.responses.ResponseCompletionsDTO;
+import com.karoldm.bookstore.repositories.BookRepository;
+import com.karoldm.bookstore.search.BookSearchEngine;
+import com.karoldm.bookstore.search.BookSearchHit;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+@AllArgsConstructor
+public class BookSearchService {
+    private BookSearchEngine bookSearchEngine;
+    private CompletionIndex completionIndex;
+    private BookRepository bookRepository;
+
+    private static final int MAX_COMPLETIONS = 20;
+
+    public List<ResponseBookSearchDTO> search(Long storeId, String query, int page, int size) {
+        if (!StringUtils.hasText(query)) {
+            return List.of();
+        }
+
+        return bookSearchEngine.search(storeId, query, page, size)
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * Typeahead for the search box: the best rated titles and authors that
+     * start with the prefix, from the in-memory {@link CompletionIndex} or,
+     * while the store is not indexed, from the database.
+     */
+    public ResponseCompletionsDTO complete(Long storeId, String prefix, int limit) {
+        if (!StringUtils.hasText(prefix)) {
+            return ResponseCompletionsDTO.builder().titles(List.of()).authors(List.of()).build();
+        }
+
+        int size = Math.max(1, Math.min(limit, MAX_COMPLETIONS));
+        return completionIndex.complete(storeId, prefix, size).orElseGet(() -> {
+            String pattern = prefix.trim().toLowerCase(Locale.ROOT) + "%";
+            return ResponseCompletionsDTO.builder()
+                    .titles(bookRepository.findTitleCompletions(storeId, pattern, PageRequest.of(0, size)))
+                    .authors(bookRepository.findAuthorCompletions(storeId, pattern, PageRequest.of(0, size)))
+                    .build();
+        });
+    }
+
+    private ResponseBookSearchDTO toResponse(BookSearchHit hit) {
+        Map<String, String> highlights = new LinkedHashMap<>();
+        putIfMarked(highlights, "title", hit.getTitleHighlight());
+        putIfMarked(highlights, "author", hit.getAuthorHighlight());
+        putIfMarked(highlights, "summary", hit.getSummaryHighlight());
+
+        ResponseBookDTO book = ResponseBookDTO.builder()
+                .id(hit.getId())
+                .author(hit.getAuthor())
+                .rating(hit.getRating())
+                .title(hit.getTitle())
+                .summary(hit.getSummary())
+                .available(hit.isAvailable())
+                .releasedAt(hit.getReleasedAt())
+                .cover(hit.getCover())
+                .createdAt(hit.getCreatedAt())
+                .build();
+
+        return ResponseBookSearchDTO.builder()
+                .book(book)
+                .score(hit.getScore())
+                .highlights(highlights)
+                .build();
+    }
+
+    private void putIfMarked(Map<String, String> highlights, String field, String value) {
+        // only fields that actually matched are worth returning as highlights
+        if (value != null && value.contains("<mark>")) {
+            highlights.put(field, value);
+        }
+    }
+}
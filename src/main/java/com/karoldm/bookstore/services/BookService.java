@@ -1,27 +1,42 @@
 package com.karoldm.bookstore.services;
 
+import com.karoldm.bookstore.cache.BookPageKey;
+import com.karoldm.bookstore.cache.StoreScopedCache;
+import com.karoldm.bookstore.catalog.AttributeIndex;
+import com.karoldm.bookstore.catalog.BookChangedEvent;
+import com.karoldm.bookstore.catalog.BooksAvailabilityChangedEvent;
+import com.karoldm.bookstore.catalog.TextIndex;
 import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
 import com.karoldm.bookstore.dto.requests.RequestBookDTO;
 import com.karoldm.bookstore.dto.requests.UpdateBookAvailableDTO;
+import com.karoldm.bookstore.dto.requests.UpdateBooksAvailableDTO;
 import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookFacetsDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookPageDTO;
+import com.karoldm.bookstore.dto.responses.ResponseUpdateAvailableDTO;
 import com.karoldm.bookstore.entities.Book;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.exceptions.BookNotFoundException;
+import com.karoldm.bookstore.exceptions.FuzzySearchUnavailableException;
+import com.karoldm.bookstore.exceptions.InvalidPageSizeException;
 import com.karoldm.bookstore.exceptions.StoreNotFoundException;
+import com.karoldm.bookstore.filters.BooksCursor;
 import com.karoldm.bookstore.filters.BooksFilters;
+import com.karoldm.bookstore.repositories.BookFacetRow;
 import com.karoldm.bookstore.repositories.BookRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +45,31 @@ public class BookService {
     private BookRepository bookRepository;
     private StoreRepository storeRepository;
     private FileStorageService fileStorageService;
+    private ApplicationEventPublisher eventPublisher;
+    private TextIndex textIndex;
+    private AttributeIndex attributeIndex;
+    private StoreScopedCache<BookPageKey, Set<ResponseBookDTO>> bookPageCache;
+    private StoreScopedCache<BooksFilterDTO, ResponseBookFacetsDTO> bookFacetCache;
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Above this many attribute index hits, combining them with text filters
+     * the database still has to evaluate costs more than letting it evaluate
+     * everything. Text index hits are never handed back to the database's
+     * LIKE, which matches differently and knows nothing of fuzzy matching.
+     */
+    private static final int MAX_INDEXED_IDS_PER_QUERY = 1000;
+
+    /**
+     * Largest page of the cursor listing; a client walking the whole catalog
+     * asks for more pages rather than one unbounded fetch.
+     */
+    public static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /**
+     * Keeps bulk statements well below the bind parameter limit of the driver.
+     */
+    private static final int MAX_IDS_PER_STATEMENT = 1000;
 
     @Transactional
     public ResponseBookDTO changeAvailable(Long bookId, UpdateBookAvailableDTO updateBookAvailableDTO) {
@@ -44,6 +84,7 @@ public class BookService {
         book.setAvailable(updateBookAvailableDTO.getAvailable());
 
         bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book.getStore().getId(), book));
 
         return ResponseBookDTO.builder()
                 .id(book.getId())
@@ -58,24 +99,80 @@ public class BookService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * The cover is removed from the bucket only once the delete is committed,
+     * so a failed delete never leaves a book pointing at a missing file.
+     */
     public void deleteBook(Long bookId) {
-        Optional<Book> optionalBook = bookRepository.findById(bookId);
+        String cover = transactionTemplate.execute(status -> {
+            Optional<Book> optionalBook = bookRepository.findById(bookId);
 
-        if (optionalBook.isEmpty()) {
-            throw new BookNotFoundException(bookId);
+            if (optionalBook.isEmpty()) {
+                throw new BookNotFoundException(bookId);
+            }
+
+            Book book = optionalBook.get();
+
+            bookRepository.delete(book);
+            eventPublisher.publishEvent(BookChangedEvent.deleted(book.getStore().getId(), book));
+            return book.getCover();
+        });
+
+        fileStorageService.removeOrphanedFile(cover);
+    }
+
+    /**
+     * Stock sweep over many books at once: one UPDATE per target state,
+     * restricted to the store, instead of loading and saving each book.
+     * When an id appears more than once the last state wins.
+     */
+    @Transactional
+    public ResponseUpdateAvailableDTO changeAvailable(Long storeId, UpdateBooksAvailableDTO updateBooksAvailableDTO) {
+        Map<Long, Boolean> states = new LinkedHashMap<>();
+        updateBooksAvailableDTO.getBooks().forEach(item -> states.put(item.getId(), item.getAvailable()));
+
+        Set<Long> found = new HashSet<>(states.size());
+        for (List<Long> chunk : chunks(new ArrayList<>(states.keySet()))) {
+            found.addAll(bookRepository.findIdsByStoreIdAndIdIn(storeId, chunk));
         }
 
-        Book book = optionalBook.get();
+        Map<Boolean, List<Long>> byState = found.stream()
+                .collect(Collectors.partitioningBy(states::get));
 
-        if(book.getCover() != null){
-            fileStorageService.removeFileByUrl(book.getCover());
+        int updated = 0;
+        for (Map.Entry<Boolean, List<Long>> entry : byState.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            for (List<Long> chunk : chunks(entry.getValue())) {
+                updated += bookRepository.updateAvailable(storeId, chunk, entry.getKey());
+            }
+            eventPublisher.publishEvent(
+                    new BooksAvailabilityChangedEvent(storeId, entry.getValue(), entry.getKey()));
         }
 
-        bookRepository.delete(book);
+        List<Long> notFound = states.keySet().stream()
+                .filter(id -> !found.contains(id))
+                .toList();
+
+        return ResponseUpdateAvailableDTO.builder()
+                .updated(updated)
+                .notFound(notFound)
+                .build();
     }
 
-    @Transactional
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT)));
+        }
+        return chunks;
+    }
+
+    /**
+     * The cover is uploaded before the transaction opens, so no connection is
+     * held during the upload; if the insert then fails the cover is removed.
+     */
     public ResponseBookDTO createBook(Long storeId, RequestBookDTO requestBookDTO) {
         Optional<Store> optionalStore = storeRepository.findById(storeId);
 
@@ -101,8 +198,16 @@ public class BookService {
             book.setCover(url);
         }
 
-        Book savedBook = bookRepository.save(book);
-        book.setId(savedBook.getId());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Book savedBook = bookRepository.save(book);
+                book.setId(savedBook.getId());
+                eventPublisher.publishEvent(BookChangedEvent.saved(storeId, book));
+            });
+        } catch (RuntimeException ex) {
+            fileStorageService.removeOrphanedFile(book.getCover());
+            throw ex;
+        }
 
         return ResponseBookDTO.builder()
                 .id(book.getId())
@@ -117,7 +222,11 @@ public class BookService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * Like {@link #createBook}, the new cover is uploaded outside the
+     * transaction and removed if the update fails. The cover it replaces is
+     * only removed once the update is committed.
+     */
     public ResponseBookDTO updateBook(Long bookId, RequestBookDTO requestBookDTO) {
         Optional<Book> optionalBook = bookRepository.findById(bookId);
 
@@ -134,15 +243,26 @@ public class BookService {
         book.setAvailable(requestBookDTO.isAvailable());
         book.setReleasedAt(requestBookDTO.getReleasedAt());
 
+        String previousCover = book.getCover();
+        String uploadedCover = null;
         if(requestBookDTO.getCover() != null) {
-            if(book.getCover() != null){
-                fileStorageService.removeFileByUrl(book.getCover());
-            }
-            String url = fileStorageService.uploadFile(requestBookDTO.getCover());
-            book.setCover(url);
+            uploadedCover = fileStorageService.uploadFile(requestBookDTO.getCover());
+            book.setCover(uploadedCover);
         }
 
-        bookRepository.save(book);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                bookRepository.save(book);
+                eventPublisher.publishEvent(BookChangedEvent.saved(book.getStore().getId(), book));
+            });
+        } catch (RuntimeException ex) {
+            fileStorageService.removeOrphanedFile(uploadedCover);
+            throw ex;
+        }
+
+        if(uploadedCover != null && previousCover != null) {
+            fileStorageService.removeOrphanedFile(previousCover);
+        }
 
         return ResponseBookDTO.builder()
                 .id(book.getId())
@@ -157,33 +277,258 @@ public class BookService {
                 .build();
     }
 
+    /**
+     * Pages are cached per store until the next write to that store's catalog.
+     */
     public Set<ResponseBookDTO> listAll(
             Long storeId,
             int page,
             int size,
             BooksFilterDTO booksFilterDTO
     ) {
+        return bookPageCache.get(
+                storeId,
+                new BookPageKey(booksFilterDTO, page, size),
+                () -> Collections.unmodifiableSet(findPage(storeId, page, size, booksFilterDTO))
+        );
+    }
+
+    /**
+     * Counts of the filtered books by rating, availability and release year,
+     * cached per store and filter like {@link #listAll}.
+     */
+    public ResponseBookFacetsDTO countFacets(Long storeId, BooksFilterDTO booksFilterDTO) {
+        return bookFacetCache.get(storeId, booksFilterDTO, () -> aggregateFacets(storeId, booksFilterDTO));
+    }
+
+    private ResponseBookFacetsDTO aggregateFacets(Long storeId, BooksFilterDTO booksFilterDTO) {
+        Optional<List<Long>> indexedIds = findIndexedIds(storeId, booksFilterDTO);
+        if (indexedIds.isEmpty()) {
+            return toFacets(bookRepository.countFacets(new BooksFilters(booksFilterDTO, storeId)));
+        }
+
+        // every book falls in exactly one chunk, so the grouped rows of all chunks add up
+        List<BookFacetRow> rows = new ArrayList<>();
+        for (List<Long> chunk : chunks(indexedIds.get())) {
+            rows.addAll(bookRepository.countFacets(idIn(chunk)));
+        }
+        return toFacets(rows);
+    }
+
+    private static ResponseBookFacetsDTO toFacets(List<BookFacetRow> rows) {
+        long total = 0;
+        Map<Integer, Long> byRating = new TreeMap<>();
+        Map<Boolean, Long> byAvailable = new TreeMap<>();
+        Map<Integer, Long> byReleaseYear = new TreeMap<>();
+
+        for (BookFacetRow row : rows) {
+            total += row.count();
+            byRating.merge(row.rating(), row.count(), Long::sum);
+            byAvailable.merge(row.available(), row.count(), Long::sum);
+            if (row.releaseYear() != null) {
+                byReleaseYear.merge(row.releaseYear(), row.count(), Long::sum);
+            }
+        }
+
+        return ResponseBookFacetsDTO.builder()
+                .total(total)
+                .rating(Collections.unmodifiableMap(byRating))
+                .available(Collections.unmodifiableMap(byAvailable))
+                .releaseYear(Collections.unmodifiableMap(byReleaseYear))
+                .build();
+    }
+
+    /**
+     * Text filters are answered by the in-memory {@link TextIndex} and
+     * availability, rating and release date filters by the
+     * {@link AttributeIndex} when the store is indexed; the database is then
+     * only asked for the rows of the requested page. The index matches text
+     * by word prefix and the {@link BooksFilters} fallback by substring, so
+     * until a store is indexed its text filters match more loosely.
+     */
+    private Set<ResponseBookDTO> findPage(
+            Long storeId,
+            int page,
+            int size,
+            BooksFilterDTO booksFilterDTO
+    ) {
+
+        // same (createdAt, id) order as the indexes, so pages agree on books created the same day
+        Pageable pageRequest = PageRequest.of(page, size, BooksCursor.SORT);
+
+        Optional<List<Long>> indexedIds = findIndexedIds(storeId, booksFilterDTO);
+        if (indexedIds.isPresent()) {
+            return findInOrder(pageOf(indexedIds.get(), pageRequest));
+        }
+
+        Specification<Book> booksFilters = new BooksFilters(booksFilterDTO, storeId);
+        return new LinkedHashSet<>(bookRepository.findResponses(booksFilters, pageRequest));
+    }
+
+    /**
+     * Keyset variant of {@link #listAll}: seeks past the given cursor on
+     * (createdAt, id) instead of using OFFSET, and fetches one extra row to
+     * know whether there is a next page, so no COUNT query is issued. Indexed
+     * stores seek in the ordered ids of {@link #findIndexedIds} instead.
+     */
+    public ResponseBookPageDTO listAllByCursor(
+            Long storeId,
+            String cursor,
+            int size,
+            BooksFilterDTO booksFilterDTO
+    ) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new InvalidPageSizeException(size, MAX_CURSOR_PAGE_SIZE);
+        }
+
+        BooksCursor after = BooksCursor.decode(cursor);
+
+        Optional<List<Long>> indexedIds = findIndexedIds(storeId, booksFilterDTO);
+        if (indexedIds.isPresent()) {
+            return seekIndexed(indexedIds.get(), after, size);
+        }
+
+        Specification<Book> specification = new BooksFilters(booksFilterDTO, storeId);
+        if (after != null) {
+            specification = specification.and(after);
+        }
+
+        List<Book> books = bookRepository.findBy(specification, query -> query
+                .sortBy(BooksCursor.SORT)
+                .limit(size + 1)
+                .all());
+
+        boolean hasNext = books.size() > size;
+        List<Book> page = hasNext ? books.subList(0, size) : books;
+
+        return ResponseBookPageDTO.builder()
+                .books(page.stream().map(this::toResponse).toList())
+                .nextCursor(hasNext ? BooksCursor.of(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    private ResponseBookPageDTO seekIndexed(List<Long> ids, BooksCursor after, int size) {
+        List<Long> remaining = ids;
+        if (after != null) {
+            int position = ids.indexOf(after.getId());
+            // the cursor's book left the result since the previous page: let the database place it
+            remaining = position >= 0
+                    ? ids.subList(position + 1, ids.size())
+                    : retainMatching(ids, after);
+        }
+
+        boolean hasNext = remaining.size() > size;
+        List<ResponseBookDTO> page = new ArrayList<>(findInOrder(remaining.subList(0, Math.min(size, remaining.size()))));
+
+        return ResponseBookPageDTO.builder()
+                .books(page)
+                .nextCursor(hasNext && !page.isEmpty() ? BooksCursor.of(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    /**
+     * Every id matching the filter, ordered by (createdAt, id), when the
+     * indexes can answer it; empty when the database has to evaluate the
+     * whole filter. Once the text index has answered, filters it does not
+     * cover are checked against its hits a chunk at a time, so its matching
+     * semantics hold however many books it finds. A fuzzy filter is refused
+     * while the store's text index is not ready, as the database cannot
+     * answer it.
+     */
+    private Optional<List<Long>> findIndexedIds(Long storeId, BooksFilterDTO booksFilterDTO) {
+        Optional<List<Long>> textIds = textIndex.findMatchingIds(storeId, booksFilterDTO);
+        if (textIds.isEmpty() && Boolean.TRUE.equals(booksFilterDTO.getFuzzy())
+                && BooksFilters.hasTextFilters(booksFilterDTO)) {
+            throw new FuzzySearchUnavailableException();
+        }
+        Optional<List<Long>> attributeIds = attributeIndex.findMatchingIds(storeId, booksFilterDTO);
+        if (textIds.isEmpty() && attributeIds.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<Long> ids = intersect(textIds, attributeIds);
+
+        BooksFilterDTO remaining = booksFilterDTO;
+        if (textIds.isPresent()) {
+            remaining = BooksFilters.attributesOnly(remaining);
+        }
+        if (attributeIds.isPresent()) {
+            remaining = BooksFilters.textOnly(remaining);
+        }
+
+        if (!BooksFilters.hasTextFilters(remaining) && !BooksFilters.hasAttributeFilters(remaining)) {
+            return Optional.of(ids);
+        }
+        if (textIds.isEmpty() && ids.size() > MAX_INDEXED_IDS_PER_QUERY) {
+            return Optional.empty();
+        }
+        return Optional.of(retainMatching(ids, new BooksFilters(remaining, storeId)));
+    }
+
+    /**
+     * The ids, in their order, of the books that also satisfy the
+     * specification, asking the database one chunk of ids at a time.
+     */
+    private List<Long> retainMatching(List<Long> ids, Specification<Book> specification) {
+        Set<Long> matching = new HashSet<>();
+        for (List<Long> chunk : chunks(ids)) {
+            matching.addAll(bookRepository.findIds(specification.and(idIn(chunk))));
+        }
+        return ids.stream().filter(matching::contains).toList();
+    }
+
+    private static Specification<Book> idIn(Collection<Long> ids) {
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
+    private ResponseBookDTO toResponse(Book book) {
+        return ResponseBookDTO.builder()
+                .id(book.getId())
+                .author(book.getAuthor())
+                .rating(book.getRating())
+                .title(book.getTitle())
+                .summary(book.getSummary())
+                .available(book.isAvailable())
+                .releasedAt(book.getReleasedAt())
+                .cover(book.getCover())
+                .createdAt(book.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Both lists come ordered by (createdAt, id), so filtering one by the
+     * other keeps that order.
+     */
+    private static List<Long> intersect(Optional<List<Long>> first, Optional<List<Long>> second) {
+        if (first.isEmpty()) {
+            return second.orElseGet(List::of);
+        }
+        if (second.isEmpty()) {
+            return first.get();
+        }
+        Set<Long> other = new HashSet<>(second.get());
+        return first.get().stream().filter(other::contains).toList();
+    }
+
+    private static List<Long> pageOf(List<Long> ids, Pageable pageable) {
+        long from = pageable.getOffset();
+        if (from >= ids.size()) {
+            return List.of();
+        }
+        return ids.subList((int) from, (int) Math.min(ids.size(), from + pageable.getPageSize()));
+    }
+
+    private Set<ResponseBookDTO> findInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<Long, ResponseBookDTO> booksById = bookRepository.findResponsesByIds(ids).stream()
+                .collect(Collectors.toMap(ResponseBookDTO::getId, Function.identity()));
 
-        Sort sortByCreatedAt = Sort.by("createdAt");
-        Pageable pageRequest = PageRequest.of(page, size, sortByCreatedAt);
-
-        BooksFilters booksFilters = new BooksFilters(booksFilterDTO, storeId);
-
-        Page<Book> books = bookRepository.findAll(booksFilters, pageRequest);
-
-        return books.stream()
-                .map(book ->
-                        ResponseBookDTO.builder()
-                                .id(book.getId())
-                                .author(book.getAuthor())
-                                .rating(book.getRating())
-                                .title(book.getTitle())
-                                .summary(book.getSummary())
-                                .available(book.isAvailable())
-                                .releasedAt(book.getReleasedAt())
-                                .cover(book.getCover())
-                                .createdAt(book.getCreatedAt())
-                                .build())
-                .collect(Collectors.toSet());
+        return ids.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 }
@@ -9,10 +9,13 @@ import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.exceptions.*;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
+import com.karoldm.bookstore.security.TokensRevokedEvent;
 import lombok.AllArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -22,6 +25,8 @@ import java.util.stream.Collectors;
 public class EmployeeService {
     private AppUserRepository userRepository;
     private StoreRepository storeRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private PasswordEncoder passwordEncoder;
 
     public Set<ResponseUserDTO> listEmployees(Long storeId) {
         Optional<Store> optionalStore = storeRepository.findById(storeId);
@@ -58,7 +63,7 @@ public class EmployeeService {
             throw new UsernameAlreadyExist(registerUserDTO.getUsername());
         }
 
-        String encryptedPassword = new BCryptPasswordEncoder()
+        String encryptedPassword = passwordEncoder
                 .encode(registerUserDTO.getPassword());
 
         AppUser newEmployee = AppUser.builder()
@@ -97,14 +102,18 @@ public class EmployeeService {
         }
 
         AppUser user = optionalUser.get();
+        boolean passwordChanged = false;
 
         if(updateUserDTO.getPassword() != null) {
             if(updateUserDTO.getPassword().length() < 8) {
                 throw new InvalidPasswordException();
             }
-            String encryptedPassword = new BCryptPasswordEncoder()
+            String encryptedPassword = passwordEncoder
                     .encode(updateUserDTO.getPassword());
             user.setPassword(encryptedPassword);
+            // a new password ends the sessions opened with the old one
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            passwordChanged = true;
         }
 
         if(updateUserDTO.getName() != null){
@@ -115,6 +124,9 @@ public class EmployeeService {
         }
 
         userRepository.save(user);
+        if (passwordChanged) {
+            eventPublisher.publishEvent(new TokensRevokedEvent(List.of(user)));
+        }
 
         return ResponseUserDTO.builder()
                 .name(user.getName())
@@ -142,5 +154,6 @@ public class EmployeeService {
         AppUser user = optionalUser.get();
 
         userRepository.delete(user);
+        eventPublisher.publishEvent(new TokensRevokedEvent(List.of(user)));
     }
 }
@@ -5,23 +5,56 @@ import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.karoldm.bookstore.exceptions.AmazonS3Exception;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
+@Slf4j
 @Service
 public class FileStorageService {
     private final AmazonS3 amazonS3Client;
+    private final ExecutorService fileUploadExecutor;
 
     @Value("${api.aws.bucket-url}")
     private String bucketUrl;
 
-    public FileStorageService(AmazonS3 amazonS3Client) {
+    /**
+     * Uploads handed to {@link #uploadFileAsync(MultipartFile)} run on a pool
+     * of their own. They spend their time waiting on S3, so it is sized by how
+     * many may be in flight rather than by the cores.
+     */
+    public FileStorageService(
+            AmazonS3 amazonS3Client,
+            MeterRegistry meterRegistry,
+            @Value("${api.aws.upload-threads:8}") int uploadThreads
+    ) {
         this.amazonS3Client = amazonS3Client;
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, uploadThreads), runnable -> {
+            Thread thread = new Thread(runnable, "file-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fileUploadExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "file-upload", Tags.empty());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fileUploadExecutor.shutdown();
     }
 
     public void removeFileByUrl(String fileUrl) {
@@ -40,6 +73,32 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Deletes an object that no row points to anymore: an upload whose
+     * transaction rolled back, or the file a committed update replaced.
+     * Failures are logged instead of thrown, since the outcome of the
+     * request is already decided and a leftover object only costs storage.
+     */
+    public void removeOrphanedFile(String fileUrl) {
+        if (fileUrl == null || fileUrl.isEmpty()) {
+            return;
+        }
+        try {
+            removeFileByUrl(fileUrl);
+        } catch (AmazonS3Exception ex) {
+            log.warn("Could not remove orphaned file {}", fileUrl, ex);
+        }
+    }
+
+    /**
+     * Same as {@link #uploadFile(MultipartFile)} on the upload pool. The
+     * caller must wait for the result before its request completes, since
+     * the multipart content is only available until then.
+     */
+    public CompletableFuture<String> uploadFileAsync(MultipartFile fileUpload) {
+        return CompletableFuture.supplyAsync(() -> uploadFile(fileUpload), fileUploadExecutor);
+    }
+
     public String uploadFile(MultipartFile fileUpload) {
         if(fileUpload == null || fileUpload.isEmpty()) {
             return "";
@@ -1,7 +1,7 @@
 package com.karoldm.bookstore.services;
 
-import com.karoldm.bookstore.entities.AppUser;
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.StoreMember;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -9,20 +9,20 @@ import org.springframework.stereotype.Service;
 @AllArgsConstructor
 public class StoreSecurityService {
     public boolean canAccessStore(Object user, Long storeId) {
-        if (user instanceof AppUser appUser) {
+        if (user instanceof StoreMember member) {
 
-            return appUser.getRole() == Roles.ADMIN && storeId.equals(appUser.getStore().getId()) ||
-                    appUser.getRole() == Roles.EMPLOYEE && storeId.equals(appUser.getStore().getId());
+            return member.getRole() == Roles.ADMIN && storeId.equals(member.getStoreId()) ||
+                    member.getRole() == Roles.EMPLOYEE && storeId.equals(member.getStoreId());
         }
 
         return false;
     }
 
     public boolean isStoreAdmin(Object user, Long storeId) {
-        if (user instanceof AppUser appUser) {
+        if (user instanceof StoreMember member) {
 
-            return appUser.getRole() == Roles.ADMIN &&
-                    storeId.equals(appUser.getStore().getId());
+            return member.getRole() == Roles.ADMIN &&
+                    storeId.equals(member.getStoreId());
         }
 
         return false;
@@ -1,13 +1,15 @@
 package com.karoldm.bookstore.services;
 
+import com.karoldm.bookstore.catalog.StoreChangedEvent;
 import com.karoldm.bookstore.dto.requests.UpdateStoreDTO;
 import com.karoldm.bookstore.dto.responses.ResponseStoreDTO;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.exceptions.StoreNotFoundException;
 import com.karoldm.bookstore.repositories.StoreRepository;
-import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -16,6 +18,8 @@ import java.util.Optional;
 public class StoreService {
     private StoreRepository storeRepository;
     private FileStorageService fileStorageService;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
 
     public ResponseStoreDTO getStore(Long id) {
         Optional<Store> optionalStore = storeRepository.findById(id);
@@ -34,7 +38,11 @@ public class StoreService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * The banner is uploaded before the transaction opens, so no connection
+     * is held during the upload. It is removed again if the update fails;
+     * the banner it replaces is only removed once the update is committed.
+     */
     public ResponseStoreDTO updateStore(Long id, UpdateStoreDTO updateStoreDTO) {
         Optional<Store> optionalStore = storeRepository.findById(id);
 
@@ -44,18 +52,29 @@ public class StoreService {
 
         Store store = optionalStore.get();
 
+        String previousBanner = store.getBanner();
+        String uploadedBanner = null;
         if(updateStoreDTO.getBanner() != null) {
-            if(store.getBanner() != null){
-                fileStorageService.removeFileByUrl(store.getBanner());
-            }
-            String url = fileStorageService.uploadFile(updateStoreDTO.getBanner());
-            store.setBanner(url);
+            uploadedBanner = fileStorageService.uploadFile(updateStoreDTO.getBanner());
+            store.setBanner(uploadedBanner);
         }
 
         store.setName(updateStoreDTO.getName());
         store.setSlogan(updateStoreDTO.getSlogan());
 
-        storeRepository.save(store);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                storeRepository.save(store);
+                eventPublisher.publishEvent(new StoreChangedEvent(store.getId()));
+            });
+        } catch (RuntimeException ex) {
+            fileStorageService.removeOrphanedFile(uploadedBanner);
+            throw ex;
+        }
+
+        if(uploadedBanner != null && previousBanner != null) {
+            fileStorageService.removeOrphanedFile(previousBanner);
+        }
 
         return ResponseStoreDTO.builder()
                 .id(store.getId())
@@ -1,57 +1,238 @@
 package com.karoldm.bookstore.services;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.UserPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class TokenService {
-    private final String secretKey;
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_CLAIM = "role";
+    private static final String STORE_ID_CLAIM = "sid";
+    private static final String VERSION_CLAIM = "ver";
+    private static final String TOKEN_USE_CLAIM = "token_use";
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+
+    // principal is null for tokens issued without the user claims, id for tokens without a jti
+    private record VerifiedToken(String subject, UserPrincipal principal, String id, Instant expiresAt,
+                                 boolean refresh) {
+    }
+
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
     private final long jwtExpiration;
     private final long refreshExpiration;
+    private final boolean selfContained;
+    // digest of the raw token -> claims it was verified with
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     public TokenService(
             @Value("${api.security.token.secret}") String secretKey,
             @Value("${api.security.token.expiration}") long jwtExpiration,
-            @Value("${api.security.token.refresh-expiration}") long refreshExpiration
+            @Value("${api.security.token.refresh-expiration}") long refreshExpiration,
+            @Value("${api.security.token.self-contained:true}") boolean selfContained,
+            @Value("${api.security.token.verified-cache-size:10000}") long verifiedCacheSize,
+            MeterRegistry meterRegistry
     ) {
-        this.secretKey = secretKey;
+        this.algorithm = Algorithm.HMAC256(secretKey);
+        this.verifier = JWT.require(algorithm).build();
         this.jwtExpiration = jwtExpiration;
         this.refreshExpiration = refreshExpiration;
+        this.selfContained = selfContained;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpires())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verified-tokens");
     }
 
-    public String generateToken(String username) {
-        return buildToken(username, jwtExpiration);
+    public String generateToken(AppUser user) {
+        return buildToken(user, jwtExpiration, ACCESS, null);
     }
 
-    public String generateRefreshToken(String username) {
-        return buildToken(username, refreshExpiration);
+    /**
+     * Refresh tokens carry a random id (jti), so each one can be revoked
+     * on its own.
+     */
+    public String generateRefreshToken(AppUser user) {
+        return buildToken(user, refreshExpiration, REFRESH, UUID.randomUUID().toString());
     }
 
-    private String buildToken(String username, long expirationHour) {
+    /**
+     * In self-contained mode the token also carries the user id, role, store
+     * id and token version, so requests can be authorized from the token
+     * alone; otherwise it only names the user. Both kinds say what they are
+     * for, so a refresh token is never taken as an access token.
+     */
+    private String buildToken(AppUser user, long expirationHour, String use, String id) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secretKey);
-
-            return JWT.create().withSubject(username)
-                    .withExpiresAt(generateExpirationDate(expirationHour)).sign(algorithm);
+            JWTCreator.Builder builder = JWT.create().withSubject(user.getUsername())
+                    .withClaim(TOKEN_USE_CLAIM, use)
+                    .withJWTId(id)
+                    .withExpiresAt(generateExpirationDate(expirationHour));
+            if (selfContained) {
+                builder.withClaim(USER_ID_CLAIM, user.getId())
+                        .withClaim(ROLE_CLAIM, user.getRole().name())
+                        .withClaim(VERSION_CLAIM, user.getTokenVersion());
+                if (user.getStoreId() != null) {
+                    builder.withClaim(STORE_ID_CLAIM, user.getStoreId());
+                }
+            }
+            return builder.sign(algorithm);
         } catch (JWTCreationException exception) {
             throw new JWTCreationException("Error while generating token", exception);
         }
     }
 
+    /**
+     * Returns the subject of an access token. A token already verified by
+     * this instance is answered from memory until its expiration; anything
+     * else, including a cached token past its expiration, goes through the
+     * full signature and claims verification. Refresh tokens are rejected.
+     */
     public String validateToken(String token) {
-        Algorithm algorithm = Algorithm.HMAC256(secretKey);
+        return verify(token, false).subject();
+    }
 
-        return JWT.require(algorithm).build().verify(token).getSubject();
+    /**
+     * Verifies the access token like {@link #validateToken} and returns the
+     * principal described by its claims; empty for tokens that only name
+     * the user, which must be loaded from the database instead.
+     */
+    public Optional<UserPrincipal> principalOf(String token) {
+        return Optional.ofNullable(verify(token, false).principal());
+    }
+
+    /**
+     * Returns the subject of a refresh token; access tokens are rejected.
+     */
+    public String validateRefreshToken(String token) {
+        return verify(token, true).subject();
+    }
+
+    /**
+     * Same as {@link #principalOf} for a refresh token.
+     */
+    public Optional<UserPrincipal> refreshPrincipalOf(String token) {
+        return Optional.ofNullable(verify(token, true).principal());
+    }
+
+    /**
+     * Verifies the token and returns its id; empty for tokens issued
+     * without one.
+     */
+    public Optional<String> idOf(String token) {
+        return Optional.ofNullable(verify(token).id());
+    }
+
+    public Instant expirationOf(String token) {
+        return verify(token).expiresAt();
+    }
+
+    private VerifiedToken verify(String token, boolean refresh) {
+        VerifiedToken verified = verify(token);
+        if (verified.refresh() != refresh) {
+            throw new JWTVerificationException(refresh
+                    ? "O token informado não é um refresh token."
+                    : "Refresh tokens não autorizam requisições.");
+        }
+        return verified;
+    }
+
+    private VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && Instant.now().isBefore(cached.expiresAt())) {
+            return cached;
+        }
+
+        DecodedJWT decoded = verifier.verify(token);
+        VerifiedToken verified = new VerifiedToken(decoded.getSubject(), principal(decoded), decoded.getId(),
+                decoded.getExpiresAtAsInstant(), isRefresh(decoded));
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(digest, verified);
+        }
+        return verified;
+    }
+
+    // tokens issued before the claim existed: only refresh tokens had an id
+    private static boolean isRefresh(DecodedJWT decoded) {
+        Claim use = decoded.getClaim(TOKEN_USE_CLAIM);
+        return use.isMissing() ? decoded.getId() != null : REFRESH.equals(use.asString());
+    }
+
+    private static UserPrincipal principal(DecodedJWT decoded) {
+        Claim userId = decoded.getClaim(USER_ID_CLAIM);
+        Claim role = decoded.getClaim(ROLE_CLAIM);
+        Claim version = decoded.getClaim(VERSION_CLAIM);
+        if (userId.isMissing() || role.isMissing() || version.isMissing()) {
+            return null;
+        }
+        return new UserPrincipal(
+                userId.asLong(),
+                decoded.getSubject(),
+                Roles.valueOf(role.asString()),
+                decoded.getClaim(STORE_ID_CLAIM).asLong(),
+                version.asInt()
+        );
     }
 
     private Instant generateExpirationDate(long expirationHour) {
         return OffsetDateTime.now(ZoneOffset.UTC).plusHours(expirationHour).toInstant();
     }
+
+    // the cache holds digests only, so a heap dump does not hand out bearer tokens
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static final class UntilTokenExpires implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
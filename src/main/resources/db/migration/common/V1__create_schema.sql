@@ -0,0 +1,42 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). IF NOT EXISTS
+-- lets databases created that way be baselined and migrated in place.
+
+CREATE SEQUENCE IF NOT EXISTS store_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS app_user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS book_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS store (
+    id     BIGINT NOT NULL,
+    name   VARCHAR(255),
+    slogan VARCHAR(255),
+    banner TEXT,
+    CONSTRAINT pk_store PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS app_user (
+    id       BIGINT NOT NULL,
+    name     VARCHAR(255),
+    username VARCHAR(255),
+    password VARCHAR(255),
+    role     SMALLINT NOT NULL,
+    store_id BIGINT,
+    CONSTRAINT pk_app_user PRIMARY KEY (id),
+    CONSTRAINT uk_app_user_username UNIQUE (username),
+    CONSTRAINT ck_app_user_role CHECK (role BETWEEN 0 AND 2),
+    CONSTRAINT fk_app_user_store FOREIGN KEY (store_id) REFERENCES store (id)
+);
+
+CREATE TABLE IF NOT EXISTS book (
+    id          BIGINT NOT NULL,
+    title       VARCHAR(255),
+    summary     VARCHAR(255),
+    released_at DATE,
+    author      VARCHAR(255),
+    available   BOOLEAN NOT NULL,
+    rating      INTEGER NOT NULL,
+    cover       VARCHAR(255),
+    created_at  DATE,
+    store_id    BIGINT,
+    CONSTRAINT pk_book PRIMARY KEY (id),
+    CONSTRAINT fk_book_store FOREIGN KEY (store_id) REFERENCES store (id)
+);
@@ -0,0 +1,13 @@
+-- Book listing: store filter plus ORDER BY created_at, id (offset and keyset pages)
+CREATE INDEX IF NOT EXISTS idx_book_store_created_at ON book (store_id, created_at, id);
+
+-- Book listing: available / rating equality filters
+CREATE INDEX IF NOT EXISTS idx_book_store_available_rating ON book (store_id, available, rating);
+
+-- Book listing: startDate / endDate range on released_at. A B-tree rather than
+-- BRIN, since release dates have no correlation with the physical row order
+-- that BRIN block ranges depend on.
+CREATE INDEX IF NOT EXISTS idx_book_store_released_at ON book (store_id, released_at);
+
+-- AppUserRepository.findByStoreAndRole (employee listing)
+CREATE INDEX IF NOT EXISTS idx_app_user_store_role ON app_user (store_id, role);
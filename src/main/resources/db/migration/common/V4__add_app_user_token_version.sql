@@ -0,0 +1,2 @@
+-- Stamped into self-contained tokens; bumping it revokes the tokens issued before
+ALTER TABLE app_user ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Refresh tokens revoked before their expiration, by JWT id. Rows past
+-- expires_at no longer matter and are purged when the revocation filter is rebuilt.
+CREATE TABLE IF NOT EXISTS revoked_token (
+    jti        VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_revoked_token PRIMARY KEY (jti)
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_token_expires_at ON revoked_token (expires_at);
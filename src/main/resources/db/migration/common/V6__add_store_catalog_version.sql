@@ -0,0 +1,3 @@
+-- Bumped in the same transaction as every change to a store or its catalog,
+-- so each instance can tell which of its in-memory copies are behind
+ALTER TABLE store ADD COLUMN IF NOT EXISTS catalog_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,13 @@
+-- Full-text and trigram search indexes (PostgreSQL only).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- must match BookRepository.SEARCH_DOCUMENT
+CREATE INDEX IF NOT EXISTS idx_book_search_document ON book USING GIN (
+    (setweight(to_tsvector('simple', coalesce(title, '')), 'A')
+        || setweight(to_tsvector('simple', coalesce(author, '')), 'B')
+        || setweight(to_tsvector('simple', coalesce(summary, '')), 'C'))
+);
+
+-- also serve the lower(title|author) LIKE '%x%' filters of the book listing
+CREATE INDEX IF NOT EXISTS idx_book_title_trgm ON book USING GIN (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_book_author_trgm ON book USING GIN (lower(author) gin_trgm_ops);
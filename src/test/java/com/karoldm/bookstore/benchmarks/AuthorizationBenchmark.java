@@ -0,0 +1,187 @@
+package com.karoldm.bookstore.benchmarks;
+
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.RouteAuthorizationManager;
+import com.karoldm.bookstore.security.SecurityConfig;
+import com.karoldm.bookstore.security.UserPrincipal;
+import com.karoldm.bookstore.services.StoreSecurityService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+/**
+ * Compares the cost of one authorization decision per request.
+ * "matchers" is the original path: the ordered list of request matchers the
+ * security filter chain walked, followed for store-scoped routes by the
+ * {@code @PreAuthorize} SpEL expression evaluated against a fresh evaluation
+ * context, as method security does on every call. "routes" is the compiled
+ * {@link RouteAuthorizationManager}. Both run over the same mix of requests
+ * and must reach the same decisions. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class AuthorizationBenchmark {
+    private static final int REQUESTS = 2_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final String CAN_ACCESS = "@storeSecurityService.canAccessStore(principal, #storeId)";
+    private static final String IS_ADMIN = "@storeSecurityService.isStoreAdmin(principal, #storeId)";
+
+    private record Call(MockHttpServletRequest request, Authentication authentication, Expression expression,
+                        Long storeId) {
+    }
+
+    private record Root(Object principal) {
+        public Object getPrincipal() {
+            return principal;
+        }
+    }
+
+    private final StoreSecurityService storeSecurityService = new StoreSecurityService();
+
+    @Test
+    void compareMatcherListAndCompiledRoutes() {
+        SpelExpressionParser parser = new SpelExpressionParser();
+        Expression canAccess = parser.parseExpression(CAN_ACCESS);
+        Expression isAdmin = parser.parseExpression(IS_ADMIN);
+
+        Authentication admin = authenticated(new UserPrincipal(1L, "admin", Roles.ADMIN, 1L, 0));
+        Authentication employee = authenticated(new UserPrincipal(2L, "employee", Roles.EMPLOYEE, 1L, 0));
+        List<Call> calls = List.of(
+                new Call(request(HttpMethod.GET, "/v1/store/1/book"), employee, canAccess, 1L),
+                new Call(request(HttpMethod.GET, "/v1/store/1/book/search"), employee, canAccess, 1L),
+                new Call(request(HttpMethod.PUT, "/v1/store/1/book/2/available"), employee, canAccess, 1L),
+                new Call(request(HttpMethod.GET, "/v1/store/1/employee"), admin, isAdmin, 1L),
+                new Call(request(HttpMethod.DELETE, "/v1/store/2/book/3"), admin, isAdmin, 2L),
+                new Call(request(HttpMethod.PUT, "/v1/admin"), admin, null, null),
+                new Call(request(HttpMethod.POST, "/v1/auth/login"), null, null, null)
+        );
+
+        AuthorizationManager<RequestAuthorizationContext> matchers = matcherList();
+        RouteAuthorizationManager routes = new SecurityConfig(null, null, null, null)
+                .routeAuthorizationManager(storeSecurityService);
+
+        Predicate<Call> before = call -> {
+            RequestAuthorizationContext context = new RequestAuthorizationContext(call.request());
+            AuthorizationDecision decision = matchers.check(call::authentication, context);
+            if (decision == null || !decision.isGranted() || call.expression() == null) {
+                return decision != null && decision.isGranted();
+            }
+            StandardEvaluationContext evaluation = new StandardEvaluationContext(
+                    new Root(call.authentication().getPrincipal()));
+            evaluation.setBeanResolver((ignored, name) -> storeSecurityService);
+            evaluation.setVariable("storeId", call.storeId());
+            return Boolean.TRUE.equals(call.expression().getValue(evaluation, Boolean.class));
+        };
+        Predicate<Call> after = call -> routes.check(
+                call::authentication, new RequestAuthorizationContext(call.request())).isGranted();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(before, calls);
+            run(after, calls);
+        }
+
+        Result matcherResult = run(before, calls);
+        Result routeResult = run(after, calls);
+
+        System.out.printf("%-10s %14s %18s%n", "path", "ns/request", "bytes/request");
+        System.out.printf("%-10s %14.1f %18d%n", "matchers", matcherResult.nanosPerRequest(),
+                matcherResult.bytesPerRequest());
+        System.out.printf("%-10s %14.1f %18d%n", "routes", routeResult.nanosPerRequest(),
+                routeResult.bytesPerRequest());
+
+        assertEquals(matcherResult.granted(), routeResult.granted());
+    }
+
+    private Result run(Predicate<Call> path, List<Call> calls) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long granted = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            if (path.test(calls.get(i % calls.size()))) {
+                granted++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(granted, (double) elapsed / REQUESTS, allocated / REQUESTS);
+    }
+
+    /**
+     * The request matchers the security filter chain used before the routes
+     * were compiled, in their original order.
+     */
+    private static AuthorizationManager<RequestAuthorizationContext> matcherList() {
+        String store = "/v1/store/*";
+        AuthorizationManager<RequestAuthorizationContext> permitAll = (authentication, context) ->
+                new AuthorizationDecision(true);
+        AuthorizationManager<RequestAuthorizationContext> admin =
+                AuthorityAuthorizationManager.hasRole(Roles.ADMIN.name());
+        AuthorizationManager<RequestAuthorizationContext> member =
+                AuthorityAuthorizationManager.hasAnyRole(Roles.ADMIN.name(), Roles.EMPLOYEE.name());
+
+        RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager.builder()
+                .add(antMatcher(HttpMethod.POST, "/v1/auth/*"), permitAll)
+                .add(antMatcher(HttpMethod.GET, "/appstatus"), permitAll);
+        for (String pattern : List.of("/error", "/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs",
+                "/v3/api-docs/**", "/webjars/**", "/swagger-resources", "/swagger-resources/**")) {
+            builder.add(antMatcher(pattern), permitAll);
+        }
+        return builder
+                .add(antMatcher(HttpMethod.PUT, store), admin)
+                .add(antMatcher(HttpMethod.DELETE, store), admin)
+                .add(antMatcher(HttpMethod.GET, store), member)
+                .add(antMatcher(HttpMethod.PUT, store + "/book/*/available"), member)
+                .add(antMatcher(HttpMethod.PUT, store + "/book/available"), member)
+                .add(antMatcher(HttpMethod.PUT, store + "/book/*"), admin)
+                .add(antMatcher(HttpMethod.POST, store + "/book"), admin)
+                .add(antMatcher(HttpMethod.POST, store + "/book/import"), admin)
+                .add(antMatcher(HttpMethod.DELETE, store + "/book/*"), admin)
+                .add(antMatcher(HttpMethod.GET, store + "/book"), member)
+                .add(antMatcher(HttpMethod.GET, store + "/book/*"), member)
+                .add(antMatcher(HttpMethod.GET, store + "/employee"), admin)
+                .add(antMatcher(HttpMethod.POST, store + "/employee"), admin)
+                .add(antMatcher(HttpMethod.PUT, store + "/employee/*"), admin)
+                .add(antMatcher(HttpMethod.DELETE, store + "/employee/*"), admin)
+                .add(antMatcher(HttpMethod.PUT, "/v1/admin"), admin)
+                .add(antMatcher(HttpMethod.DELETE, "/v1/admin"), admin)
+                .add(request -> true, AuthenticatedAuthorizationManager.authenticated())
+                .build();
+    }
+
+    private static MockHttpServletRequest request(HttpMethod method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method.name(), path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static Authentication authenticated(UserPrincipal principal) {
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private record Result(long granted, double nanosPerRequest, long bytesPerRequest) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.karoldm.bookstore.benchmarks;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.filters.BooksFilters;
+import com.karoldm.bookstore.repositories.BookRepository;
+import com.karoldm.bookstore.repositories.StoreRepository;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the book listing read paths on an in-memory H2 database.
+ * "entities" is the original path: a Page of managed Book entities (with the
+ * count query and the store, banner included, loaded as the eager association
+ * used to) copied into DTOs; "projection" selects the DTOs directly.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class BookListingBenchmark {
+    private static final int BOOKS = 20_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int PAGES = 400;
+    private static final int WARMUP_ROUNDS = 3;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private StoreRepository storeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long storeId;
+
+    @BeforeEach
+    void seed() {
+        Store store = storeRepository.save(Store.builder()
+                .name("benchmark-" + System.nanoTime())
+                .slogan("benchmark")
+                .banner("A".repeat(256 * 1024))
+                .build());
+        storeId = store.getId();
+
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(Book.builder()
+                    .title("Book " + i)
+                    .author("Author " + (i % 500))
+                    .summary("Summary of book " + i + " with a few more words to look like real data.")
+                    .rating(1 + i % 5)
+                    .available(i % 3 != 0)
+                    .releasedAt(LocalDate.of(1950, 1, 1).plusDays(i))
+                    .createdAt(LocalDate.of(2024, 1, 1).plusDays(i % 365))
+                    .store(store)
+                    .build());
+        }
+        bookRepository.saveAll(books);
+    }
+
+    @Test
+    void compareEntityAndProjectionPaths() {
+        Specification<Book> filters = new BooksFilters(BooksFilterDTO.builder().build(), storeId);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Function<Pageable, List<ResponseBookDTO>> entities = pageable -> transaction.execute(status ->
+                bookRepository.findAll(filters, pageable).stream()
+                        .peek(book -> Hibernate.initialize(book.getStore()))
+                        .map(BookListingBenchmark::toResponse)
+                        .toList());
+        Function<Pageable, List<ResponseBookDTO>> projection = pageable ->
+                bookRepository.findResponses(filters, pageable);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(entities);
+            run(projection);
+        }
+
+        Result before = run(entities);
+        Result after = run(projection);
+
+        System.out.printf("%-10s %12s %16s%n", "path", "rows/sec", "bytes/page");
+        System.out.printf("%-10s %12.0f %16d%n", "entities", before.rowsPerSecond(), before.bytesPerPage());
+        System.out.printf("%-10s %12.0f %16d%n", "projection", after.rowsPerSecond(), after.bytesPerPage());
+
+        assertEquals(before.rows(), after.rows());
+    }
+
+    private Result run(Function<Pageable, List<ResponseBookDTO>> path) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long rows = 0;
+        for (int page = 0; page < PAGES; page++) {
+            rows += path.apply(PageRequest.of(page, PAGE_SIZE, Sort.by("createdAt", "id"))).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(rows, rows * 1_000_000_000.0 / elapsed, allocated / PAGES);
+    }
+
+    private static ResponseBookDTO toResponse(Book book) {
+        return ResponseBookDTO.builder()
+                .id(book.getId())
+                .author(book.getAuthor())
+                .rating(book.getRating())
+                .title(book.getTitle())
+                .summary(book.getSummary())
+                .available(book.isAvailable())
+                .releasedAt(book.getReleasedAt())
+                .cover(book.getCover())
+                .createdAt(book.getCreatedAt())
+                .build();
+    }
+
+    private record Result(long rows, double rowsPerSecond, long bytesPerPage) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.karoldm.bookstore.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StoreScopedCacheTest {
+    private StoreCatalogVersions versions;
+    private SimpleMeterRegistry meterRegistry;
+    private StoreScopedCache<String, String> cache;
+
+    @BeforeEach
+    void setup() {
+        versions = new StoreCatalogVersions();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new StoreScopedCache<>("test", versions, 100, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    void mustInvalidateOnlyTheChangedStore() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, "page", () -> "v" + loads.incrementAndGet());
+        cache.get(2L, "page", () -> "v" + loads.incrementAndGet());
+        versions.advance(1L, 1);
+
+        assertEquals("v3", cache.get(1L, "page", () -> "v" + loads.incrementAndGet()));
+        assertEquals("v2", cache.get(2L, "page", () -> "v" + loads.incrementAndGet()));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void mustDropEntriesWithoutMovingTheVersionBack() {
+        AtomicInteger loads = new AtomicInteger();
+
+        versions.advance(1L, 5);
+        cache.get(1L, "page", () -> "v" + loads.incrementAndGet());
+        versions.advance(1L, 3);
+
+        assertEquals(5, versions.current(1L));
+        assertEquals("v2", cache.get(1L, "page", () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void mustCollapseConcurrentMisses() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get(1L, "page", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "value";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void mustRecordHitsAndMisses() {
+        cache.get(1L, "page", () -> "value");
+        cache.get(1L, "page", () -> "value");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "miss")
+                .functionCounter().count());
+    }
+}
@@ -0,0 +1,130 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.mocks.BooksMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttributeIndexTest {
+    private final Long storeId = 1L;
+    private AttributeIndex attributeIndex;
+
+    @BeforeEach
+    void setup() {
+        attributeIndex = new AttributeIndex(new SimpleMeterRegistry());
+        attributeIndex.rebuild(storeId, BooksMock.books.stream().sorted(CREATION_ORDER).toList());
+    }
+
+    private static final Comparator<Book> CREATION_ORDER = Comparator
+            .comparing(Book::getCreatedAt)
+            .thenComparing(Book::getId);
+
+    private List<Long> search(BooksFilterDTO filter) {
+        return attributeIndex.findMatchingIds(storeId, filter).orElseThrow();
+    }
+
+    private static List<Long> expected(Predicate<Book> predicate) {
+        return BooksMock.books.stream()
+                .filter(predicate)
+                .sorted(CREATION_ORDER)
+                .map(Book::getId)
+                .toList();
+    }
+
+    @Test
+    void mustIntersectAvailabilityAndRating() {
+        BooksFilterDTO filter = BooksFilterDTO.builder().available(true).rating(5).build();
+
+        assertEquals(expected(book -> book.isAvailable() && book.getRating() == 5), search(filter));
+        assertEquals(expected(book -> !book.isAvailable()),
+                search(BooksFilterDTO.builder().available(false).build()));
+    }
+
+    @Test
+    void mustFilterReleaseDateRangeInclusively() {
+        LocalDate start = LocalDate.of(1990, 5, 10);
+        LocalDate end = LocalDate.of(2007, 3, 27);
+
+        assertEquals(
+                expected(book -> !book.getReleasedAt().isBefore(start) && !book.getReleasedAt().isAfter(end)),
+                search(BooksFilterDTO.builder().startDate(start).endDate(end).build()));
+        assertEquals(
+                expected(book -> !book.getReleasedAt().isBefore(start)),
+                search(BooksFilterDTO.builder().startDate(start).build()));
+    }
+
+    @Test
+    void mustApplyIncrementalChanges() {
+        Book book = Book.builder()
+                .id(100L)
+                .available(false)
+                .rating(2)
+                .releasedAt(LocalDate.of(1900, 1, 1))
+                .createdAt(LocalDate.of(2025, 5, 1))
+                .build();
+
+        attributeIndex.index(storeId, book);
+        assertEquals(List.of(100L), search(BooksFilterDTO.builder().rating(2).build()));
+
+        book.setRating(3);
+        book.setAvailable(true);
+        attributeIndex.index(storeId, book);
+        assertTrue(search(BooksFilterDTO.builder().rating(2).build()).isEmpty());
+        assertTrue(search(BooksFilterDTO.builder().rating(3).available(true).build()).contains(100L));
+        assertEquals(List.of(100L), search(BooksFilterDTO.builder().endDate(LocalDate.of(1920, 1, 1)).build()));
+
+        attributeIndex.remove(storeId, 100L);
+        assertTrue(search(BooksFilterDTO.builder().endDate(LocalDate.of(1920, 1, 1)).build()).isEmpty());
+    }
+
+    @Test
+    void mustApplyBulkAvailabilityChanges() {
+        List<Long> unavailable = expected(book -> !book.isAvailable());
+
+        attributeIndex.setAvailable(storeId, unavailable, true);
+        attributeIndex.setAvailable(storeId, List.of(999L), false);
+
+        assertTrue(search(BooksFilterDTO.builder().available(false).build()).isEmpty());
+        assertEquals(expected(book -> true), search(BooksFilterDTO.builder().available(true).build()));
+    }
+
+    @Test
+    void mustKeepCreationOrderForBooksIndexedOutOfOrder() {
+        Book older = Book.builder()
+                .id(101L)
+                .rating(1)
+                .createdAt(LocalDate.of(2000, 1, 1))
+                .build();
+        Book newer = Book.builder()
+                .id(102L)
+                .rating(1)
+                .createdAt(LocalDate.of(2030, 1, 1))
+                .build();
+
+        attributeIndex.index(storeId, newer);
+        attributeIndex.index(storeId, older);
+
+        assertEquals(List.of(101L, 102L), search(BooksFilterDTO.builder().rating(1).build()));
+    }
+
+    @Test
+    void mustFallBackWithoutAttributeFiltersOrReadyIndex() {
+        assertEquals(Optional.empty(),
+                attributeIndex.findMatchingIds(storeId, BooksFilterDTO.builder().title("dune").build()));
+
+        attributeIndex.invalidate(storeId);
+
+        assertEquals(Optional.empty(),
+                attributeIndex.findMatchingIds(storeId, BooksFilterDTO.builder().rating(5).build()));
+    }
+}
@@ -0,0 +1,154 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.cache.StoreCatalogVersions;
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.mocks.BooksMock;
+import com.karoldm.bookstore.repositories.BookRepository;
+import com.karoldm.bookstore.repositories.StoreCatalogVersionRow;
+import com.karoldm.bookstore.repositories.StoreRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogIndexerTest {
+    private final Long storeId = 1L;
+
+    @Mock
+    private StoreRepository storeRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private StoreCatalogVersions versions;
+
+    private TextIndex textIndex;
+    private CatalogIndexer indexer;
+
+    @BeforeEach
+    void setup() {
+        textIndex = new TextIndex(new SimpleMeterRegistry());
+        indexer = new CatalogIndexer(List.of(textIndex), storeRepository, bookRepository, versions, 1);
+
+        when(storeRepository.findAllIds()).thenReturn(List.of(storeId));
+        when(storeRepository.findCatalogVersionById(storeId)).thenReturn(Optional.of(3L));
+        when(bookRepository.findByStoreIdOrderByCreatedAtAscIdAsc(storeId)).thenReturn(BooksMock.books);
+        indexer.rebuildAll();
+    }
+
+    @AfterEach
+    void shutdown() {
+        indexer.shutdown();
+    }
+
+    private static Book book(Long id, String title) {
+        return Book.builder().id(id).title(title).createdAt(LocalDate.of(2025, 5, 1)).build();
+    }
+
+    private Optional<List<Long>> searchTitle(Long storeId, String title) {
+        return textIndex.findMatchingIds(storeId, BooksFilterDTO.builder().title(title).build());
+    }
+
+    // what a transaction publishing the event goes through, committing at the given version
+    private void commit(BookChangedEvent event, long version) {
+        when(storeRepository.findCatalogVersionById(event.getStoreId())).thenReturn(Optional.of(version));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indexer.onCatalogChanging(event);
+            indexer.onBookChanged(event);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void mustApplyOwnChangesWithoutRebuilding() {
+        commit(BookChangedEvent.saved(storeId, book(100L, "Sagarana")), 4);
+        when(storeRepository.findCatalogVersions()).thenReturn(List.of(new StoreCatalogVersionRow(storeId, 4L)));
+
+        indexer.resync();
+
+        verify(storeRepository).bumpCatalogVersion(storeId);
+        verify(versions).advance(storeId, 4L);
+        verify(bookRepository, after(200).times(1)).findByStoreIdOrderByCreatedAtAscIdAsc(storeId);
+        assertEquals(Optional.of(List.of(100L)), searchTitle(storeId, "sagarana"));
+    }
+
+    @Test
+    void mustRebuildStoresChangedByAnotherInstance() {
+        List<Book> changed = new ArrayList<>(BooksMock.books);
+        changed.add(book(100L, "Sagarana"));
+        when(storeRepository.findCatalogVersionById(storeId)).thenReturn(Optional.of(4L));
+        when(bookRepository.findByStoreIdOrderByCreatedAtAscIdAsc(storeId)).thenReturn(changed);
+        when(storeRepository.findCatalogVersions()).thenReturn(List.of(new StoreCatalogVersionRow(storeId, 4L)));
+
+        indexer.resync();
+
+        // once when reads move to the database, again when the rebuild lands
+        verify(versions, timeout(1000).times(2)).advance(storeId, 4L);
+        assertEquals(Optional.of(List.of(100L)), searchTitle(storeId, "sagarana"));
+    }
+
+    @Test
+    void mustRebuildWhenOwnChangeSkipsAVersion() {
+        List<Book> changed = new ArrayList<>(BooksMock.books);
+        changed.add(book(100L, "Sagarana"));
+        changed.add(book(101L, "Vidas Secas"));
+        when(bookRepository.findByStoreIdOrderByCreatedAtAscIdAsc(storeId)).thenReturn(changed);
+
+        // version 4 was committed by another instance
+        commit(BookChangedEvent.saved(storeId, book(101L, "Vidas Secas")), 5);
+
+        verify(versions, timeout(1000).times(2)).advance(storeId, 5L);
+        assertEquals(Optional.of(List.of(100L)), searchTitle(storeId, "sagarana"));
+        assertEquals(Optional.of(List.of(101L)), searchTitle(storeId, "vidas"));
+    }
+
+    @Test
+    void mustDropDeletedStores() {
+        when(storeRepository.findCatalogVersionById(storeId)).thenReturn(Optional.empty());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indexer.onCatalogChanging(new StoreChangedEvent(storeId));
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Optional.empty(), searchTitle(storeId, "dune"));
+        verify(versions).advance(storeId, 0L);
+    }
+
+    @Test
+    void mustNotServeStoresIndexedOnlyIncrementally() {
+        Long newStoreId = 2L;
+        Book first = book(200L, "Capitães da Areia");
+        Book second = book(201L, "Terras do Sem Fim");
+        when(bookRepository.findByStoreIdOrderByCreatedAtAscIdAsc(newStoreId)).thenReturn(List.of(first, second));
+
+        indexer.onBookChanged(BookChangedEvent.saved(newStoreId, second));
+        assertEquals(Optional.empty(), searchTitle(newStoreId, "capitaes"));
+
+        commit(BookChangedEvent.saved(newStoreId, second), 2);
+
+        verify(versions, timeout(1000).times(2)).advance(newStoreId, 2L);
+        assertEquals(Optional.of(List.of(200L)), searchTitle(newStoreId, "capitaes"));
+    }
+}
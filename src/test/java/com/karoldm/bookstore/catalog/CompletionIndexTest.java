@@ -0,0 +1,91 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.dto.responses.ResponseCompletionsDTO;
+import com.karoldm.bookstore.entities.Book;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompletionIndexTest {
+    private final Long storeId = 1L;
+    private CompletionIndex completionIndex;
+
+    private static Book book(long id, String title, String author, int rating) {
+        return Book.builder().id(id).title(title).author(author).rating(rating).build();
+    }
+
+    @BeforeEach
+    void setup() {
+        completionIndex = new CompletionIndex(new SimpleMeterRegistry());
+        completionIndex.rebuild(storeId, List.of(
+                book(1L, "Harry Potter and the Philosopher's Stone", "J.K. Rowling", 4),
+                book(2L, "Harry Potter and the Chamber of Secrets", "J.K. Rowling", 3),
+                book(3L, "Harriet the Spy", "Louise Fitzhugh", 5),
+                book(4L, "Hamlet", "William Shakespeare", 5),
+                book(5L, "O Tempo e o Vento", "Érico Veríssimo", 2),
+                book(6L, "Harry", "Unknown", 1)
+        ));
+    }
+
+    private ResponseCompletionsDTO complete(String prefix, int limit) {
+        return completionIndex.complete(storeId, prefix, limit).orElseThrow();
+    }
+
+    @Test
+    void mustRankCompletionsByRating() {
+        assertEquals(
+                List.of("Harriet the Spy", "Harry Potter and the Philosopher's Stone",
+                        "Harry Potter and the Chamber of Secrets", "Harry"),
+                complete("har", 10).getTitles());
+        assertEquals(Set.of("Hamlet", "Harriet the Spy"), Set.copyOf(complete("ha", 2).getTitles()));
+    }
+
+    @Test
+    void mustMatchNormalizedPrefixesInsideEdges() {
+        assertEquals(List.of("Érico Veríssimo"), complete("ERICO v", 5).getAuthors());
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone", "Harry Potter and the Chamber of Secrets"),
+                complete("harry potter and the", 5).getTitles());
+        assertTrue(complete("harry potter x", 5).getTitles().isEmpty());
+        assertTrue(complete("zz", 5).getTitles().isEmpty());
+    }
+
+    @Test
+    void mustWeighSharedAuthorsByBestRatingThenBooks() {
+        completionIndex.index(storeId, book(7L, "Fantastic Beasts", "J.K. Rowling", 1));
+
+        assertEquals(List.of("J.K. Rowling"), complete("j", 5).getAuthors());
+        completionIndex.index(storeId, book(8L, "The Fault in Our Stars", "John Green", 4));
+        completionIndex.index(storeId, book(9L, "Jane Eyre", "Jane Austen", 5));
+        assertEquals(List.of("Jane Austen", "J.K. Rowling", "John Green"), complete("j", 5).getAuthors());
+    }
+
+    @Test
+    void mustApplyIncrementalChanges() {
+        completionIndex.remove(storeId, 6L);
+        completionIndex.remove(storeId, 3L);
+        assertEquals(
+                List.of("Harry Potter and the Philosopher's Stone", "Harry Potter and the Chamber of Secrets"),
+                complete("har", 10).getTitles());
+
+        completionIndex.index(storeId, book(2L, "Harry Potter and the Chamber of Secrets", "J.K. Rowling", 5));
+        assertEquals("Harry Potter and the Chamber of Secrets", complete("harry", 1).getTitles().get(0));
+
+        completionIndex.remove(storeId, 1L);
+        completionIndex.remove(storeId, 2L);
+        assertEquals(List.of("Hamlet"), complete("h", 10).getTitles());
+        assertTrue(complete("j", 10).getAuthors().isEmpty());
+    }
+
+    @Test
+    void mustFallBackWhileStoreIsNotIndexed() {
+        completionIndex.invalidate(storeId);
+
+        assertTrue(completionIndex.complete(storeId, "har", 5).isEmpty());
+        assertTrue(completionIndex.complete(2L, "har", 5).isEmpty());
+    }
+}
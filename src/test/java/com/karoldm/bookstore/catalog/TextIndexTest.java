@@ -0,0 +1,132 @@
+package com.karoldm.bookstore.catalog;
+
+import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.mocks.BooksMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextIndexTest {
+    private final Long storeId = 1L;
+    private SimpleMeterRegistry meterRegistry;
+    private TextIndex textIndex;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        textIndex = new TextIndex(meterRegistry);
+        textIndex.rebuild(storeId, BooksMock.books);
+    }
+
+    private List<Long> search(BooksFilterDTO filter) {
+        return textIndex.findMatchingIds(storeId, filter).orElseThrow();
+    }
+
+    @Test
+    void mustMatchWordPrefixesIgnoringCaseAndAccents() {
+        assertEquals(List.of(3L), search(BooksFilterDTO.builder().title("GUNSL").build()));
+        assertEquals(List.of(3L), search(BooksFilterDTO.builder().author("stéphen").build()));
+    }
+
+    @Test
+    void mustIntersectTokensAndFields() {
+        List<Long> ids = search(BooksFilterDTO.builder().title("dark").summary("series").build());
+
+        assertEquals(List.of(3L), ids);
+        assertTrue(search(BooksFilterDTO.builder().title("dark").author("gaiman").build()).isEmpty());
+    }
+
+    @Test
+    void mustOrderByCreatedAtThenId() {
+        List<Long> ids = search(BooksFilterDTO.builder().title("the").build());
+
+        List<Long> expected = BooksMock.books.stream()
+                .filter(book -> book.getTitle().toLowerCase().matches("(.*\\W)?the.*"))
+                .sorted((a, b) -> a.getCreatedAt().equals(b.getCreatedAt())
+                        ? a.getId().compareTo(b.getId())
+                        : a.getCreatedAt().compareTo(b.getCreatedAt()))
+                .map(Book::getId)
+                .toList();
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void mustTolerateTyposInTitleAndAuthorWhenFuzzy() {
+        assertTrue(search(BooksFilterDTO.builder().author("tolkin").build()).isEmpty());
+
+        assertEquals(List.of(17L, 19L), search(BooksFilterDTO.builder().author("tolkin").fuzzy(true).build()));
+        assertEquals(List.of(8L), search(BooksFilterDTO.builder().title("dyne").fuzzy(true).build()));
+    }
+
+    @Test
+    void mustBoundEditsByRequestAndTokenLength() {
+        assertEquals(List.of(17L, 19L), search(BooksFilterDTO.builder().author("tolkein").fuzzy(true).build()));
+        assertTrue(search(BooksFilterDTO.builder().author("tolkein").fuzzy(true).maxEdits(1).build()).isEmpty());
+        assertEquals(List.of(17L, 19L), search(BooksFilterDTO.builder().author("tolkein").fuzzy(true).maxEdits(9).build()));
+
+        // two characters allow no edit, otherwise "xf" would reach "of"
+        assertTrue(search(BooksFilterDTO.builder().title("xf").fuzzy(true).build()).isEmpty());
+        // a single edit for up to five characters
+        assertTrue(search(BooksFilterDTO.builder().title("dyme").fuzzy(true).build()).isEmpty());
+    }
+
+    @Test
+    void mustNotApplyFuzzyMatchingToSummary() {
+        assertTrue(search(BooksFilterDTO.builder().summary("tolkin").fuzzy(true).build()).isEmpty());
+    }
+
+    @Test
+    void mustApplyIncrementalChanges() {
+        Book book = Book.builder()
+                .id(100L)
+                .title("Grande Sertão: Veredas")
+                .author("João Guimarães Rosa")
+                .createdAt(LocalDate.of(2025, 5, 1))
+                .build();
+
+        textIndex.index(storeId, book);
+        assertEquals(List.of(100L), search(BooksFilterDTO.builder().title("sertao").build()));
+
+        book.setTitle("Sagarana");
+        textIndex.index(storeId, book);
+        assertTrue(search(BooksFilterDTO.builder().title("sertao").build()).isEmpty());
+        assertEquals(List.of(100L), search(BooksFilterDTO.builder().title("saga").build()));
+
+        textIndex.remove(storeId, 100L);
+        assertTrue(search(BooksFilterDTO.builder().title("saga").build()).isEmpty());
+    }
+
+    @Test
+    void mustFallBackWithoutTextFiltersOrReadyIndex() {
+        assertEquals(Optional.empty(),
+                textIndex.findMatchingIds(storeId, BooksFilterDTO.builder().rating(5).build()));
+
+        textIndex.invalidate(storeId);
+
+        assertEquals(Optional.empty(),
+                textIndex.findMatchingIds(storeId, BooksFilterDTO.builder().title("dark").build()));
+        assertEquals(Optional.empty(),
+                textIndex.findMatchingIds(2L, BooksFilterDTO.builder().title("dark").build()));
+    }
+
+    @Test
+    void mustReportMemoryPerStore() {
+        double bytes = meterRegistry.get("bookstore.catalog.index.memory")
+                .tag("store", "1")
+                .gauge()
+                .value();
+
+        assertTrue(bytes > 0);
+        assertEquals(BooksMock.books.size(), meterRegistry.get("bookstore.catalog.index.documents")
+                .tag("store", "1")
+                .gauge()
+                .value());
+    }
+}
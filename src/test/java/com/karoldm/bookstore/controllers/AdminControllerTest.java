@@ -11,7 +11,11 @@ import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.security.SecurityConfig;
+import com.karoldm.bookstore.security.PrincipalCache;
+import com.karoldm.bookstore.security.RateLimitFilter;
 import com.karoldm.bookstore.security.SecurityFilter;
+import com.karoldm.bookstore.security.TokenVersions;
+import com.karoldm.bookstore.security.UserPrincipal;
 import com.karoldm.bookstore.services.AdminService;
 import com.karoldm.bookstore.services.StoreSecurityService;
 import com.karoldm.bookstore.services.TokenService;
@@ -23,6 +27,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -36,14 +41,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AdminController.class)
-@Import({SecurityConfig.class, SecurityFilter.class, StoreSecurityService.class})
+@Import({SecurityConfig.class, SecurityFilter.class, RateLimitFilter.class, PrincipalCache.class, StoreSecurityService.class})
 @AutoConfigureMockMvc(addFilters = true)
+@TestPropertySource(properties = "api.security.principals.maximum-size=0")
 class AdminControllerTest {
     @MockitoBean
     private AdminService adminService;
     @MockitoBean
     private TokenService tokenService;
     @MockitoBean
+    private TokenVersions tokenVersions;
+    @MockitoBean
     private AppUserRepository appUserRepository;
     @Autowired
     private MockMvc mockMvc;
@@ -122,7 +130,7 @@ class AdminControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(adminService, never()).updateAccount(any(), any());
         }
 
@@ -137,7 +145,7 @@ class AdminControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(adminService, never()).updateAccount(any(), any());
         }
 
@@ -145,8 +153,8 @@ class AdminControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(put(baseURL)
@@ -156,7 +164,7 @@ class AdminControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(adminService, never()).updateAccount(any(), any());
         }
@@ -165,8 +173,8 @@ class AdminControllerTest {
         void mustReturnForbiddenForEmployeeRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(put(baseURL)
@@ -176,7 +184,7 @@ class AdminControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(adminService, never()).updateAccount(any(), any());
         }
@@ -185,11 +193,11 @@ class AdminControllerTest {
         void mustReturnOkWhenAdminUpdateYourOwnAccount() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(adminService.updateAccount(admin, updateUserDTO))
+            when(adminService.updateAccount(UserPrincipal.of(admin), updateUserDTO))
                     .thenReturn(responseUserDTO);
 
             mockMvc.perform(put(baseURL)
@@ -203,10 +211,42 @@ class AdminControllerTest {
                     .andExpect(jsonPath("username").value(responseUserDTO.getUsername()));
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(adminService, times(1))
-                    .updateAccount(admin, updateUserDTO);
+                    .updateAccount(UserPrincipal.of(admin), updateUserDTO);
+        }
+
+        @Test
+        void mustAuthenticateFromSelfContainedTokenWithoutLoadingUser() throws Exception {
+            UserPrincipal principal = new UserPrincipal(5L, admin.getUsername(), Roles.ADMIN, 1L, 0);
+            when(tokenService.principalOf(validToken)).thenReturn(Optional.of(principal));
+            when(tokenVersions.isCurrent(principal)).thenReturn(true);
+            when(adminService.updateAccount(principal, updateUserDTO)).thenReturn(responseUserDTO);
+
+            mockMvc.perform(put(baseURL)
+                            .header("Authorization", validToken)
+                            .content(objectMapper.writeValueAsString(updateUserDTO))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
+            verify(adminService, times(1)).updateAccount(principal, updateUserDTO);
+        }
+
+        @Test
+        void mustReturnUnauthorizedForRevokedSelfContainedToken() throws Exception {
+            UserPrincipal principal = new UserPrincipal(5L, admin.getUsername(), Roles.ADMIN, 1L, 0);
+            when(tokenService.principalOf(validToken)).thenReturn(Optional.of(principal));
+            when(tokenVersions.isCurrent(principal)).thenReturn(false);
+
+            mockMvc.perform(put(baseURL)
+                            .header("Authorization", validToken)
+                            .content(objectMapper.writeValueAsString(updateUserDTO))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isUnauthorized());
+
+            verify(adminService, never()).updateAccount(any(), any());
         }
     }
 
@@ -218,7 +258,7 @@ class AdminControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(adminService, never()).deleteAccount(any());
         }
 
@@ -232,7 +272,7 @@ class AdminControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(adminService, never()).deleteAccount(any());
         }
 
@@ -240,8 +280,8 @@ class AdminControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(delete(baseURL)
@@ -250,7 +290,7 @@ class AdminControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(adminService, never()).deleteAccount(any());
         }
@@ -259,8 +299,8 @@ class AdminControllerTest {
         void mustReturnForbiddenForEmployeeRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(delete(baseURL)
@@ -269,7 +309,7 @@ class AdminControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(adminService, never()).deleteAccount(any());
         }
@@ -278,8 +318,8 @@ class AdminControllerTest {
         void mustReturnOkWhenAdminDeleteYourOwnAccount() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
             mockMvc.perform(delete(baseURL)
@@ -288,10 +328,10 @@ class AdminControllerTest {
                     .andExpect(status().isNoContent());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(adminService, times(1))
-                    .deleteAccount(admin);
+                    .deleteAccount(UserPrincipal.of(admin));
         }
     }
 }
@@ -3,11 +3,13 @@ package com.karoldm.bookstore.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.karoldm.bookstore.dto.requests.LoginRequestDTO;
+import com.karoldm.bookstore.dto.requests.RefreshTokenDTO;
 import com.karoldm.bookstore.dto.requests.RegisterStoreDTO;
 import com.karoldm.bookstore.dto.responses.ResponseAuthDTO;
 import com.karoldm.bookstore.dto.responses.ResponseStoreDTO;
 import com.karoldm.bookstore.dto.responses.ResponseUserDTO;
 import com.karoldm.bookstore.exceptions.StoreAlreadyExist;
+import com.karoldm.bookstore.exceptions.TokenRevokedException;
 import com.karoldm.bookstore.exceptions.UserNotFoundException;
 import com.karoldm.bookstore.exceptions.UsernameAlreadyExist;
 import com.karoldm.bookstore.repositories.AppUserRepository;
@@ -244,5 +246,34 @@ class AuthControllerTest {
             verify(authService, times(0)).login(loginRequestDTO);
         }
     }
-}
 
+    @Nested
+    class LogoutTests {
+        @Test
+        void mustRevokeRefreshToken() throws Exception {
+            RefreshTokenDTO refreshTokenDTO = RefreshTokenDTO.builder()
+                    .refreshToken("refresh-token")
+                    .build();
+
+            mockMvc.perform(post("/v1/auth/logout")
+                            .content(objectMapper.writeValueAsString(refreshTokenDTO))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isNoContent());
+
+            verify(authService, times(1)).logout(refreshTokenDTO);
+        }
+
+        @Test
+        void mustReturnForbiddenForRevokedRefreshToken() throws Exception {
+            RefreshTokenDTO refreshTokenDTO = RefreshTokenDTO.builder()
+                    .refreshToken("refresh-token")
+                    .build();
+            when(authService.refreshToken(refreshTokenDTO)).thenThrow(new TokenRevokedException());
+
+            mockMvc.perform(post("/v1/auth/refresh")
+                            .content(objectMapper.writeValueAsString(refreshTokenDTO))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isForbidden());
+        }
+    }
+}
@@ -1,18 +1,38 @@
 package com.karoldm.bookstore.controllers;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.karoldm.bookstore.cache.CatalogETags;
+import com.karoldm.bookstore.cache.StoreCatalogVersions;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
 import com.karoldm.bookstore.dto.requests.UpdateBookAvailableDTO;
+import com.karoldm.bookstore.dto.requests.UpdateBooksAvailableDTO;
 import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookFacetsDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookPageDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookSearchDTO;
+import com.karoldm.bookstore.dto.responses.ResponseCompletionsDTO;
+import com.karoldm.bookstore.dto.responses.ImportErrorDTO;
+import com.karoldm.bookstore.dto.responses.ResponseImportDTO;
+import com.karoldm.bookstore.dto.responses.ResponseUpdateAvailableDTO;
 import com.karoldm.bookstore.entities.AppUser;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.exceptions.InvalidCursorException;
+import com.karoldm.bookstore.exceptions.InvalidPageSizeException;
 import com.karoldm.bookstore.mocks.BooksMock;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.security.SecurityConfig;
+import com.karoldm.bookstore.security.PrincipalCache;
+import com.karoldm.bookstore.security.RateLimitFilter;
 import com.karoldm.bookstore.security.SecurityFilter;
+import com.karoldm.bookstore.security.TokenVersions;
+import com.karoldm.bookstore.security.UserPrincipal;
+import com.karoldm.bookstore.io.CatalogFormat;
+import com.karoldm.bookstore.services.BookExportService;
+import com.karoldm.bookstore.services.BookImportService;
+import com.karoldm.bookstore.services.BookSearchService;
 import com.karoldm.bookstore.services.BookService;
 import com.karoldm.bookstore.services.StoreSecurityService;
 import com.karoldm.bookstore.services.TokenService;
@@ -28,12 +48,18 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockPart;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -41,20 +67,33 @@ import java.util.stream.Collectors;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookController.class)
-@Import({SecurityConfig.class, SecurityFilter.class, StoreSecurityService.class})
+@Import({SecurityConfig.class, SecurityFilter.class, RateLimitFilter.class, PrincipalCache.class, StoreSecurityService.class,
+        CatalogETags.class, StoreCatalogVersions.class})
 @AutoConfigureMockMvc(addFilters = true)
+@TestPropertySource(properties = "api.security.principals.maximum-size=0")
 class BookControllerTest {
     @MockitoBean
     private BookService bookService;
     @MockitoBean
+    private BookSearchService bookSearchService;
+    @MockitoBean
+    private BookExportService bookExportService;
+    @MockitoBean
+    private BookImportService bookImportService;
+    @MockitoBean
     private StoreSecurityService storeSecurityService;
     @MockitoBean
     private TokenService tokenService;
     @MockitoBean
+    private TokenVersions tokenVersions;
+    @MockitoBean
     private AppUserRepository appUserRepository;
     @Autowired
     private MockMvc mockMvc;
@@ -187,7 +226,7 @@ class BookControllerTest {
             mockMvc.perform(get(baseURL))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any(String.class));
+            verify(appUserRepository, never()).findPrincipalByUsername(any(String.class));
             verify(storeSecurityService, never()).canAccessStore(any(), any());
             verify(bookService, never()).listAll(
                     any(Long.class),
@@ -206,7 +245,7 @@ class BookControllerTest {
                             .header("Authorization", "invalid-token"))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).canAccessStore(any(), any());
             verify(bookService, never()).listAll(
                     any(Long.class),
@@ -220,8 +259,8 @@ class BookControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(get(baseURL)
@@ -230,7 +269,7 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).canAccessStore(any(), any());
 
@@ -246,21 +285,21 @@ class BookControllerTest {
         void mustReturnForbiddenWhenAdminAccessesWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.canAccessStore(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(get(baseURL)
                             .header("Authorization", validToken))
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(wrongAdmin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(bookService, never()).listAll(
                     any(Long.class),
@@ -276,11 +315,11 @@ class BookControllerTest {
 
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.canAccessStore(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(bookService.listAll(testStoreId, 0, 10, booksFilterDTO))
                     .thenReturn(new HashSet<>(listBooks.stream().toList().subList(0, 10)));
@@ -295,10 +334,46 @@ class BookControllerTest {
                     .listAll(testStoreId, 0, 10, booksFilterDTO);
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(admin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
+        }
+
+        @Test
+        void mustAnswerMatchingETagWithoutListing() throws Exception {
+            BooksFilterDTO booksFilterDTO = BooksFilterDTO.builder().build();
+
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
+
+            when(bookService.listAll(testStoreId, 0, 10, booksFilterDTO))
+                    .thenReturn(new HashSet<>(listBooks.stream().toList().subList(0, 10)));
+
+            String eTag = mockMvc.perform(get(baseURL)
+                            .header("Authorization", validToken))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getHeader("ETag");
+
+            mockMvc.perform(get(baseURL)
+                            .header("Authorization", validToken)
+                            .header("If-None-Match", eTag))
+                    .andExpect(status().isNotModified());
+
+            mockMvc.perform(get(baseURL + "?title=dune")
+                            .header("Authorization", validToken)
+                            .header("If-None-Match", eTag))
+                    .andExpect(status().isOk());
+
+            verify(bookService, times(1))
+                    .listAll(testStoreId, 0, 10, booksFilterDTO);
         }
 
         @Test
@@ -307,11 +382,11 @@ class BookControllerTest {
 
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.canAccessStore(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(bookService.listAll(testStoreId, 0, 5, booksFilterDTO))
                     .thenReturn(new HashSet<>(listBooks.stream().toList().subList(0, 5)));
@@ -326,21 +401,21 @@ class BookControllerTest {
                     .listAll(testStoreId, 0, 5, booksFilterDTO);
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(admin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
         }
 
         @Test
         void mustReturnForbiddenWhenEmployeeAccessesWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
-            when(storeSecurityService.canAccessStore(wrongEmployee, testStoreId))
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(wrongEmployee), testStoreId))
                     .thenReturn(false);
 
             mockMvc.perform(get(baseURL)
@@ -348,10 +423,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(wrongEmployee, testStoreId);
+                    .canAccessStore(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(bookService, never()).listAll(
                     any(Long.class),
@@ -367,11 +442,11 @@ class BookControllerTest {
 
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
-            when(storeSecurityService.canAccessStore(employee, testStoreId))
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId))
                     .thenReturn(true);
 
             when(bookService.listAll(testStoreId, 0, 5, booksFilterDTO))
@@ -387,10 +462,403 @@ class BookControllerTest {
                     .listAll(testStoreId, 0, 5, booksFilterDTO);
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(employee, testStoreId);
+                    .canAccessStore(UserPrincipal.of(employee), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
+        }
+    }
+
+    @Nested
+    class ListBooksByCursorTest {
+
+        @Test
+        void mustReturnForbiddenWhenAdminAccessesWrongStore() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
+
+            mockMvc.perform(get(baseURL + "?cursor=")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isForbidden());
+
+            verify(bookService, never()).listAllByCursor(any(), any(), any(Integer.class), any());
+        }
+
+        @Test
+        void mustReturnFirstPageWithNextCursor() throws Exception {
+            BooksFilterDTO booksFilterDTO = BooksFilterDTO.builder().build();
+            List<ResponseBookDTO> books = listBooks.stream().toList().subList(0, 5);
+
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
+
+            when(bookService.listAllByCursor(testStoreId, "", 5, booksFilterDTO))
+                    .thenReturn(ResponseBookPageDTO.builder()
+                            .books(books)
+                            .nextCursor("next-cursor")
+                            .build());
+
+            mockMvc.perform(get(baseURL + "?cursor=&size=5")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.books.length()").value(5))
+                    .andExpect(jsonPath("$.nextCursor").value("next-cursor"));
+
+            verify(bookService, times(1))
+                    .listAllByCursor(testStoreId, "", 5, booksFilterDTO);
+
+            verify(bookService, never()).listAll(
+                    any(Long.class),
+                    any(Integer.class),
+                    any(Integer.class),
+                    any(BooksFilterDTO.class)
+            );
+        }
+
+        @Test
+        void mustReturnBadRequestForInvalidCursor() throws Exception {
+            BooksFilterDTO booksFilterDTO = BooksFilterDTO.builder().build();
+
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
+
+            when(bookService.listAllByCursor(testStoreId, "invalid", 10, booksFilterDTO))
+                    .thenThrow(new InvalidCursorException("invalid"));
+
+            mockMvc.perform(get(baseURL + "?cursor=invalid")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void mustReturnBadRequestForPageSizeOutOfBounds() throws Exception {
+            BooksFilterDTO booksFilterDTO = BooksFilterDTO.builder().build();
+
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
+
+            when(bookService.listAllByCursor(testStoreId, "", 0, booksFilterDTO))
+                    .thenThrow(new InvalidPageSizeException(0, BookService.MAX_CURSOR_PAGE_SIZE));
+
+            mockMvc.perform(get(baseURL + "?cursor=&size=0")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.title").value("Invalid page size"));
+        }
+    }
+
+    @Nested
+    class SearchBooksTest {
+
+        @Test
+        void mustReturnForbiddenWhenEmployeeSearchesWrongStore() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(wrongEmployee), testStoreId)).thenReturn(false);
+
+            mockMvc.perform(get(baseURL + "/search?q=tolkien")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isForbidden());
+
+            verify(bookSearchService, never()).search(any(), any(), any(Integer.class), any(Integer.class));
+        }
+
+        @Test
+        void mustReturnRankedResults() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
+
+            when(bookSearchService.search(testStoreId, "tolkien", 0, 10))
+                    .thenReturn(List.of(ResponseBookSearchDTO.builder()
+                            .book(responseBookDTO)
+                            .score(0.8)
+                            .highlights(Map.of("author", "J.R.R. <mark>Tolkien</mark>"))
+                            .build()));
+
+            mockMvc.perform(get(baseURL + "/search?q=tolkien")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].book.id").value(testBookId))
+                    .andExpect(jsonPath("$[0].highlights.author").value("J.R.R. <mark>Tolkien</mark>"));
+
+            verify(bookSearchService, times(1)).search(testStoreId, "tolkien", 0, 10);
+        }
+    }
+
+    @Nested
+    class ExportBooksTest {
+
+        @Test
+        void mustReturnForbiddenWhenEmployeeExports() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(employee), testStoreId)).thenReturn(false);
+
+            mockMvc.perform(get(baseURL + "/export")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isForbidden());
+
+            verify(bookExportService, never()).export(any(), any(), any(Boolean.class), any());
+        }
+
+        @Test
+        void mustReturnBadRequestForUnsupportedFormat() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
+
+            mockMvc.perform(get(baseURL + "/export?format=xml")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isBadRequest());
+
+            verify(bookExportService, never()).export(any(), any(), any(Boolean.class), any());
+        }
+
+        @Test
+        void mustStreamCatalogAsCsv() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
+
+            doAnswer(invocation -> {
+                OutputStream outputStream = invocation.getArgument(3);
+                outputStream.write("id,title\r\n2,book test\r\n".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(bookExportService).export(eq(testStoreId), eq(CatalogFormat.CSV), eq(false), any());
+
+            MvcResult result = mockMvc.perform(get(baseURL + "/export?format=csv")
+                            .header("Authorization", validToken))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Disposition", "attachment; filename=\"books-1.csv\""))
+                    .andExpect(content().string("id,title\r\n2,book test\r\n"));
+        }
+    }
+
+    @Nested
+    class ImportBooksTest {
+        private final String csv = "title,summary,author,releasedAt,rating,available\r\n"
+                + "Dune,summary,Frank Herbert,1965-08-01,5,true\r\n"
+                + ",summary,nobody,1965-08-01,9,true\r\n";
+
+        @Test
+        void mustReturnForbiddenWhenEmployeeImports() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            mockMvc.perform(post(baseURL + "/import")
+                            .header("Authorization", validToken)
+                            .contentType("text/csv")
+                            .content(csv))
+                    .andExpect(status().isForbidden());
+
+            verify(bookImportService, never()).importBooks(any(), any(), any());
+        }
+
+        @Test
+        void mustReturnUnsupportedMediaTypeForJson() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            mockMvc.perform(post(baseURL + "/import")
+                            .header("Authorization", validToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isUnsupportedMediaType());
+
+            verify(bookImportService, never()).importBooks(any(), any(), any());
+        }
+
+        @Test
+        void mustReportImportedAndRejectedRows() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
+            );
+
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
+
+            when(bookImportService.importBooks(eq(testStoreId), eq(CatalogFormat.CSV), any())).thenReturn(
+                    ResponseImportDTO.builder()
+                            .imported(1)
+                            .rejected(1)
+                            .errors(List.of(ImportErrorDTO.builder().line(3).message("title: must not be blank").build()))
+                            .build()
+            );
+
+            mockMvc.perform(post(baseURL + "/import")
+                            .header("Authorization", validToken)
+                            .contentType("text/csv;charset=UTF-8")
+                            .content(csv))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(1))
+                    .andExpect(jsonPath("$.rejected").value(1))
+                    .andExpect(jsonPath("$.errors[0].line").value(3));
+        }
+    }
+
+    @Nested
+    class UpdateAvailableInBulkTests {
+        private final UpdateBooksAvailableDTO updateBooksAvailableDTO = UpdateBooksAvailableDTO.builder()
+                .books(List.of(
+                        UpdateBooksAvailableDTO.Item.builder().id(testBookId).available(true).build(),
+                        UpdateBooksAvailableDTO.Item.builder().id(99L).available(false).build()
+                ))
+                .build();
+
+        @Test
+        void mustReturnOkWhenEmployeeChangeAvailableOfOwnStore() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
+
+            when(bookService.changeAvailable(eq(testStoreId), any(UpdateBooksAvailableDTO.class))).thenReturn(
+                    ResponseUpdateAvailableDTO.builder().updated(1).notFound(List.of(99L)).build()
+            );
+
+            mockMvc.perform(put(baseURL + "/available")
+                            .header("Authorization", validToken)
+                            .content(objectMapper.writeValueAsString(updateBooksAvailableDTO))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("updated").value(1))
+                    .andExpect(jsonPath("notFound[0]").value(99));
+
+            verify(bookService, times(1))
+                    .changeAvailable(eq(testStoreId), any(UpdateBooksAvailableDTO.class));
+        }
+
+        @Test
+        void mustReturnBadRequestWhenNoBookIsSent() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            mockMvc.perform(put(baseURL + "/available")
+                            .header("Authorization", validToken)
+                            .content("{\"books\": []}")
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest());
+
+            verify(bookService, never()).changeAvailable(any(), any(UpdateBooksAvailableDTO.class));
+        }
+    }
+
+    @Nested
+    class AutocompleteBooksTest {
+        @Test
+        void mustReturnCompletionsForPrefix() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
+
+            when(bookSearchService.complete(testStoreId, "har", 3)).thenReturn(
+                    ResponseCompletionsDTO.builder()
+                            .titles(List.of("Harry Potter"))
+                            .authors(List.of("Harper Lee"))
+                            .build()
+            );
+
+            mockMvc.perform(get(baseURL + "/autocomplete?q=har&limit=3")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("titles[0]").value("Harry Potter"))
+                    .andExpect(jsonPath("authors[0]").value("Harper Lee"));
+        }
+    }
+
+    @Nested
+    class CountBookFacetsTest {
+        @Test
+        void mustReturnFacetsForFilter() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
+
+            BooksFilterDTO filter = BooksFilterDTO.builder().available(true).build();
+            when(bookService.countFacets(testStoreId, filter)).thenReturn(
+                    ResponseBookFacetsDTO.builder()
+                            .total(3)
+                            .rating(Map.of(5, 3L))
+                            .available(Map.of(true, 3L))
+                            .releaseYear(Map.of(1965, 3L))
+                            .build()
+            );
+
+            mockMvc.perform(get(baseURL + "/facets?available=true")
+                            .header("Authorization", validToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("total").value(3))
+                    .andExpect(jsonPath("rating.5").value(3))
+                    .andExpect(jsonPath("releaseYear.1965").value(3));
+
+            verify(bookService, times(1)).countFacets(testStoreId, filter);
         }
     }
 
@@ -409,7 +877,7 @@ class BookControllerTest {
                             .contentType(MediaType.MULTIPART_FORM_DATA))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(bookService, never()).updateBook(any(), any());
         }
@@ -432,7 +900,7 @@ class BookControllerTest {
                             .header("Authorization", "invalid-token"))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(bookService, never()).updateBook(any(), any());
         }
@@ -441,8 +909,8 @@ class BookControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
 
@@ -459,7 +927,7 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -470,11 +938,11 @@ class BookControllerTest {
         void mustReturnForbiddenWhenAdminUpdateWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(HttpMethod.PUT, baseURL + "/" + testBookId)
@@ -490,10 +958,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(bookService, never()).updateBook(any(), any());
         }
@@ -502,11 +970,11 @@ class BookControllerTest {
         void mustReturnOkWhenAdminUpdateOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(bookService.updateBook(any(), any()))
                     .thenReturn(responseBookDTO);
@@ -534,10 +1002,10 @@ class BookControllerTest {
                     .andExpect(jsonPath("author").value(responseBookDTO.getAuthor()));
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, times(1))
                     .updateBook(any(), any());
@@ -548,8 +1016,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeUpdateWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
 
@@ -566,10 +1034,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(bookService, never()).updateBook(any(), any());
         }
@@ -579,8 +1047,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeUpdateOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(HttpMethod.PUT, baseURL + "/" + testBookId)
@@ -596,10 +1064,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(employee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(employee), testStoreId);
 
             verify(bookService, never()).updateBook(any(), any());
         }
@@ -608,11 +1076,11 @@ class BookControllerTest {
         void mustReturnBadRequestWhenUpdateWithWrongBody() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             MockPart invalidTitle =  new MockPart("title", "".getBytes());
 
@@ -628,10 +1096,10 @@ class BookControllerTest {
                             .header("Authorization", validToken))
                     .andExpect(status().isBadRequest());
 
-            verify(storeSecurityService, never()).isStoreAdmin(admin, testStoreId);
+            verify(storeSecurityService, never()).isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, never()).updateBook(any(), any());
         }
@@ -645,7 +1113,7 @@ class BookControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(bookService, never()).deleteBook(testBookId);
         }
@@ -660,7 +1128,7 @@ class BookControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(bookService, never()).deleteBook(testBookId);
         }
@@ -669,8 +1137,8 @@ class BookControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(delete(baseURL + "/" + testBookId)
@@ -679,7 +1147,7 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -690,11 +1158,11 @@ class BookControllerTest {
         void mustReturnForbiddenWhenAdminDeleteWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(delete(baseURL + "/" + testBookId)
                             .header("Authorization", validToken)
@@ -702,10 +1170,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(bookService, never()).deleteBook(testBookId);
         }
@@ -714,11 +1182,11 @@ class BookControllerTest {
         void mustReturnOkWhenAdminDeleteOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             mockMvc.perform(delete(baseURL + "/" + testBookId)
                             .header("Authorization", validToken)
@@ -726,10 +1194,10 @@ class BookControllerTest {
                     .andExpect(status().isNoContent());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, times(1))
                     .deleteBook(testBookId);
@@ -740,8 +1208,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeDeleteWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
             mockMvc.perform(delete(baseURL + "/" + testBookId)
@@ -750,10 +1218,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(bookService, never()).deleteBook(testBookId);
         }
@@ -763,8 +1231,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeDeleteOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(delete(baseURL + "/" + testBookId)
@@ -773,10 +1241,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(employee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(employee), testStoreId);
 
             verify(bookService, never()).deleteBook(testBookId);
         }
@@ -791,7 +1259,7 @@ class BookControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).canAccessStore(any(), any());
             verify(bookService, never()).changeAvailable(testBookId, updateBookAvailableDTO);
         }
@@ -807,7 +1275,7 @@ class BookControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).canAccessStore(any(), any());
             verify(bookService, never()).changeAvailable(testBookId, updateBookAvailableDTO);
         }
@@ -816,8 +1284,8 @@ class BookControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(put(baseURL + "/" + testBookId + "/available")
@@ -828,7 +1296,7 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).canAccessStore(any(), any());
 
@@ -839,11 +1307,11 @@ class BookControllerTest {
         void mustReturnForbiddenWhenAdminChangeAvailableWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(put(baseURL + "/" + testBookId + "/available")
                             .header("Authorization", validToken)
@@ -852,10 +1320,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(wrongAdmin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(bookService, never()).changeAvailable(testBookId, updateBookAvailableDTO);
         }
@@ -864,8 +1332,8 @@ class BookControllerTest {
         void mustReturnOkWhenAdminChangeAvailableOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
             responseBookDTO.setAvailable(updateBookAvailableDTO.getAvailable());
@@ -873,7 +1341,7 @@ class BookControllerTest {
             when(bookService.changeAvailable(testBookId, updateBookAvailableDTO))
                     .thenReturn(responseBookDTO);
 
-            when(storeSecurityService.canAccessStore(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             mockMvc.perform(put(baseURL + "/" + testBookId + "/available")
                             .header("Authorization", validToken)
@@ -891,10 +1359,10 @@ class BookControllerTest {
                     .andExpect(jsonPath("author").value(responseBookDTO.getAuthor()));
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(admin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, times(1))
                     .changeAvailable(testBookId, updateBookAvailableDTO);
@@ -905,8 +1373,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeChangeAvailableWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
             mockMvc.perform(put(baseURL + "/" + testBookId + "/available")
@@ -916,10 +1384,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(wrongEmployee, testStoreId);
+                    .canAccessStore(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(bookService, never()).changeAvailable(testBookId, updateBookAvailableDTO);
         }
@@ -929,8 +1397,8 @@ class BookControllerTest {
         void mustReturnOkWhenEmployeeChangeAvailableOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             responseBookDTO.setAvailable(updateBookAvailableDTO.getAvailable());
@@ -938,7 +1406,7 @@ class BookControllerTest {
             when(bookService.changeAvailable(testBookId, updateBookAvailableDTO))
                     .thenReturn(responseBookDTO);
 
-            when(storeSecurityService.canAccessStore(employee, testStoreId)).thenReturn(true);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
 
             mockMvc.perform(put(baseURL + "/" + testBookId + "/available")
                             .header("Authorization", validToken)
@@ -956,10 +1424,10 @@ class BookControllerTest {
                     .andExpect(jsonPath("author").value(responseBookDTO.getAuthor()));
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(employee, testStoreId);
+                    .canAccessStore(UserPrincipal.of(employee), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(bookService, times(1))
                     .changeAvailable(testBookId, updateBookAvailableDTO);
@@ -969,11 +1437,11 @@ class BookControllerTest {
         void mustReturnBadRequestWhenChangeAvailableWithWrongBody() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.canAccessStore(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             UpdateBookAvailableDTO invalidUpdateBookAvailableDTO1 =
                     UpdateBookAvailableDTO.builder().build();
@@ -984,10 +1452,10 @@ class BookControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isBadRequest());
 
-            verify(storeSecurityService, never()).canAccessStore(admin, testStoreId);
+            verify(storeSecurityService, never()).canAccessStore(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, never()).changeAvailable(testBookId, invalidUpdateBookAvailableDTO1);
         }
@@ -1010,7 +1478,7 @@ class BookControllerTest {
                             .contentType(MediaType.MULTIPART_FORM_DATA))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(bookService, never()).createBook(any(), any());
         }
@@ -1033,7 +1501,7 @@ class BookControllerTest {
                             .header("Authorization", "invalid-token"))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(bookService, never()).createBook(any(), any());
         }
@@ -1042,8 +1510,8 @@ class BookControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
@@ -1060,7 +1528,7 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -1071,11 +1539,11 @@ class BookControllerTest {
         void mustReturnForbiddenWhenAdminCreateWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
                     HttpMethod.POST, baseURL)
@@ -1091,10 +1559,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(bookService, never()).createBook(any(), any());
         }
@@ -1103,11 +1571,11 @@ class BookControllerTest {
         void mustReturnOkWhenAdminCreateOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(bookService.createBook(any(), any()))
                     .thenReturn(responseBookDTO);
@@ -1135,10 +1603,10 @@ class BookControllerTest {
                     .andExpect(jsonPath("$.cover").value(responseBookDTO.getCover()));
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, times(1))
                     .createBook(any(), any());
@@ -1148,8 +1616,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeCreateWrongBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
@@ -1166,10 +1634,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(bookService, never()).createBook(any(), any());
         }
@@ -1178,8 +1646,8 @@ class BookControllerTest {
         void mustReturnForbiddenWhenEmployeeCreateOwnBook() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
@@ -1196,10 +1664,10 @@ class BookControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(employee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(employee), testStoreId);
 
             verify(bookService, never()).createBook(any(), any());
         }
@@ -1208,11 +1676,11 @@ class BookControllerTest {
         void mustReturnBadRequestWhenCreateWithWrongBody() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             MockPart invalidTitle = new MockPart("title", "".getBytes());
 
@@ -1229,10 +1697,10 @@ class BookControllerTest {
                             .header("Authorization", validToken))
                     .andExpect(status().isBadRequest());
 
-            verify(storeSecurityService, never()).isStoreAdmin(admin, testStoreId);
+            verify(storeSecurityService, never()).isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(bookService, never()).createBook(any(), any());
         }
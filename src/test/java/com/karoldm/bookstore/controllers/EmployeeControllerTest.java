@@ -11,7 +11,11 @@ import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.security.SecurityConfig;
+import com.karoldm.bookstore.security.PrincipalCache;
+import com.karoldm.bookstore.security.RateLimitFilter;
 import com.karoldm.bookstore.security.SecurityFilter;
+import com.karoldm.bookstore.security.TokenVersions;
+import com.karoldm.bookstore.security.UserPrincipal;
 import com.karoldm.bookstore.services.EmployeeService;
 import com.karoldm.bookstore.services.StoreSecurityService;
 import com.karoldm.bookstore.services.TokenService;
@@ -24,6 +28,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -38,8 +43,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(EmployeeController.class)
-@Import({SecurityConfig.class, SecurityFilter.class, StoreSecurityService.class})
+@Import({SecurityConfig.class, SecurityFilter.class, RateLimitFilter.class, PrincipalCache.class, StoreSecurityService.class})
 @AutoConfigureMockMvc(addFilters = true)
+@TestPropertySource(properties = "api.security.principals.maximum-size=0")
 class EmployeeControllerTest {
     @MockitoBean
     private EmployeeService employeeService;
@@ -48,6 +54,8 @@ class EmployeeControllerTest {
     @MockitoBean
     private TokenService tokenService;
     @MockitoBean
+    private TokenVersions tokenVersions;
+    @MockitoBean
     private AppUserRepository appUserRepository;
     @Autowired
     private MockMvc mockMvc;
@@ -162,7 +170,7 @@ class EmployeeControllerTest {
             mockMvc.perform(get(baseURL))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any(String.class));
+            verify(appUserRepository, never()).findPrincipalByUsername(any(String.class));
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).listEmployees(testStoreId);
         }
@@ -176,7 +184,7 @@ class EmployeeControllerTest {
                             .header("Authorization", "invalid-token"))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).listEmployees(testStoreId);
         }
@@ -185,8 +193,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(get(baseURL)
@@ -195,7 +203,7 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -206,21 +214,21 @@ class EmployeeControllerTest {
         void mustReturnForbiddenWhenAdminAccessesWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(get(baseURL)
                             .header("Authorization", validToken))
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(employeeService, never()).listEmployees(testStoreId);
         }
@@ -229,11 +237,11 @@ class EmployeeControllerTest {
         void mustReturnOkWhenAdminAccessesOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(employeeService.listEmployees(testStoreId))
                     .thenReturn(listEmployees);
@@ -248,10 +256,10 @@ class EmployeeControllerTest {
                     .listEmployees(testStoreId);
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
         }
 
         @Test
@@ -259,11 +267,11 @@ class EmployeeControllerTest {
         void mustReturnForbiddenToEmployeeRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongEmployee, testStoreId))
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId))
                     .thenReturn(false);
 
             mockMvc.perform(get(baseURL)
@@ -271,10 +279,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(employeeService, never()).listEmployees(testStoreId);
         }
@@ -289,7 +297,7 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).updateEmployee(testStoreId, testEmployeeId, updateUserDTO);
         }
@@ -305,7 +313,7 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).updateEmployee(testStoreId, testEmployeeId, updateUserDTO);
         }
@@ -314,8 +322,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(put(baseURL + "/" + testEmployeeId)
@@ -325,7 +333,7 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -336,11 +344,11 @@ class EmployeeControllerTest {
         void mustReturnForbiddenWhenAdminUpdateEmployeeInWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(put(baseURL + "/" + testEmployeeId)
                             .header("Authorization", validToken)
@@ -349,10 +357,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(employeeService, never()).updateEmployee(testStoreId, testEmployeeId, updateUserDTO);
         }
@@ -361,11 +369,11 @@ class EmployeeControllerTest {
         void mustReturnOkWhenAdminUpdateEmployeeInOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(employeeService.updateEmployee(testStoreId, testEmployeeId, updateUserDTO))
                     .thenReturn(responseUserDTO);
@@ -382,10 +390,10 @@ class EmployeeControllerTest {
 
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(employeeService, times(1))
                     .updateEmployee(testStoreId, testEmployeeId, updateUserDTO);
@@ -396,8 +404,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenToEmployeeRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
             mockMvc.perform(put(baseURL + "/" + testEmployeeId)
@@ -407,10 +415,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(employeeService, never()).updateEmployee(testStoreId, testEmployeeId, updateUserDTO);
         }
@@ -424,7 +432,7 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).deleteEmployee(testStoreId, testEmployeeId);
         }
@@ -439,7 +447,7 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).deleteEmployee(testStoreId, testEmployeeId);
         }
@@ -448,8 +456,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(delete(baseURL + "/" + testEmployeeId)
@@ -458,7 +466,7 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -469,11 +477,11 @@ class EmployeeControllerTest {
         void mustReturnForbiddenWhenAdminDeleteEmployeeInWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(delete(baseURL + "/" + testEmployeeId)
                             .header("Authorization", validToken)
@@ -481,10 +489,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(employeeService, never()).deleteEmployee(testStoreId, testEmployeeId);
         }
@@ -493,11 +501,11 @@ class EmployeeControllerTest {
         void mustReturnOkWhenAdminDeleteEmplyeeInOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             mockMvc.perform(delete(baseURL + "/" + testEmployeeId)
                             .header("Authorization", validToken)
@@ -505,10 +513,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isNoContent());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(employeeService, times(1))
                     .deleteEmployee(testStoreId, testEmployeeId);
@@ -519,8 +527,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenToEmployeeRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
             mockMvc.perform(delete(baseURL + "/" + testEmployeeId)
@@ -529,10 +537,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(employeeService, never()).deleteEmployee(testStoreId, testEmployeeId);
         }
@@ -547,7 +555,7 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).createEmployee(testStoreId, registerUserDTO);
         }
@@ -563,7 +571,7 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(employeeService, never()).createEmployee(testStoreId, registerUserDTO);
         }
@@ -573,8 +581,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(post(baseURL)
@@ -584,7 +592,7 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -595,11 +603,11 @@ class EmployeeControllerTest {
         void mustReturnForbiddenWhenAdminCreateEmployeeInWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(post(baseURL)
                             .header("Authorization", validToken)
@@ -608,10 +616,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(employeeService, never()).createEmployee(testStoreId, registerUserDTO);
         }
@@ -620,11 +628,11 @@ class EmployeeControllerTest {
         void mustReturnOkWhenAdminCreateEmployeeInOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(employeeService.createEmployee(testStoreId, registerUserDTO))
                     .thenReturn(responseUserDTO);
@@ -640,10 +648,10 @@ class EmployeeControllerTest {
                     .andExpect(jsonPath("role").value(responseUserDTO.getRole()));
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(employeeService, times(1)).createEmployee(testStoreId, registerUserDTO);
         }
@@ -653,8 +661,8 @@ class EmployeeControllerTest {
         void mustReturnForbiddenToEmployeeRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(post(baseURL)
@@ -664,10 +672,10 @@ class EmployeeControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(employee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(employee), testStoreId);
 
             verify(employeeService, never()).createEmployee(testStoreId, registerUserDTO);
         }
@@ -676,11 +684,11 @@ class EmployeeControllerTest {
         void mustReturnBadRequestWhenCreateWithWrongBody() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             RegisterUserDTO invalidRegisterUserDTO = RegisterUserDTO.builder().build();
 
@@ -690,10 +698,10 @@ class EmployeeControllerTest {
                             .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isBadRequest());
 
-            verify(storeSecurityService, never()).isStoreAdmin(admin, testStoreId);
+            verify(storeSecurityService, never()).isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(employeeService, never()).createEmployee(testStoreId, registerUserDTO);
         }
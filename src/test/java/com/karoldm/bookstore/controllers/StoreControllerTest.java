@@ -1,13 +1,19 @@
 package com.karoldm.bookstore.controllers;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.karoldm.bookstore.cache.CatalogETags;
+import com.karoldm.bookstore.cache.StoreCatalogVersions;
 import com.karoldm.bookstore.dto.responses.ResponseStoreDTO;
 import com.karoldm.bookstore.entities.AppUser;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.security.SecurityConfig;
+import com.karoldm.bookstore.security.PrincipalCache;
+import com.karoldm.bookstore.security.RateLimitFilter;
 import com.karoldm.bookstore.security.SecurityFilter;
+import com.karoldm.bookstore.security.TokenVersions;
+import com.karoldm.bookstore.security.UserPrincipal;
 import com.karoldm.bookstore.services.StoreSecurityService;
 import com.karoldm.bookstore.services.StoreService;
 import com.karoldm.bookstore.services.TokenService;
@@ -23,8 +29,10 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockPart;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Optional;
@@ -32,14 +40,17 @@ import java.util.Optional;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(StoreController.class)
 // use the created security config and filter to test the roles and routes access
 // inject the storesecurityservice
-@Import({SecurityConfig.class, SecurityFilter.class, StoreSecurityService.class})
+@Import({SecurityConfig.class, SecurityFilter.class, RateLimitFilter.class, PrincipalCache.class, StoreSecurityService.class,
+        CatalogETags.class, StoreCatalogVersions.class})
 @AutoConfigureMockMvc(addFilters = true)
+@TestPropertySource(properties = "api.security.principals.maximum-size=0")
 class StoreControllerTest {
 
     @MockitoBean
@@ -49,11 +60,15 @@ class StoreControllerTest {
     @MockitoBean
     private TokenService tokenService;
     @MockitoBean
+    private TokenVersions tokenVersions;
+    @MockitoBean
     private AppUserRepository appUserRepository;
     @Autowired
     private MockMvc mockMvc;
     @Autowired
     private SecurityFilter securityFilter;
+    @Autowired
+    private StoreCatalogVersions versions;
 
     private final Long testStoreId = 1L;
     private ResponseStoreDTO responseStoreDTO;
@@ -147,7 +162,7 @@ class StoreControllerTest {
             mockMvc.perform(get("/v1/store/" + testStoreId))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).canAccessStore(any(), any());
             verify(storeService, never()).getStore(any());
         }
@@ -161,7 +176,7 @@ class StoreControllerTest {
                             .header("Authorization", "invalid-token"))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).canAccessStore(any(), any());
             verify(storeService, never()).getStore(any());
         }
@@ -170,8 +185,8 @@ class StoreControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(get("/v1/store/" + testStoreId)
@@ -180,7 +195,7 @@ class StoreControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).canAccessStore(any(), any());
 
@@ -191,21 +206,21 @@ class StoreControllerTest {
         void mustReturnForbiddenWhenAdminAccessesWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.canAccessStore(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(get("/v1/store/" + testStoreId)
                             .header("Authorization", validToken))
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(wrongAdmin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(storeService, never()).getStore(testStoreId);
         }
@@ -214,11 +229,11 @@ class StoreControllerTest {
         void mustReturnOkWhenAdminAccessesOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.canAccessStore(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(storeService.getStore(testStoreId)).thenReturn(responseStoreDTO);
 
@@ -233,10 +248,10 @@ class StoreControllerTest {
             verify(storeService, times(1)).getStore(testStoreId);
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(admin, testStoreId);
+                    .canAccessStore(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
         }
 
         @Test
@@ -244,11 +259,11 @@ class StoreControllerTest {
         void mustReturnForbiddenWhenEmployeeAccessesWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
-            when(storeSecurityService.canAccessStore(wrongEmployee, testStoreId))
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(wrongEmployee), testStoreId))
                     .thenReturn(false);
 
             mockMvc.perform(get("/v1/store/" + testStoreId)
@@ -256,10 +271,10 @@ class StoreControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(wrongEmployee, testStoreId);
+                    .canAccessStore(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(storeService, never()).getStore(testStoreId);
         }
@@ -269,11 +284,11 @@ class StoreControllerTest {
         void mustReturnOkWhenEmployeeAccessesOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
-            when(storeSecurityService.canAccessStore(employee, testStoreId))
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId))
                     .thenReturn(true);
 
             when(storeService.getStore(testStoreId)).thenReturn(responseStoreDTO);
@@ -287,12 +302,49 @@ class StoreControllerTest {
                     .andExpect(jsonPath("slogan").value(responseStoreDTO.getSlogan()));
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .canAccessStore(employee, testStoreId);
+                    .canAccessStore(UserPrincipal.of(employee), testStoreId);
+
+            verify(storeService, times(1)).getStore(testStoreId);
+        }
+
+        @Test
+        void mustReturnNotModifiedUntilStoreChanges() throws Exception {
+            when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
+
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
+            );
+
+            when(storeSecurityService.canAccessStore(UserPrincipal.of(employee), testStoreId)).thenReturn(true);
+
+            when(storeService.getStore(testStoreId)).thenReturn(responseStoreDTO);
+
+            MvcResult first = mockMvc.perform(get("/v1/store/" + testStoreId)
+                            .header("Authorization", validToken))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "no-cache, private"))
+                    .andReturn();
+            String eTag = first.getResponse().getHeader("ETag");
+
+            mockMvc.perform(get("/v1/store/" + testStoreId)
+                            .header("Authorization", validToken)
+                            .header("If-None-Match", eTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", eTag));
 
             verify(storeService, times(1)).getStore(testStoreId);
+
+            versions.advance(testStoreId, 1);
+
+            mockMvc.perform(get("/v1/store/" + testStoreId)
+                            .header("Authorization", validToken)
+                            .header("If-None-Match", eTag))
+                    .andExpect(status().isOk());
+
+            verify(storeService, times(2)).getStore(testStoreId);
         }
     }
 
@@ -308,7 +360,7 @@ class StoreControllerTest {
                             .contentType(MediaType.MULTIPART_FORM_DATA))
                     .andExpect(status().isForbidden());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(storeService, never()).updateStore(any(), any());
         }
@@ -327,7 +379,7 @@ class StoreControllerTest {
                             .header("Authorization", "invalid-token"))
                     .andExpect(status().isUnauthorized());
 
-            verify(appUserRepository, never()).findByUsername(any());
+            verify(appUserRepository, never()).findPrincipalByUsername(any());
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
             verify(storeService, never()).updateStore(any(), any());
         }
@@ -336,8 +388,8 @@ class StoreControllerTest {
         void mustReturnForbiddenForUserCommonRole() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(commonUser.getUsername());
 
-            when(appUserRepository.findByUsername(commonUser.getUsername())).thenReturn(
-                    Optional.of(commonUser)
+            when(appUserRepository.findPrincipalByUsername(commonUser.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(commonUser))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
@@ -350,7 +402,7 @@ class StoreControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(commonUser.getUsername());
+                    .findPrincipalByUsername(commonUser.getUsername());
 
             verify(storeSecurityService, never()).isStoreAdmin(any(), any());
 
@@ -361,11 +413,11 @@ class StoreControllerTest {
         void mustReturnForbiddenWhenAdminUpdateWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongAdmin.getUsername());
 
-            when(appUserRepository.findByUsername(wrongAdmin.getUsername())).thenReturn(
-                    Optional.of(wrongAdmin)
+            when(appUserRepository.findPrincipalByUsername(wrongAdmin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongAdmin))
             );
 
-            when(storeSecurityService.isStoreAdmin(wrongAdmin, testStoreId)).thenReturn(false);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId)).thenReturn(false);
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
                                     HttpMethod.PUT, "/v1/store/" + testStoreId)
@@ -377,10 +429,10 @@ class StoreControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongAdmin.getUsername());
+                    .findPrincipalByUsername(wrongAdmin.getUsername());
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(wrongAdmin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongAdmin), testStoreId);
 
             verify(storeService, never()).updateStore(any(), any());
         }
@@ -389,11 +441,11 @@ class StoreControllerTest {
         void mustReturnOkWhenAdminUpdateOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             when(storeService.updateStore(any(), any()))
                     .thenReturn(responseStoreDTO);
@@ -412,10 +464,10 @@ class StoreControllerTest {
                     .andExpect(jsonPath("slogan").value(responseStoreDTO.getSlogan()));
 
             verify(storeSecurityService, times(1))
-                    .isStoreAdmin(admin, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(storeService, times(1)).updateStore(any(), any());
         }
@@ -425,8 +477,8 @@ class StoreControllerTest {
         void mustReturnForbiddenWhenEmployeeUpdateWrongStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(wrongEmployee.getUsername());
 
-            when(appUserRepository.findByUsername(wrongEmployee.getUsername())).thenReturn(
-                    Optional.of(wrongEmployee)
+            when(appUserRepository.findPrincipalByUsername(wrongEmployee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(wrongEmployee))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
@@ -439,10 +491,10 @@ class StoreControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(wrongEmployee.getUsername());
+                    .findPrincipalByUsername(wrongEmployee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(wrongEmployee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(wrongEmployee), testStoreId);
 
             verify(storeService, never()).updateStore(any(), any());
         }
@@ -452,8 +504,8 @@ class StoreControllerTest {
         void mustReturnForbiddenWhenEmployeeUpdateOwnStore() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(employee.getUsername());
 
-            when(appUserRepository.findByUsername(employee.getUsername())).thenReturn(
-                    Optional.of(employee)
+            when(appUserRepository.findPrincipalByUsername(employee.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(employee))
             );
 
             mockMvc.perform(MockMvcRequestBuilders.multipart(
@@ -466,10 +518,10 @@ class StoreControllerTest {
                     .andExpect(status().isForbidden());
 
             verify(appUserRepository, times(1))
-                    .findByUsername(employee.getUsername());
+                    .findPrincipalByUsername(employee.getUsername());
 
             verify(storeSecurityService, never())
-                    .isStoreAdmin(employee, testStoreId);
+                    .isStoreAdmin(UserPrincipal.of(employee), testStoreId);
 
             verify(storeService, never()).updateStore(any(), any());
         }
@@ -478,11 +530,11 @@ class StoreControllerTest {
         void mustReturnBadRequestWhenUpdateWithWrongBody() throws Exception {
             when(tokenService.validateToken(validToken)).thenReturn(admin.getUsername());
 
-            when(appUserRepository.findByUsername(admin.getUsername())).thenReturn(
-                    Optional.of(admin)
+            when(appUserRepository.findPrincipalByUsername(admin.getUsername())).thenReturn(
+                    Optional.of(UserPrincipal.of(admin))
             );
 
-            when(storeSecurityService.isStoreAdmin(admin, testStoreId)).thenReturn(true);
+            when(storeSecurityService.isStoreAdmin(UserPrincipal.of(admin), testStoreId)).thenReturn(true);
 
             MockPart invalidName = new MockPart("name", "".getBytes());
 
@@ -495,10 +547,10 @@ class StoreControllerTest {
                             .header("Authorization", validToken))
                     .andExpect(status().isBadRequest());
 
-            verify(storeSecurityService, never()).isStoreAdmin(admin, testStoreId);
+            verify(storeSecurityService, never()).isStoreAdmin(UserPrincipal.of(admin), testStoreId);
 
             verify(appUserRepository, times(1))
-                    .findByUsername(admin.getUsername());
+                    .findPrincipalByUsername(admin.getUsername());
 
             verify(storeService, never()).updateStore(any(), any());
         }
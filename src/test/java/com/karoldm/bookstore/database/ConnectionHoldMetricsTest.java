@@ -0,0 +1,78 @@
+package com.karoldm.bookstore.database;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnectionHoldMetricsTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setup() throws Exception {
+        when(target.getConnection()).thenReturn(connection);
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        ConnectionHoldMetrics metrics = new ConnectionHoldMetrics(beanFactory.getBeanProvider(MeterRegistry.class));
+        dataSource = (DataSource) metrics.postProcessAfterInitialization(target, "dataSource");
+    }
+
+    @AfterEach
+    void reset() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void mustRecordHoldTimeByEndpointOnce() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/v1/store/1/book/2");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/v1/store/{storeId}/book/{id}");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        Connection borrowed = dataSource.getConnection();
+        borrowed.commit();
+        borrowed.close();
+        borrowed.close();
+
+        verify(connection, times(1)).commit();
+        verify(connection, times(2)).close();
+        assertEquals(1, meterRegistry.get("db.connection.hold")
+                .tag("method", "PUT")
+                .tag("uri", "/v1/store/{storeId}/book/{id}")
+                .timer().count());
+    }
+
+    @Test
+    void mustTagConnectionsBorrowedOutsideARequest() throws Exception {
+        dataSource.getConnection().close();
+
+        assertEquals(1, meterRegistry.get("db.connection.hold")
+                .tag("method", "none")
+                .tag("uri", "none")
+                .timer().count());
+    }
+
+    @Test
+    void mustWrapEachDataSourceOnce() {
+        ConnectionHoldMetrics metrics = new ConnectionHoldMetrics(
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+        assertSame(dataSource, metrics.postProcessAfterInitialization(dataSource, "dataSource"));
+        assertNotSame(target, dataSource);
+    }
+}
@@ -0,0 +1,43 @@
+package com.karoldm.bookstore.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CsvReaderTest {
+
+    @Test
+    void mustReadQuotedFieldsAndTrackRecordLines() throws IOException {
+        CsvReader csvReader = new CsvReader(new StringReader(
+                "1,Dune,,\"a \"\"classic\"\", really\",\"line\nbreak\"\r\n2,Emma\n"));
+
+        assertEquals(List.of("1", "Dune", "", "a \"classic\", really", "line\nbreak"), csvReader.readRow());
+        assertEquals(1, csvReader.getRecordLine());
+
+        assertEquals(List.of("2", "Emma"), csvReader.readRow());
+        assertEquals(3, csvReader.getRecordLine());
+
+        assertNull(csvReader.readRow());
+    }
+
+    @Test
+    void mustReadWhatCsvWriterWrites() throws IOException {
+        StringWriter output = new StringWriter();
+        CsvWriter csvWriter = new CsvWriter(output);
+        csvWriter.writeRow("id", "title");
+        csvWriter.writeRow("1", "comma, \"quote\"");
+        csvWriter.flush();
+
+        CsvReader csvReader = new CsvReader(new StringReader(output.toString()));
+
+        assertEquals(List.of("id", "title"), csvReader.readRow());
+        assertEquals(List.of("1", "comma, \"quote\""), csvReader.readRow());
+        assertNull(csvReader.readRow());
+    }
+}
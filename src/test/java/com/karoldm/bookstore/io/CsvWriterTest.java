@@ -0,0 +1,22 @@
+package com.karoldm.bookstore.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CsvWriterTest {
+
+    @Test
+    void mustQuoteOnlyFieldsThatNeedIt() throws IOException {
+        StringWriter output = new StringWriter();
+        CsvWriter csvWriter = new CsvWriter(output);
+
+        csvWriter.writeRow("1", "Dune", null, "a \"classic\", really", "line\nbreak");
+        csvWriter.flush();
+
+        assertEquals("1,Dune,,\"a \"\"classic\"\", really\",\"line\nbreak\"\r\n", output.toString());
+    }
+}
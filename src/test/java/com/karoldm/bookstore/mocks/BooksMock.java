@@ -1,5 +1,6 @@
 package com.karoldm.bookstore.mocks;
 
+import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
 import com.karoldm.bookstore.entities.Book;
 import com.karoldm.bookstore.entities.Store;
 
@@ -37,4 +38,20 @@ abstract public class BooksMock {
             Book.builder().createdAt(LocalDate.of(2025, 4, 4)).title("Game of Thrones").summary("A fantasy novel by George R.R. Martin.").id(20L).author("George R.R. Martin").cover(null).available(false).rating(4).releasedAt(LocalDate.of(1996, 8, 6)).store(store).build(),
             Book.builder().createdAt(LocalDate.of(2025, 4, 21)).title("An Ember in the Ashes").summary("A fantasy novel inspired by Ancient Rome.").id(21L).author("Sabaa Tahir").cover(null).available(true).rating(4).releasedAt(LocalDate.of(2015, 4, 28)).store(store).build()
     );
-}
\ No newline at end of file
+
+    public static List<ResponseBookDTO> responses(List<Book> books) {
+        return books.stream()
+                .map(book -> ResponseBookDTO.builder()
+                        .id(book.getId())
+                        .title(book.getTitle())
+                        .summary(book.getSummary())
+                        .releasedAt(book.getReleasedAt())
+                        .rating(book.getRating())
+                        .available(book.isAvailable())
+                        .author(book.getAuthor())
+                        .cover(book.getCover())
+                        .createdAt(book.getCreatedAt())
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,77 @@
+package com.karoldm.bookstore.search;
+
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.mocks.BooksMock;
+import com.karoldm.bookstore.repositories.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LikeBookSearchEngineTest {
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private LikeBookSearchEngine likeBookSearchEngine;
+
+    @Test
+    void mustRankTitleMatchesAboveSummaryMatches() {
+        Book hobbit = BooksMock.books.get(16);
+        Book silmarillion = BooksMock.books.get(18);
+
+        when(bookRepository.searchByText(eq(1L), eq("%tolkien%"), any(Pageable.class)))
+                .thenReturn(List.of(hobbit, silmarillion));
+
+        List<BookSearchHit> hits = likeBookSearchEngine.search(1L, " Tolkien ", 0, 10);
+
+        assertEquals(2, hits.size());
+        assertEquals("J.R.R. <mark>Tolkien</mark>", hits.get(0).getAuthorHighlight());
+        assertNull(hits.get(0).getTitleHighlight());
+        assertTrue(hits.get(0).getScore() > 0);
+    }
+
+    @Test
+    void mustHighlightEveryOccurrence() {
+        assertEquals("<mark>Dun</mark>e <mark>dun</mark>e",
+                SearchHighlighter.highlight("Dune dune", "dun"));
+        assertNull(SearchHighlighter.highlight("Dune", "eragon"));
+    }
+
+    @Test
+    void mustEscapeMarkupAroundHighlights() {
+        assertEquals("&lt;script&gt;alert(&#39;<mark>dune</mark>&#39;)&lt;/script&gt; <mark>Dune</mark>",
+                SearchHighlighter.highlight("<script>alert('dune')</script> Dune", "dune"));
+        assertEquals("<mark>&lt;b&gt;</mark> &amp; more",
+                SearchHighlighter.highlight("<b> & more", "<b>"));
+    }
+
+    @Test
+    void mustHighlightTextWhoseLowerCaseChangesLength() {
+        assertEquals("Rota: İstanbul e <mark>İzmir</mark>",
+                SearchHighlighter.highlight("Rota: İstanbul e İzmir", "izmir"));
+        assertEquals("İİİ <mark>end</mark>",
+                SearchHighlighter.snippet("İİİ end", "end"));
+    }
+
+    @Test
+    void mustTrimLongSnippets() {
+        String summary = "x".repeat(200) + " dragon " + "y".repeat(200);
+
+        String snippet = SearchHighlighter.snippet(summary, "dragon");
+
+        assertTrue(snippet.startsWith("..."));
+        assertTrue(snippet.endsWith("..."));
+        assertTrue(snippet.contains("<mark>dragon</mark>"));
+    }
+}
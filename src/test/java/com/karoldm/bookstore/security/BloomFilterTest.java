@@ -0,0 +1,42 @@
+package com.karoldm.bookstore.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    void mustContainEveryInsertedValue() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+        String[] ids = new String[1_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            filter.put(ids[i]);
+        }
+
+        for (String id : ids) {
+            assertTrue(filter.mightContain(id));
+        }
+    }
+
+    @Test
+    void mustKeepFalsePositivesNearTheConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < lookups * 0.02, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,82 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedPasswordEncoderTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void shutdown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    void mustEncodeAndMatchThroughTheDelegate() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 10, meterRegistry);
+
+        String encoded = encoder.encode("password");
+
+        assertTrue(encoder.matches("password", encoded));
+        assertFalse(encoder.matches("wrong password", encoded));
+        assertEquals(3, meterRegistry.get("password.hashing.queue").timer().count());
+    }
+
+    @Test
+    void mustEncodeWithoutBlockingTheCaller() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 10, meterRegistry);
+
+        CompletableFuture<String> encoded = encoder.encodeAsync("password");
+
+        assertTrue(encoder.matches("password", encoded.get(5, TimeUnit.SECONDS)));
+        assertEquals(2, meterRegistry.get("password.hashing.queue").timer().count());
+    }
+
+    @Test
+    void mustRejectWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "encoded";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        encoder = new BoundedPasswordEncoder(blocking, 1, 1, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("executor.queued").tag("name", "password-hashing").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("third"));
+
+        release.countDown();
+        assertEquals("encoded", running.get(5, TimeUnit.SECONDS));
+        assertEquals("encoded", queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,23 @@
+package com.karoldm.bookstore.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PasswordConfigTest {
+    private static final long TARGET = Duration.ofMillis(250).toNanos();
+
+    @Test
+    void mustPickTheHighestCostWithinTheTarget() {
+        assertEquals(11, PasswordConfig.strengthFor(Duration.ofMillis(70).toNanos(), TARGET));
+        assertEquals(12, PasswordConfig.strengthFor(Duration.ofMillis(60).toNanos(), TARGET));
+    }
+
+    @Test
+    void mustClampTheCost() {
+        assertEquals(PasswordConfig.MIN_STRENGTH, PasswordConfig.strengthFor(Duration.ofMillis(400).toNanos(), TARGET));
+        assertEquals(PasswordConfig.MAX_STRENGTH, PasswordConfig.strengthFor(Duration.ofNanos(1000).toNanos(), TARGET));
+    }
+}
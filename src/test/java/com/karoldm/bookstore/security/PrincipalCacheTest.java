@@ -0,0 +1,99 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.repositories.AppUserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PrincipalCacheTest {
+    @Mock
+    private AppUserRepository userRepository;
+
+    private PrincipalCache principalCache;
+    private AppUser employee;
+
+    @BeforeEach
+    void setup() {
+        principalCache = new PrincipalCache(userRepository, 100, Duration.ofMinutes(5));
+
+        employee = AppUser.builder()
+                .id(2L)
+                .username("employee")
+                .role(Roles.EMPLOYEE)
+                .store(Store.builder().id(1L).build())
+                .build();
+    }
+
+    @Test
+    void mustLoadPrincipalOnce() {
+        when(userRepository.findPrincipalByUsername("employee")).thenReturn(Optional.of(UserPrincipal.of(employee)));
+
+        Optional<UserPrincipal> first = principalCache.find("employee");
+        Optional<UserPrincipal> second = principalCache.find("employee");
+
+        assertEquals(Optional.of(new UserPrincipal(2L, "employee", Roles.EMPLOYEE, 1L, 0)), first);
+        assertEquals(first, second);
+        verify(userRepository, times(1)).findPrincipalByUsername("employee");
+    }
+
+    @Test
+    void mustNotCacheUnknownUsernames() {
+        when(userRepository.findPrincipalByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertTrue(principalCache.find("ghost").isEmpty());
+        assertTrue(principalCache.find("ghost").isEmpty());
+
+        verify(userRepository, times(2)).findPrincipalByUsername("ghost");
+    }
+
+    @Test
+    void mustReloadAfterUserTokensAreRevoked() {
+        when(userRepository.findPrincipalByUsername("employee")).thenReturn(Optional.of(UserPrincipal.of(employee)), Optional.empty());
+
+        principalCache.find("employee");
+        principalCache.onTokensRevoked(new TokensRevokedEvent(List.of(employee)));
+
+        assertTrue(principalCache.find("employee").isEmpty());
+    }
+
+    @Test
+    void mustPublishHitRatioMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        principalCache.bindTo(registry);
+        when(userRepository.findPrincipalByUsername("employee")).thenReturn(Optional.of(UserPrincipal.of(employee)));
+
+        principalCache.find("employee");
+        principalCache.find("employee");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "principals").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "principals").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void mustQueryEveryTimeWhenDisabled() {
+        principalCache = new PrincipalCache(userRepository, 0, Duration.ofMinutes(5));
+        when(userRepository.findPrincipalByUsername("employee")).thenReturn(Optional.of(UserPrincipal.of(employee)));
+
+        principalCache.find("employee");
+        principalCache.find("employee");
+
+        verify(userRepository, times(2)).findPrincipalByUsername("employee");
+    }
+}
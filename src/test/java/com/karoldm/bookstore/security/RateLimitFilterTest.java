@@ -0,0 +1,155 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.services.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterTest {
+    private RateLimitFilter rateLimitFilter;
+    private SimpleMeterRegistry meterRegistry;
+    private TokenService tokenService;
+    private String token;
+
+    @BeforeEach
+    void setup() {
+        tokenService = new TokenService("secret-key", 2, 168, true, 100, new SimpleMeterRegistry());
+        token = tokenService.generateToken(memberOf(1L));
+        // two requests of burst, one more per minute
+        rateLimitFilter = new RateLimitFilter(tokenService, 2, 1, 2, 1, 2, 1, 100);
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimitFilter.bindTo(meterRegistry);
+    }
+
+    @Test
+    void mustRejectRequestsBeyondTheBurst() throws ServletException, IOException {
+        assertEquals(HttpStatus.OK.value(), send("GET", "/v1/store/1/book", "10.0.0.1").getStatus());
+        assertEquals(HttpStatus.OK.value(), send("GET", "/v1/store/1/book", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = send("GET", "/v1/store/1/book", "10.0.0.1");
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), rejected.getStatus());
+        long retryAfter = Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter > 0 && retryAfter <= 60);
+        assertEquals(1.0, meterRegistry.get("rate.limit.rejections").tag("route", "store-read").counter().count());
+    }
+
+    @Test
+    void mustLimitEachStoreSeparately() throws ServletException, IOException {
+        send("POST", "/v1/store/1/book", "10.0.0.1", token);
+        send("POST", "/v1/store/1/book", "10.0.0.1", token);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(),
+                send("PUT", "/v1/store/1/book/3", "10.0.0.2", token).getStatus());
+        assertEquals(HttpStatus.OK.value(),
+                send("POST", "/v1/store/2/book", "10.0.0.1", tokenService.generateToken(memberOf(2L))).getStatus());
+        assertEquals(HttpStatus.OK.value(), send("GET", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+    }
+
+    @Test
+    void mustChargeRequestsWithoutCredentialsToTheClientAddress() throws ServletException, IOException {
+        for (int i = 0; i < 3; i++) {
+            send("POST", "/v1/store/1/book", "10.0.0.9");
+        }
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), send("POST", "/v1/store/2/book", "10.0.0.9").getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+    }
+
+    @Test
+    void mustNotChargeTheStoreForForgedOrForeignTokens() throws ServletException, IOException {
+        String forged = new TokenService("another-secret", 2, 168, true, 100, new SimpleMeterRegistry())
+                .generateToken(memberOf(1L));
+        String foreign = tokenService.generateToken(memberOf(2L));
+
+        send("POST", "/v1/store/1/book", "10.0.0.9", "x");
+        send("POST", "/v1/store/1/book", "10.0.0.9", forged);
+        send("POST", "/v1/store/1/book", "10.0.0.8", foreign);
+        send("POST", "/v1/store/1/book", "10.0.0.8", tokenService.generateRefreshToken(memberOf(1L)));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(),
+                send("POST", "/v1/store/1/book", "10.0.0.9", forged).getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+    }
+
+    @Test
+    void mustLimitByTheDecodedPath() throws ServletException, IOException {
+        send("POST", "/v1/auth/login", "10.0.0.1");
+        send("POST", "/v1/auth/login", "10.0.0.1");
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(),
+                send("POST", "/v1/%61uth/login", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void mustChargeHeadToTheReadBucket() throws ServletException, IOException {
+        send("HEAD", "/v1/store/1/book", "10.0.0.1", token);
+        send("HEAD", "/v1/store/1/book", "10.0.0.1", token);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(),
+                send("GET", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/v1/store/1/book", "10.0.0.1", token).getStatus());
+    }
+
+    @Test
+    void mustLimitAuthRoutesByClientAddress() throws ServletException, IOException {
+        send("POST", "/v1/auth/login", "10.0.0.1");
+        send("POST", "/v1/auth/login", "10.0.0.1");
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(),
+                send("POST", "/v1/auth/refresh", "10.0.0.1").getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/v1/auth/login", "10.0.0.2").getStatus());
+        assertEquals(1.0, meterRegistry.get("rate.limit.rejections").tag("route", "auth").counter().count());
+    }
+
+    @Test
+    void mustNotLimitOtherRoutes() throws ServletException, IOException {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(HttpStatus.OK.value(), send("GET", "/appstatus", "10.0.0.1").getStatus());
+            assertEquals(HttpStatus.OK.value(), send("PUT", "/v1/admin", "10.0.0.1").getStatus());
+            assertEquals(HttpStatus.OK.value(), send("GET", "/v1/store/abc", "10.0.0.1").getStatus());
+        }
+    }
+
+    private static AppUser memberOf(Long storeId) {
+        return AppUser.builder()
+                .id(storeId * 10)
+                .username("member-" + storeId)
+                .role(Roles.EMPLOYEE)
+                .store(Store.builder().id(storeId).build())
+                .tokenVersion(0)
+                .build();
+    }
+
+    private MockHttpServletResponse send(String method, String path, String remoteAddr)
+            throws ServletException, IOException {
+        return send(method, path, remoteAddr, null);
+    }
+
+    private MockHttpServletResponse send(String method, String path, String remoteAddr, String token)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(remoteAddr);
+        if (token != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
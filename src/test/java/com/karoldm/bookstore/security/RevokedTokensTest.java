@@ -0,0 +1,77 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.RevokedToken;
+import com.karoldm.bookstore.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RevokedTokensTest {
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RevokedTokens revokedTokens(String... ids) {
+        when(revokedTokenRepository.findActiveIds(any(Instant.class))).thenReturn(List.of(ids));
+        return new RevokedTokens(revokedTokenRepository, meterRegistry, 1_000);
+    }
+
+    @Test
+    void mustAnswerTokensNeverRevokedWithoutQuerying() {
+        RevokedTokens revokedTokens = revokedTokens("revoked-id");
+
+        assertFalse(revokedTokens.isRevoked("another-id"));
+
+        verify(revokedTokenRepository, never()).existsById(any());
+        assertEquals(1, meterRegistry.get("revoked.tokens.lookups").tag("outcome", "filtered").counter().count());
+    }
+
+    @Test
+    void mustConfirmPossibleHitsInTheDatabase() {
+        RevokedTokens revokedTokens = revokedTokens("revoked-id");
+        when(revokedTokenRepository.existsById("revoked-id")).thenReturn(true);
+
+        assertTrue(revokedTokens.isRevoked("revoked-id"));
+
+        verify(revokedTokenRepository, times(1)).existsById("revoked-id");
+    }
+
+    @Test
+    void mustSeeOwnRevocationsBeforeTheNextRebuild() {
+        RevokedTokens revokedTokens = revokedTokens();
+        Instant expiresAt = Instant.parse("2030-01-01T00:00:00Z");
+        when(revokedTokenRepository.existsById("token-id")).thenReturn(true);
+
+        revokedTokens.revoke("token-id", expiresAt);
+
+        assertTrue(revokedTokens.isRevoked("token-id"));
+        verify(revokedTokenRepository, times(1)).save(argThat((RevokedToken token) ->
+                token.getJti().equals("token-id") && token.getExpiresAt().equals(expiresAt)));
+    }
+
+    @Test
+    void mustPurgeExpiredRowsAndForgetThemOnRebuild() {
+        when(revokedTokenRepository.findActiveIds(any(Instant.class)))
+                .thenReturn(List.of("expiring-id"), List.of());
+        RevokedTokens revokedTokens = new RevokedTokens(revokedTokenRepository, meterRegistry, 1_000);
+
+        revokedTokens.rebuild();
+
+        assertFalse(revokedTokens.isRevoked("expiring-id"));
+        verify(revokedTokenRepository, times(2)).deleteExpired(any(Instant.class));
+        verify(revokedTokenRepository, never()).existsById(any());
+    }
+}
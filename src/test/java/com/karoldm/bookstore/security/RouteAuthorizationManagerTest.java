@@ -0,0 +1,145 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.services.StoreSecurityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RouteAuthorizationManagerTest {
+    @Mock
+    private StoreSecurityService storeSecurityService;
+
+    private RouteAuthorizationManager routes;
+
+    private final UserPrincipal admin = new UserPrincipal(1L, "admin", Roles.ADMIN, 1L, 0);
+    private final UserPrincipal employee = new UserPrincipal(2L, "employee", Roles.EMPLOYEE, 1L, 0);
+    private final UserPrincipal common = new UserPrincipal(3L, "common", Roles.COMMON, null, 0);
+    private final Authentication anonymous = new AnonymousAuthenticationToken(
+            "key", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+    @BeforeEach
+    void setup() {
+        routes = new SecurityConfig(null, null, null, null).routeAuthorizationManager(storeSecurityService);
+    }
+
+    @Test
+    void mustPermitPublicRoutesWithoutAuthentication() {
+        assertTrue(allows(anonymous, HttpMethod.POST, "/v1/auth/login"));
+        assertTrue(allows(anonymous, HttpMethod.GET, "/appstatus"));
+        assertTrue(allows(anonymous, HttpMethod.GET, "/swagger-ui/index.html"));
+        assertTrue(allows(anonymous, HttpMethod.GET, "/v3/api-docs"));
+        assertTrue(allows(anonymous, HttpMethod.DELETE, "/error"));
+
+        assertFalse(allows(anonymous, HttpMethod.GET, "/v1/auth/login"));
+        assertFalse(allows(anonymous, HttpMethod.GET, "/v1/store/1/book"));
+    }
+
+    @Test
+    void mustRequireAuthenticationForRoutesWithoutRule() {
+        assertFalse(allows(anonymous, HttpMethod.GET, "/v1/unknown"));
+        assertTrue(allows(authenticated(common), HttpMethod.GET, "/v1/unknown"));
+    }
+
+    @Test
+    void mustCheckRoleBeforeStoreScope() {
+        assertFalse(allows(authenticated(common), HttpMethod.GET, "/v1/store/1/book"));
+        assertFalse(allows(authenticated(employee), HttpMethod.POST, "/v1/store/1/book"));
+        assertFalse(allows(authenticated(employee), HttpMethod.PUT, "/v1/admin"));
+
+        verifyNoInteractions(storeSecurityService);
+    }
+
+    @Test
+    void mustCheckStoreScopeWithStoreIdFromPath() {
+        when(storeSecurityService.canAccessStore(employee, 1L)).thenReturn(true);
+        when(storeSecurityService.isStoreAdmin(admin, 7L)).thenReturn(false);
+
+        assertTrue(allows(authenticated(employee), HttpMethod.GET, "/v1/store/1/book/search"));
+        assertFalse(allows(authenticated(admin), HttpMethod.DELETE, "/v1/store/7/book/3"));
+
+        verify(storeSecurityService, times(1)).canAccessStore(employee, 1L);
+        verify(storeSecurityService, times(1)).isStoreAdmin(admin, 7L);
+    }
+
+    @Test
+    void mustPreferLiteralSegments() {
+        when(storeSecurityService.canAccessStore(employee, 1L)).thenReturn(true);
+
+        assertTrue(allows(authenticated(employee), HttpMethod.PUT, "/v1/store/1/book/available"));
+        assertTrue(allows(authenticated(employee), HttpMethod.PUT, "/v1/store/1/book/2/available"));
+        assertFalse(allows(authenticated(employee), HttpMethod.PUT, "/v1/store/1/book/2"));
+        assertFalse(allows(authenticated(employee), HttpMethod.GET, "/v1/store/1/book/export"));
+    }
+
+    @Test
+    void mustDenyStoreRoutesWithInvalidStoreId() {
+        assertFalse(allows(authenticated(admin), HttpMethod.GET, "/v1/store/abc"));
+        assertFalse(allows(authenticated(admin), HttpMethod.GET, "/v1/store/99999999999999999999999/book"));
+
+        verify(storeSecurityService, never()).canAccessStore(any(), any());
+    }
+
+    @Test
+    void mustMatchPercentEncodedSegmentsDecoded() {
+        when(storeSecurityService.isStoreAdmin(admin, 2L)).thenReturn(false);
+
+        assertFalse(allows(authenticated(admin), HttpMethod.GET, "/v1/st%6Fre/2/employee"));
+        assertFalse(allows(authenticated(employee), HttpMethod.DELETE, "/v1/store/2/%65mployee/5"));
+
+        verify(storeSecurityService, times(1)).isStoreAdmin(admin, 2L);
+    }
+
+    @Test
+    void mustCheckHeadAgainstGetRules() {
+        when(storeSecurityService.isStoreAdmin(admin, 2L)).thenReturn(false);
+        when(storeSecurityService.canAccessStore(employee, 1L)).thenReturn(true);
+
+        assertFalse(allows(authenticated(admin), HttpMethod.HEAD, "/v1/store/2/book/export"));
+        assertTrue(allows(authenticated(employee), HttpMethod.HEAD, "/v1/store/1/book"));
+        assertFalse(allows(anonymous, HttpMethod.HEAD, "/v1/store/1/book"));
+    }
+
+    @Test
+    void mustDenyStoreRoutesWithoutRule() {
+        assertFalse(allows(authenticated(admin), HttpMethod.GET, "/v1/store/1/unknown"));
+        assertFalse(allows(authenticated(admin), HttpMethod.PATCH, "/v1/store/1/book/2"));
+        assertFalse(allows(authenticated(admin), HttpMethod.GET, "/v1/store"));
+
+        verifyNoInteractions(storeSecurityService);
+    }
+
+    @Test
+    void mustRejectDuplicateRules() {
+        RouteAuthorizationManager.Builder builder = RouteAuthorizationManager.builder()
+                .hasAnyRole(HttpMethod.GET, "/v1/admin", Roles.ADMIN);
+
+        assertThrows(IllegalStateException.class,
+                () -> builder.hasAnyRole(HttpMethod.GET, "/v1/admin", Roles.EMPLOYEE));
+    }
+
+    private boolean allows(Authentication authentication, HttpMethod method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method.name(), path);
+        return routes.check(() -> authentication, new RequestAuthorizationContext(request)).isGranted();
+    }
+
+    private static Authentication authenticated(UserPrincipal principal) {
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
@@ -0,0 +1,85 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.services.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SecurityFilterTest {
+    @Mock
+    private PrincipalCache principalCache;
+    @Mock
+    private TokenVersions tokenVersions;
+
+    private TokenService tokenService;
+    private SecurityFilter securityFilter;
+
+    private final AppUser user = AppUser.builder()
+            .id(7L)
+            .username("karol.marques")
+            .role(Roles.ADMIN)
+            .store(Store.builder().id(3L).build())
+            .tokenVersion(0)
+            .build();
+
+    @BeforeEach
+    void setup() {
+        tokenService = new TokenService("secret-key", 2, 168, true, 100, new SimpleMeterRegistry());
+        securityFilter = new SecurityFilter(principalCache, tokenService, tokenVersions);
+    }
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void mustAuthenticateWithAccessToken() throws Exception {
+        when(tokenVersions.isCurrent(any(UserPrincipal.class))).thenReturn(true);
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = send(tokenService.generateToken(user), chain);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(UserPrincipal.of(user), SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+    }
+
+    @Test
+    void mustRejectRefreshTokenSentAsBearer() throws Exception {
+        // revoking through /v1/auth/logout only matters if the token cannot be used here at all
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = send(tokenService.generateRefreshToken(user), chain);
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(principalCache, tokenVersions);
+    }
+
+    private MockHttpServletResponse send(String token, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/store/3/book");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        securityFilter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,62 @@
+package com.karoldm.bookstore.security;
+
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.repositories.AppUserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenVersionsTest {
+    @Mock
+    private AppUserRepository userRepository;
+
+    private TokenVersions tokenVersions;
+
+    private final UserPrincipal principal = new UserPrincipal(1L, "admin", Roles.ADMIN, 1L, 0);
+
+    @BeforeEach
+    void setup() {
+        tokenVersions = new TokenVersions(userRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void mustLoadVersionOnceAndServeItFromMemory() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0));
+
+        assertTrue(tokenVersions.isCurrent(principal));
+        assertTrue(tokenVersions.isCurrent(principal));
+
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void mustRejectOlderVersionAfterRevocation() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0), Optional.of(1));
+
+        assertTrue(tokenVersions.isCurrent(principal));
+
+        tokenVersions.onTokensRevoked(new TokensRevokedEvent(List.of(AppUser.builder().id(1L).build())));
+
+        assertFalse(tokenVersions.isCurrent(principal));
+    }
+
+    @Test
+    void mustRejectTokensOfDeletedUser() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(tokenVersions.isCurrent(principal));
+    }
+}
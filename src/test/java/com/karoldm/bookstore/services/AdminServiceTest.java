@@ -1,5 +1,6 @@
 package com.karoldm.bookstore.services;
 
+import com.karoldm.bookstore.catalog.StoreChangedEvent;
 import com.karoldm.bookstore.dto.requests.UpdateUserDTO;
 import com.karoldm.bookstore.dto.responses.ResponseUserDTO;
 import com.karoldm.bookstore.entities.AppUser;
@@ -10,16 +11,26 @@ import com.karoldm.bookstore.exceptions.InvalidPasswordException;
 import com.karoldm.bookstore.exceptions.InvalidRoleException;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
+import com.karoldm.bookstore.security.TokensRevokedEvent;
+import com.karoldm.bookstore.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +46,12 @@ public class AdminServiceTest {
     private StoreRepository storeRepository;
     @Mock
     private FileStorageService fileStorageService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     private AppUser admin;
     private AppUser employee;
@@ -106,6 +123,8 @@ public class AdminServiceTest {
 
         @Test
         void mustUpdateAdmin() {
+            when(passwordEncoder.encode(updateUserDTO.getPassword())).thenReturn("encoded password");
+
             ResponseUserDTO response = adminService.updateAccount(admin, updateUserDTO);
 
             assertEquals(updateUserDTO.getName(), response.getName());
@@ -113,11 +132,39 @@ public class AdminServiceTest {
             assertEquals(admin.getUsername(), response.getUsername());
             assertEquals(admin.getName(), response.getName());
 
-            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
-            String encryptedPassword = encoder.encode(updateUserDTO.getPassword());
+            assertEquals("encoded password", admin.getPassword());
+
+            verify(userRepository, times(1)).save(admin);
+        }
+
+        @Test
+        void mustRevokeTokensWhenPasswordChanges() {
+            adminService.updateAccount(admin, updateUserDTO);
+
+            ArgumentCaptor<TokensRevokedEvent> event = ArgumentCaptor.forClass(TokensRevokedEvent.class);
+            verify(eventPublisher, times(1)).publishEvent(event.capture());
+            assertEquals(List.of(admin), event.getValue().getUsers());
+            assertEquals(1, admin.getTokenVersion());
+        }
+
+        @Test
+        void mustNotRevokeTokensWhenOnlyNameChanges() {
+            updateUserDTO.setPassword(null);
+
+            adminService.updateAccount(admin, updateUserDTO);
+
+            assertEquals(0, admin.getTokenVersion());
+            verify(eventPublisher, never()).publishEvent(any(TokensRevokedEvent.class));
+        }
+
+        @Test
+        void mustLoadAdminWhenPrincipalComesFromToken() {
+            UserPrincipal principal = new UserPrincipal(admin.getId(), admin.getUsername(), Roles.ADMIN, store.getId(), 0);
+            when(userRepository.findById(admin.getId())).thenReturn(Optional.of(admin));
 
-            assertTrue(encoder.matches(updateUserDTO.getPassword(), encryptedPassword));
+            ResponseUserDTO response = adminService.updateAccount(principal, updateUserDTO);
 
+            assertEquals(updateUserDTO.getName(), response.getName());
             verify(userRepository, times(1)).save(admin);
         }
 
@@ -146,8 +193,38 @@ public class AdminServiceTest {
             adminService.deleteAccount(admin);
 
             verify(storeRepository, times(1)).delete(store);
+            verify(eventPublisher, times(1)).publishEvent(any(StoreChangedEvent.class));
             verify(userRepository, times(1)).deleteAll(employees);
             verify(userRepository, times(1)).delete(admin);
+
+            ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+            verify(eventPublisher, times(2)).publishEvent(events.capture());
+            TokensRevokedEvent revoked = (TokensRevokedEvent) events.getAllValues().get(1);
+            assertEquals(List.of(employee, admin), revoked.getUsers());
+        }
+
+        @Test
+        void mustRemoveBannerOnlyAfterTheStoreIsDeleted() {
+            store.setBanner("banner-url");
+            when(userRepository.findByStoreAndRole(store, Roles.EMPLOYEE)).thenReturn(new HashSet<>());
+
+            adminService.deleteAccount(admin);
+
+            InOrder inOrder = inOrder(storeRepository, transactionTemplate, fileStorageService);
+            inOrder.verify(transactionTemplate).execute(any());
+            inOrder.verify(storeRepository).delete(store);
+            inOrder.verify(fileStorageService).removeOrphanedFile("banner-url");
+        }
+
+        @Test
+        void mustKeepBannerWhenDeleteFails() {
+            store.setBanner("banner-url");
+            when(userRepository.findByStoreAndRole(store, Roles.EMPLOYEE)).thenReturn(new HashSet<>());
+            doThrow(new IllegalStateException("connection lost")).when(storeRepository).delete(store);
+
+            assertThrows(IllegalStateException.class, () -> adminService.deleteAccount(admin));
+
+            verifyNoInteractions(fileStorageService);
         }
 
         @Test
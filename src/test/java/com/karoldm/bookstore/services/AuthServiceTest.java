@@ -1,36 +1,48 @@
 package com.karoldm.bookstore.services;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.karoldm.bookstore.dto.requests.LoginRequestDTO;
+import com.karoldm.bookstore.dto.requests.RefreshTokenDTO;
 import com.karoldm.bookstore.dto.requests.RegisterStoreDTO;
 import com.karoldm.bookstore.dto.responses.ResponseAuthDTO;
+import com.karoldm.bookstore.dto.responses.ResponseRefreshTokenDTO;
 import com.karoldm.bookstore.entities.AppUser;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.exceptions.AmazonS3Exception;
 import com.karoldm.bookstore.exceptions.InvalidRoleException;
 import com.karoldm.bookstore.exceptions.StoreAlreadyExist;
+import com.karoldm.bookstore.exceptions.TokenRevokedException;
 import com.karoldm.bookstore.exceptions.UserNotFoundException;
 import com.karoldm.bookstore.exceptions.UsernameAlreadyExist;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
+import com.karoldm.bookstore.security.BoundedPasswordEncoder;
+import com.karoldm.bookstore.security.RevokedTokens;
+import com.karoldm.bookstore.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,15 +56,15 @@ public class AuthServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
     @Mock
-    private AuthenticationConfiguration authenticationConfiguration;
-    @Mock
-    private Authentication authentication;
-    @Mock
-    private UserDetails userDetails;
-    @Mock
     private TokenService tokenService;
     @Mock
     private FileStorageService fileStorageService;
+    @Mock
+    private BoundedPasswordEncoder passwordEncoder;
+    @Mock
+    private RevokedTokens revokedTokens;
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     private RegisterStoreDTO registerStoreDTO;
     private LoginRequestDTO loginRequestDTO;
@@ -85,6 +97,14 @@ public class AuthServiceTest {
     class RegisterTests {
         @Test
         void mustThrowUserAlreadyExist() {
+            CompletableFuture<String> hash = new CompletableFuture<>();
+            CompletableFuture<String> upload = new CompletableFuture<>();
+            when(passwordEncoder.encodeAsync(registerStoreDTO.getPassword())).thenReturn(hash);
+            when(fileStorageService.uploadFileAsync(any())).thenAnswer(invocation -> {
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+                        .execute(() -> upload.complete("image-url"));
+                return upload;
+            });
             when(userRepository.findByUsername(registerStoreDTO.getUsername()))
                     .thenReturn(Optional.of(AppUser.builder().build()));
 
@@ -97,11 +117,19 @@ public class AuthServiceTest {
 
             verify(userRepository, times(1))
                     .findByUsername(registerStoreDTO.getUsername());
+            // nothing is left running or reading the multipart once the request is answered
+            assertTrue(hash.isCancelled());
+            assertTrue(upload.isDone());
+            verify(fileStorageService, times(1)).removeOrphanedFile("image-url");
         }
 
 
         @Test
         void mustThrowStoreAlreadyExist() {
+            CompletableFuture<String> hash = new CompletableFuture<>();
+            when(passwordEncoder.encodeAsync(registerStoreDTO.getPassword())).thenReturn(hash);
+            when(fileStorageService.uploadFileAsync(any()))
+                    .thenReturn(CompletableFuture.completedFuture("image-url"));
             when(userRepository.findByUsername(registerStoreDTO.getUsername()))
                     .thenReturn(Optional.empty());
 
@@ -120,6 +148,68 @@ public class AuthServiceTest {
 
             verify(storeRepository, times(1))
                     .findByName(registerStoreDTO.getName());
+            assertTrue(hash.isCancelled());
+            verify(fileStorageService, times(1)).removeOrphanedFile("image-url");
+        }
+
+        @Test
+        void mustRemoveBannerWhenSavingFails() {
+            when(passwordEncoder.encodeAsync(registerStoreDTO.getPassword()))
+                    .thenReturn(CompletableFuture.completedFuture("encrypted"));
+            when(fileStorageService.uploadFileAsync(any()))
+                    .thenReturn(CompletableFuture.completedFuture("image-url"));
+            when(userRepository.findByUsername(registerStoreDTO.getUsername()))
+                    .thenReturn(Optional.empty());
+            when(storeRepository.findByName(registerStoreDTO.getName()))
+                    .thenReturn(Optional.empty());
+            when(storeRepository.save(any(Store.class)))
+                    .thenThrow(new IllegalStateException("connection lost"));
+
+            assertThrows(IllegalStateException.class, () -> authService.register(registerStoreDTO));
+
+            verify(fileStorageService, times(1)).removeOrphanedFile("image-url");
+            verify(userRepository, never()).save(any(AppUser.class));
+        }
+
+        @Test
+        void mustNotLeaveUploadRunningWhenRegistrationFails() {
+            CompletableFuture<String> upload = new CompletableFuture<>();
+            when(passwordEncoder.encodeAsync(registerStoreDTO.getPassword()))
+                    .thenReturn(CompletableFuture.completedFuture("encrypted"));
+            when(fileStorageService.uploadFileAsync(any())).thenAnswer(invocation -> {
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+                        .execute(() -> upload.complete("image-url"));
+                return upload;
+            });
+            when(userRepository.findByUsername(registerStoreDTO.getUsername()))
+                    .thenReturn(Optional.empty());
+            when(storeRepository.findByName(registerStoreDTO.getName()))
+                    .thenReturn(Optional.empty());
+            when(storeRepository.save(any(Store.class)))
+                    .thenThrow(new DataIntegrityViolationException("store name taken meanwhile"));
+
+            assertThrows(DataIntegrityViolationException.class, () -> authService.register(registerStoreDTO));
+
+            assertTrue(upload.isDone());
+            verify(fileStorageService).removeOrphanedFile("image-url");
+        }
+
+        @Test
+        void mustFailWhenBannerUploadFails() {
+            CompletableFuture<String> hash = new CompletableFuture<>();
+            when(passwordEncoder.encodeAsync(registerStoreDTO.getPassword())).thenReturn(hash);
+            when(fileStorageService.uploadFileAsync(any()))
+                    .thenReturn(CompletableFuture.failedFuture(new AmazonS3Exception("Error uploading file")));
+            when(userRepository.findByUsername(registerStoreDTO.getUsername()))
+                    .thenReturn(Optional.empty());
+            when(storeRepository.findByName(registerStoreDTO.getName()))
+                    .thenReturn(Optional.empty());
+
+            assertThrows(AmazonS3Exception.class, () -> authService.register(registerStoreDTO));
+
+            assertTrue(hash.isCancelled());
+            verify(storeRepository, never()).save(any(Store.class));
+            verify(fileStorageService, never()).removeOrphanedFile(any());
         }
 
 
@@ -137,19 +227,14 @@ public class AuthServiceTest {
             when(storeRepository.save(any(Store.class)))
                     .thenReturn(Store.builder().id(1L).build());
 
-            when(authenticationConfiguration.getAuthenticationManager())
-                    .thenReturn(authenticationManager);
-            when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenReturn(authentication);
 
-            when(authentication.getPrincipal()).thenReturn(userDetails);
+            when(tokenService.generateToken(any(AppUser.class))).thenReturn("token");
+            when(tokenService.generateRefreshToken(any(AppUser.class))).thenReturn("refresh-token");
 
-            when(userDetails.getUsername()).thenReturn(registerStoreDTO.getUsername());
-
-            when(tokenService.generateToken(any(String.class))).thenReturn("token");
-            when(tokenService.generateRefreshToken(any(String.class))).thenReturn("refresh-token");
-
-            when(fileStorageService.uploadFile(any())).thenReturn("image-url");
+            when(passwordEncoder.encodeAsync(registerStoreDTO.getPassword()))
+                    .thenReturn(CompletableFuture.completedFuture("encrypted"));
+            when(fileStorageService.uploadFileAsync(any()))
+                    .thenReturn(CompletableFuture.completedFuture("image-url"));
 
             ResponseAuthDTO responseAuthDTO = authService.register(registerStoreDTO);
 
@@ -168,7 +253,8 @@ public class AuthServiceTest {
                     .findByUsername(registerStoreDTO.getUsername());
 
             verify(fileStorageService, times(1))
-                    .uploadFile(any());
+                    .uploadFileAsync(any());
+            verify(fileStorageService, never()).removeOrphanedFile(any());
 
             verify(storeRepository, times(1))
                     .findByName(registerStoreDTO.getName());
@@ -179,11 +265,11 @@ public class AuthServiceTest {
             verify(storeRepository, times(1))
                     .save(any(Store.class));
 
-            verify(authenticationManager, times(1))
-                    .authenticate(any(UsernamePasswordAuthenticationToken.class));
+            verify(userRepository).save(argThat(admin -> "encrypted".equals(admin.getPassword())));
+            verifyNoInteractions(authenticationManager);
 
-            verify(tokenService, times(1)).generateToken(any(String.class));
-            verify(tokenService, times(1)).generateRefreshToken(any(String.class));
+            verify(tokenService, times(1)).generateToken(any(AppUser.class));
+            verify(tokenService, times(1)).generateRefreshToken(any(AppUser.class));
         }
     }
 
@@ -191,7 +277,7 @@ public class AuthServiceTest {
     class LoginTests {
         @Test
         void mustThrowUserNotFound() {
-            when(userRepository.findByUsername(loginRequestDTO.getUsername()))
+            when(userRepository.findWithStoreByUsername(loginRequestDTO.getUsername()))
                     .thenReturn(Optional.empty());
 
             Exception exception = assertThrows(UserNotFoundException.class, () -> {
@@ -202,19 +288,15 @@ public class AuthServiceTest {
                     exception.getMessage());
 
             verify(userRepository, times(1))
-                    .findByUsername(loginRequestDTO.getUsername());
+                    .findWithStoreByUsername(loginRequestDTO.getUsername());
         }
 
         @Test
         void mustThrowBadCredentialsException() throws Exception {
-            when(userRepository.findByUsername(loginRequestDTO.getUsername()))
+            when(userRepository.findWithStoreByUsername(loginRequestDTO.getUsername()))
                     .thenReturn(Optional.of(AppUser.builder().build()));
 
-            when(authenticationConfiguration.getAuthenticationManager())
-                    .thenReturn(authenticationManager);
-
-            when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenThrow(new BadCredentialsException("Senha incorreta."));
+            when(passwordEncoder.matches(loginRequestDTO.getPassword(), null)).thenReturn(false);
 
             Exception exception = assertThrows(BadCredentialsException.class, () -> {
                 authService.login(loginRequestDTO);
@@ -223,10 +305,10 @@ public class AuthServiceTest {
             assertEquals("Senha incorreta.", exception.getMessage());
 
             verify(userRepository, times(1))
-                    .findByUsername(loginRequestDTO.getUsername());
+                    .findWithStoreByUsername(loginRequestDTO.getUsername());
 
-            verify(authenticationManager, times(1))
-                    .authenticate(any(UsernamePasswordAuthenticationToken.class));
+            verify(userRepository, never()).findByUsername(any());
+            verifyNoInteractions(authenticationManager);
         }
 
         @Test
@@ -238,16 +320,10 @@ public class AuthServiceTest {
                     .id(1L)
                     .build();
 
-            when(userRepository.findByUsername(loginRequestDTO.getUsername()))
+            when(userRepository.findWithStoreByUsername(loginRequestDTO.getUsername()))
                     .thenReturn(Optional.of(user));
 
-            when(authenticationConfiguration.getAuthenticationManager())
-                    .thenReturn(authenticationManager);
-
-            when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenReturn(authentication);
-
-            when(authentication.getPrincipal()).thenReturn(userDetails);
+            when(passwordEncoder.matches(loginRequestDTO.getPassword(), user.getPassword())).thenReturn(true);
 
             Exception exception = assertThrows(InvalidRoleException.class, () -> {
                 authService.login(loginRequestDTO);
@@ -257,10 +333,10 @@ public class AuthServiceTest {
                     exception.getMessage());
 
             verify(userRepository, times(1))
-                    .findByUsername(loginRequestDTO.getUsername());
+                    .findWithStoreByUsername(loginRequestDTO.getUsername());
 
-            verify(authenticationManager, times(1))
-                    .authenticate(any(UsernamePasswordAuthenticationToken.class));
+            verify(userRepository, never()).findByUsername(any());
+            verifyNoInteractions(authenticationManager);
         }
 
 
@@ -281,21 +357,13 @@ public class AuthServiceTest {
                     .store(store)
                     .build();
 
-            when(userRepository.findByUsername(loginRequestDTO.getUsername()))
+            when(userRepository.findWithStoreByUsername(loginRequestDTO.getUsername()))
                     .thenReturn(Optional.of(user));
 
-            when(userDetails.getUsername()).thenReturn(loginRequestDTO.getUsername());
-
-            when(tokenService.generateToken(any(String.class))).thenReturn("token");
-            when(tokenService.generateRefreshToken(any(String.class))).thenReturn("refresh-token");
+            when(tokenService.generateToken(any(AppUser.class))).thenReturn("token");
+            when(tokenService.generateRefreshToken(any(AppUser.class))).thenReturn("refresh-token");
 
-            when(authenticationConfiguration.getAuthenticationManager())
-                    .thenReturn(authenticationManager);
-
-            when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenReturn(authentication);
-
-            when(authentication.getPrincipal()).thenReturn(userDetails);
+            when(passwordEncoder.matches(loginRequestDTO.getPassword(), user.getPassword())).thenReturn(true);
 
             ResponseAuthDTO responseAuthDTO = authService.login(loginRequestDTO);
 
@@ -310,14 +378,107 @@ public class AuthServiceTest {
             assertEquals("refresh-token", responseAuthDTO.getRefreshToken());
 
             verify(userRepository, times(1))
-                    .findByUsername(registerStoreDTO.getUsername());
+                    .findWithStoreByUsername(loginRequestDTO.getUsername());
 
-            verify(authenticationManager, times(1))
-                    .authenticate(any(UsernamePasswordAuthenticationToken.class));
+            verify(userRepository, never()).findByUsername(any());
+            verifyNoInteractions(authenticationManager);
 
-            verify(tokenService, times(1)).generateToken(any(String.class));
-            verify(tokenService, times(1)).generateRefreshToken(any(String.class));
+            verify(tokenService, times(1)).generateToken(any(AppUser.class));
+            verify(tokenService, times(1)).generateRefreshToken(any(AppUser.class));
         }
     }
 
+    @Nested
+    class RefreshTokenTests {
+        private final RefreshTokenDTO refreshTokenDTO = RefreshTokenDTO.builder()
+                .refreshToken("refresh-token")
+                .build();
+
+        private AppUser user;
+
+        @BeforeEach
+        void setup() {
+            user = AppUser.builder()
+                    .id(1L)
+                    .username("karol.marques")
+                    .role(Roles.ADMIN)
+                    .tokenVersion(2)
+                    .build();
+
+            when(tokenService.validateRefreshToken("refresh-token")).thenReturn(user.getUsername());
+        }
+
+        @Test
+        void mustIssueNewTokensForCurrentVersion() {
+            when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+            when(tokenService.refreshPrincipalOf("refresh-token")).thenReturn(Optional.of(
+                    new UserPrincipal(1L, user.getUsername(), Roles.ADMIN, null, 2)));
+            when(tokenService.generateToken(user)).thenReturn("new-token");
+            when(tokenService.generateRefreshToken(user)).thenReturn("new-refresh-token");
+
+            ResponseRefreshTokenDTO response = authService.refreshToken(refreshTokenDTO);
+
+            assertEquals("new-token", response.getToken());
+            assertEquals("new-refresh-token", response.getRefreshToken());
+        }
+
+        @Test
+        void mustRejectRefreshTokenOfRevokedVersion() {
+            when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+            when(tokenService.refreshPrincipalOf("refresh-token")).thenReturn(Optional.of(
+                    new UserPrincipal(1L, user.getUsername(), Roles.ADMIN, null, 1)));
+
+            assertThrows(TokenRevokedException.class, () -> authService.refreshToken(refreshTokenDTO));
+
+            verify(tokenService, never()).generateToken(any(AppUser.class));
+        }
+
+        @Test
+        void mustRejectRevokedRefreshToken() {
+            when(tokenService.idOf("refresh-token")).thenReturn(Optional.of("token-id"));
+            when(revokedTokens.isRevoked("token-id")).thenReturn(true);
+
+            assertThrows(TokenRevokedException.class, () -> authService.refreshToken(refreshTokenDTO));
+
+            verify(userRepository, never()).findByUsername(any());
+            verify(tokenService, never()).generateToken(any(AppUser.class));
+        }
+    }
+
+    @Nested
+    class LogoutTests {
+        private final RefreshTokenDTO refreshTokenDTO = RefreshTokenDTO.builder()
+                .refreshToken("refresh-token")
+                .build();
+
+        @Test
+        void mustRevokeRefreshTokenUntilItExpires() {
+            Instant expiresAt = Instant.parse("2030-01-01T00:00:00Z");
+            when(tokenService.idOf("refresh-token")).thenReturn(Optional.of("token-id"));
+            when(tokenService.expirationOf("refresh-token")).thenReturn(expiresAt);
+
+            authService.logout(refreshTokenDTO);
+
+            verify(revokedTokens, times(1)).revoke("token-id", expiresAt);
+        }
+
+        @Test
+        void mustRefuseAccessToken() {
+            when(tokenService.validateRefreshToken("refresh-token"))
+                    .thenThrow(new JWTVerificationException("O token informado não é um refresh token."));
+
+            assertThrows(JWTVerificationException.class, () -> authService.logout(refreshTokenDTO));
+
+            verifyNoInteractions(revokedTokens);
+        }
+
+        @Test
+        void mustIgnoreRefreshTokenWithoutId() {
+            when(tokenService.idOf("refresh-token")).thenReturn(Optional.empty());
+
+            authService.logout(refreshTokenDTO);
+
+            verifyNoInteractions(revokedTokens);
+        }
+    }
 }
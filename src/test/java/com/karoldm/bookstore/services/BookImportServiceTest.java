@@ -0,0 +1,141 @@
+package com.karoldm.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karoldm.bookstore.catalog.BooksImportedEvent;
+import com.karoldm.bookstore.dto.responses.ResponseImportDTO;
+import com.karoldm.bookstore.entities.Book;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.exceptions.StoreNotFoundException;
+import com.karoldm.bookstore.io.CatalogFormat;
+import com.karoldm.bookstore.repositories.StoreRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookImportServiceTest {
+    @Mock
+    private StoreRepository storeRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BookImportService bookImportService;
+
+    private final Long storeId = 1L;
+    private final Store store = Store.builder().id(1L).name("store test").build();
+
+    @BeforeEach
+    void setup() {
+        bookImportService = new BookImportService(
+                storeRepository,
+                entityManager,
+                transactionManager,
+                eventPublisher,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(),
+                2,
+                50
+        );
+    }
+
+    @Test
+    void mustThrowStoreNotFoundException() {
+        when(storeRepository.existsById(storeId)).thenReturn(false);
+
+        assertThrows(StoreNotFoundException.class, () ->
+                bookImportService.importBooks(storeId, CatalogFormat.CSV, new StringReader("title\r\n")));
+
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void mustImportValidCsvRowsAndReportInvalidOnes() throws Exception {
+        when(storeRepository.existsById(storeId)).thenReturn(true);
+        when(entityManager.getReference(Store.class, storeId)).thenReturn(store);
+
+        String csv = "id,Title,summary,author,releasedAt,rating,available\r\n"
+                + "9,Dune,\"spice, \"\"sand\"\"\",Frank Herbert,1965-08-01,5,true\r\n"
+                + "9,,summary,nobody,1965-08-01,3,true\r\n"
+                + "9,Emma,summary,Jane Austen,23/12/1815,4,0\r\n"
+                + "9,Ulysses,summary,James Joyce,02/02/1922,9,1\r\n"
+                + "9,Hamlet,summary,Shakespeare,1603-01-01,5,\r\n";
+
+        ResponseImportDTO result = bookImportService
+                .importBooks(storeId, CatalogFormat.CSV, new StringReader(csv));
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of(3L, 5L), result.getErrors().stream().map(error -> error.getLine()).toList());
+
+        verify(entityManager, times(3)).persist(any(Book.class));
+        verify(eventPublisher, times(2)).publishEvent(any(BooksImportedEvent.class));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void mustRejectMalformedNdjsonLines() throws Exception {
+        when(storeRepository.existsById(storeId)).thenReturn(true);
+        when(entityManager.getReference(Store.class, storeId)).thenReturn(store);
+
+        String ndjson = "{\"title\":\"Dune\",\"summary\":\"s\",\"author\":\"Frank Herbert\","
+                + "\"releasedAt\":\"1965-08-01\",\"rating\":5,\"available\":true}\n"
+                + "\n"
+                + "{\"title\": oops}\n";
+
+        ResponseImportDTO result = bookImportService
+                .importBooks(storeId, CatalogFormat.NDJSON, new StringReader(ndjson));
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(3L, result.getErrors().get(0).getLine());
+        assertEquals("JSON inválido", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void mustRejectOnlyTheRowsThatFailToSave() throws Exception {
+        when(storeRepository.existsById(storeId)).thenReturn(true);
+        when(entityManager.getReference(Store.class, storeId)).thenReturn(store);
+        doAnswer(invocation -> {
+            if ("Emma".equals(invocation.<Book>getArgument(0).getTitle())) {
+                throw new PersistenceException("boom");
+            }
+            return null;
+        }).when(entityManager).persist(any(Book.class));
+
+        String csv = "title,summary,author,releasedAt,rating,available\n"
+                + "Dune,s,Frank Herbert,1965-08-01,5,true\n"
+                + "Emma,s,Jane Austen,1815-12-23,4,false\n";
+
+        ResponseImportDTO result = bookImportService
+                .importBooks(storeId, CatalogFormat.CSV, new StringReader(csv));
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(List.of(3L), result.getErrors().stream().map(error -> error.getLine()).toList());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+
+        ArgumentCaptor<BooksImportedEvent> event = ArgumentCaptor.forClass(BooksImportedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of("Dune"), event.getValue().getBooks().stream().map(Book::getTitle).toList());
+    }
+}
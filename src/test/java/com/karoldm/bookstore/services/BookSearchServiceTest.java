@@ -0,0 +1,108 @@
+package com.karoldm.bookstore.services;
+
+import com.karoldm.bookstore.catalog.CompletionIndex;
+import com.karoldm.bookstore.dto.responses.ResponseBookSearchDTO;
+import com.karoldm.bookstore.dto.responses.ResponseCompletionsDTO;
+import com.karoldm.bookstore.repositories.BookRepository;
+import com.karoldm.bookstore.search.BookSearchEngine;
+import com.karoldm.bookstore.search.BookSearchHit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookSearchServiceTest {
+    @Mock
+    private BookSearchEngine bookSearchEngine;
+    @Mock
+    private CompletionIndex completionIndex;
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private BookSearchService bookSearchService;
+
+    private final Long storeId = 1L;
+
+    @Test
+    void mustNotSearchWithBlankQuery() {
+        List<ResponseBookSearchDTO> result = bookSearchService.search(storeId, "  ", 0, 10);
+
+        assertTrue(result.isEmpty());
+        verify(bookSearchEngine, never()).search(any(), any(), any(Integer.class), any(Integer.class));
+    }
+
+    @Test
+    void mustMapHitsAndKeepOnlyMatchedHighlights() {
+        BookSearchHit hit = BookSearchHit.builder()
+                .id(17L)
+                .title("The Hobbit")
+                .author("J.R.R. Tolkien")
+                .summary("A fantasy novel by J.R.R. Tolkien.")
+                .rating(5)
+                .available(true)
+                .releasedAt(LocalDate.of(1937, 9, 21))
+                .createdAt(LocalDate.of(2025, 4, 2))
+                .score(0.9)
+                .titleHighlight("The Hobbit")
+                .authorHighlight("J.R.R. <mark>Tolkien</mark>")
+                .summaryHighlight("A fantasy novel by J.R.R. <mark>Tolkien</mark>.")
+                .build();
+
+        when(bookSearchEngine.search(storeId, "tolkien", 0, 10)).thenReturn(List.of(hit));
+
+        List<ResponseBookSearchDTO> result = bookSearchService.search(storeId, "tolkien", 0, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(17L, result.get(0).getBook().getId());
+        assertEquals("The Hobbit", result.get(0).getBook().getTitle());
+        assertEquals(0.9, result.get(0).getScore());
+        assertFalse(result.get(0).getHighlights().containsKey("title"));
+        assertEquals("J.R.R. <mark>Tolkien</mark>", result.get(0).getHighlights().get("author"));
+        assertTrue(result.get(0).getHighlights().containsKey("summary"));
+    }
+
+    @Test
+    void mustServeCompletionsFromIndexWithBoundedLimit() {
+        ResponseCompletionsDTO completions = ResponseCompletionsDTO.builder()
+                .titles(List.of("The Hobbit"))
+                .authors(List.of())
+                .build();
+        when(completionIndex.complete(storeId, "the h", 20)).thenReturn(Optional.of(completions));
+
+        assertSame(completions, bookSearchService.complete(storeId, "the h", 500));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void mustCompleteFromDatabaseWhileStoreIsNotIndexed() {
+        when(completionIndex.complete(storeId, "Tol", 5)).thenReturn(Optional.empty());
+        when(bookRepository.findTitleCompletions(storeId, "tol%", PageRequest.of(0, 5))).thenReturn(List.of());
+        when(bookRepository.findAuthorCompletions(storeId, "tol%", PageRequest.of(0, 5)))
+                .thenReturn(List.of("J.R.R. Tolkien"));
+
+        ResponseCompletionsDTO result = bookSearchService.complete(storeId, "Tol", 5);
+
+        assertTrue(result.getTitles().isEmpty());
+        assertEquals(List.of("J.R.R. Tolkien"), result.getAuthors());
+    }
+
+    @Test
+    void mustNotCompleteBlankPrefix() {
+        ResponseCompletionsDTO result = bookSearchService.complete(storeId, " ", 5);
+
+        assertTrue(result.getTitles().isEmpty());
+        verifyNoInteractions(completionIndex, bookRepository);
+    }
+}
@@ -1,38 +1,63 @@
 package com.karoldm.bookstore.services;
 
 
+import com.karoldm.bookstore.cache.BookPageKey;
+import com.karoldm.bookstore.cache.StoreCatalogVersions;
+import com.karoldm.bookstore.cache.StoreScopedCache;
+import com.karoldm.bookstore.catalog.AttributeIndex;
+import com.karoldm.bookstore.catalog.BookChangedEvent;
+import com.karoldm.bookstore.catalog.BooksAvailabilityChangedEvent;
+import com.karoldm.bookstore.catalog.TextIndex;
 import com.karoldm.bookstore.dto.requests.BooksFilterDTO;
 import com.karoldm.bookstore.dto.requests.RequestBookDTO;
 import com.karoldm.bookstore.dto.requests.UpdateBookAvailableDTO;
+import com.karoldm.bookstore.dto.requests.UpdateBooksAvailableDTO;
 import com.karoldm.bookstore.dto.responses.ResponseBookDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookFacetsDTO;
+import com.karoldm.bookstore.dto.responses.ResponseBookPageDTO;
+import com.karoldm.bookstore.dto.responses.ResponseUpdateAvailableDTO;
 import com.karoldm.bookstore.entities.Book;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.exceptions.BookNotFoundException;
+import com.karoldm.bookstore.exceptions.FuzzySearchUnavailableException;
+import com.karoldm.bookstore.exceptions.InvalidCursorException;
+import com.karoldm.bookstore.exceptions.InvalidPageSizeException;
+import com.karoldm.bookstore.filters.BooksCursor;
 import com.karoldm.bookstore.exceptions.StoreNotFoundException;
 import com.karoldm.bookstore.mocks.BooksMock;
+import com.karoldm.bookstore.repositories.BookFacetRow;
 import com.karoldm.bookstore.repositories.BookRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 
@@ -44,6 +69,22 @@ public class BookServiceTest {
     private StoreRepository storeRepository;
     @Mock
     private FileStorageService fileStorageService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private TextIndex textIndex;
+    @Mock
+    private AttributeIndex attributeIndex;
+    private final StoreCatalogVersions versions = new StoreCatalogVersions();
+    @Spy
+    private StoreScopedCache<BookPageKey, Set<ResponseBookDTO>> bookPageCache = new StoreScopedCache<>(
+            "book-pages", versions, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    @Spy
+    private StoreScopedCache<BooksFilterDTO, ResponseBookFacetsDTO> bookFacetCache = new StoreScopedCache<>(
+            "book-facets", versions, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @InjectMocks
     private BookService bookService;
@@ -99,22 +140,255 @@ public class BookServiceTest {
     class FindBooksTest {
         @Test
         void mustListPageableBooks() {
-            List<Book> paginatedBooks = BooksMock.books.subList(0, 2);
-
-            Page<Book> bookPage = new PageImpl<>(
-                    paginatedBooks,
-                    PageRequest.of(0, 2),
-                    BooksMock.books.size()
-            );
+            List<ResponseBookDTO> paginatedBooks = BooksMock.responses(BooksMock.books.subList(0, 2));
 
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(bookPage);
+            when(bookRepository.findResponses(any(Specification.class), any(Pageable.class)))
+                    .thenReturn(paginatedBooks);
 
             Set<ResponseBookDTO> result = bookService
                     .listAll(storeId, 0, 2, BooksFilterDTO.builder().build());
 
             assertEquals(2, result.size());
         }
+
+        @Test
+        void mustBreakCreatedAtTiesById() {
+            when(bookRepository.findResponses(any(Specification.class), any(Pageable.class)))
+                    .thenReturn(List.of());
+
+            bookService.listAll(storeId, 1, 5, BooksFilterDTO.builder().build());
+
+            verify(bookRepository).findResponses(any(Specification.class), eq(PageRequest.of(1, 5, BooksCursor.SORT)));
+        }
+
+        @Test
+        void mustServeRepeatedPagesFromCacheUntilTheStoreChanges() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().build();
+
+            when(bookRepository.findResponses(any(Specification.class), any(Pageable.class)))
+                    .thenReturn(BooksMock.responses(BooksMock.books.subList(0, 2)));
+
+            bookService.listAll(storeId, 0, 2, filter);
+            bookService.listAll(storeId, 0, 2, filter);
+            bookService.listAll(2L, 0, 2, filter);
+
+            verify(bookRepository, times(2)).findResponses(any(Specification.class), any(Pageable.class));
+
+            versions.advance(storeId, 1);
+            bookService.listAll(storeId, 0, 2, filter);
+            bookService.listAll(2L, 0, 2, filter);
+
+            verify(bookRepository, times(3)).findResponses(any(Specification.class), any(Pageable.class));
+        }
+
+        @Test
+        void mustHydrateOnlyTheRequestedPageOfIndexedIds() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("book").build();
+            List<Book> books = BooksMock.books.subList(0, 4);
+            List<Long> ids = books.stream().map(Book::getId).toList();
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(ids));
+            when(bookRepository.findResponsesByIds(ids.subList(2, 4)))
+                    .thenReturn(BooksMock.responses(List.of(books.get(3), books.get(2))));
+
+            Set<ResponseBookDTO> result = bookService.listAll(storeId, 1, 2, filter);
+
+            assertEquals(List.of(ids.get(2), ids.get(3)),
+                    result.stream().map(ResponseBookDTO::getId).toList());
+            verify(bookRepository, never()).findResponses(any(Specification.class), any(Pageable.class));
+        }
+
+        @Test
+        void mustNotQueryWhenIndexedPageIsEmpty() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().author("nobody").build();
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(List.of()));
+
+            Set<ResponseBookDTO> result = bookService.listAll(storeId, 0, 10, filter);
+
+            assertEquals(0, result.size());
+            verifyNoInteractions(bookRepository);
+        }
+
+        @Test
+        void mustCombineIndexedIdsWithAttributeFilters() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("book").available(true).build();
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(List.of(1L, 2L)));
+            when(bookRepository.findIds(any(Specification.class))).thenReturn(List.of(2L));
+            when(bookRepository.findResponsesByIds(List.of(2L)))
+                    .thenReturn(BooksMock.responses(List.of(BooksMock.books.get(1))));
+
+            Set<ResponseBookDTO> result = bookService.listAll(storeId, 0, 10, filter);
+
+            assertEquals(List.of(2L), result.stream().map(ResponseBookDTO::getId).toList());
+            verify(bookRepository, never()).findResponses(any(Specification.class), any(Pageable.class));
+        }
+
+        @Test
+        void mustNotFallBackToTheDatabaseTextMatchWhenTheIndexFindsManyBooks() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("the").fuzzy(true).available(true).build();
+            List<Long> ids = new ArrayList<>();
+            for (long id = 1; id <= 2500; id++) {
+                ids.add(id);
+            }
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(ids));
+            when(bookRepository.findIds(any(Specification.class)))
+                    .thenReturn(List.of(5L), List.of(1500L), List.of(2100L, 2400L));
+            when(bookRepository.findResponsesByIds(List.of(5L, 1500L)))
+                    .thenReturn(List.of(
+                            ResponseBookDTO.builder().id(1500L).build(),
+                            ResponseBookDTO.builder().id(5L).build()));
+
+            Set<ResponseBookDTO> result = bookService.listAll(storeId, 0, 2, filter);
+
+            assertEquals(List.of(5L, 1500L), result.stream().map(ResponseBookDTO::getId).toList());
+            verify(bookRepository, times(3)).findIds(any(Specification.class));
+            verify(bookRepository, never()).findResponses(any(Specification.class), any(Pageable.class));
+        }
+
+        @Test
+        void mustRefuseFuzzyFilterWhileTextIndexIsNotReady() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("gaimen").fuzzy(true).build();
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.empty());
+
+            assertThrows(FuzzySearchUnavailableException.class,
+                    () -> bookService.listAll(storeId, 0, 10, filter));
+
+            verifyNoInteractions(bookRepository);
+        }
+
+        @Test
+        void mustIntersectTextAndAttributeIndexesWithoutFiltering() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("the").rating(5).build();
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(List.of(2L, 3L, 4L)));
+            when(attributeIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(List.of(1L, 2L, 4L)));
+            when(bookRepository.findResponsesByIds(List.of(2L, 4L)))
+                    .thenReturn(BooksMock.responses(List.of(BooksMock.books.get(1), BooksMock.books.get(3))));
+
+            Set<ResponseBookDTO> result = bookService.listAll(storeId, 0, 10, filter);
+
+            assertEquals(List.of(2L, 4L), result.stream().map(ResponseBookDTO::getId).toList());
+            verify(bookRepository, never()).findResponses(any(Specification.class), any(Pageable.class));
+        }
+    }
+
+    @Nested
+    class CountFacetsTest {
+        @Test
+        void mustRollUpGroupedCountsIntoEveryFacet() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().available(true).build();
+
+            when(bookRepository.countFacets(any(Specification.class))).thenReturn(List.of(
+                    new BookFacetRow(5, true, 1965, 3L),
+                    new BookFacetRow(5, true, 1990, 1L),
+                    new BookFacetRow(4, true, 1965, 2L),
+                    new BookFacetRow(4, true, null, 1L)
+            ));
+
+            ResponseBookFacetsDTO facets = bookService.countFacets(storeId, filter);
+            bookService.countFacets(storeId, filter);
+
+            assertEquals(7, facets.getTotal());
+            assertEquals(Map.of(4, 3L, 5, 4L), facets.getRating());
+            assertEquals(Map.of(true, 7L), facets.getAvailable());
+            assertEquals(Map.of(1965, 5L, 1990, 1L), facets.getReleaseYear());
+            verify(bookRepository, times(1)).countFacets(any(Specification.class));
+        }
+
+        @Test
+        void mustNotQueryWhenTextIndexFindsNothing() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("nothing").build();
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(List.of()));
+
+            ResponseBookFacetsDTO facets = bookService.countFacets(storeId, filter);
+
+            assertEquals(0, facets.getTotal());
+            assertTrue(facets.getRating().isEmpty());
+            verifyNoInteractions(bookRepository);
+        }
+    }
+
+    @Nested
+    class FindBooksByCursorTest {
+        @Test
+        void mustReturnNextCursorWhenThereAreMoreBooks() {
+            when(bookRepository.findBy(any(Specification.class), any()))
+                    .thenReturn(BooksMock.books.subList(0, 3));
+
+            ResponseBookPageDTO result = bookService
+                    .listAllByCursor(storeId, "", 2, BooksFilterDTO.builder().build());
+
+            Book last = BooksMock.books.get(1);
+
+            assertEquals(2, result.getBooks().size());
+            assertEquals(BooksCursor.of(last).encode(), result.getNextCursor());
+        }
+
+        @Test
+        void mustNotReturnNextCursorOnLastPage() {
+            BooksCursor cursor = BooksCursor.of(BooksMock.books.get(0));
+
+            when(bookRepository.findBy(any(Specification.class), any()))
+                    .thenReturn(BooksMock.books.subList(1, 3));
+
+            ResponseBookPageDTO result = bookService
+                    .listAllByCursor(storeId, cursor.encode(), 2, BooksFilterDTO.builder().build());
+
+            assertEquals(2, result.getBooks().size());
+            assertNull(result.getNextCursor());
+        }
+
+        @Test
+        void mustSeekPastCursorInIndexedIds() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().title("the").fuzzy(true).build();
+            BooksCursor cursor = BooksCursor.of(BooksMock.books.get(1));
+
+            when(textIndex.findMatchingIds(storeId, filter)).thenReturn(Optional.of(List.of(1L, 2L, 3L, 4L)));
+            when(bookRepository.findResponsesByIds(List.of(3L)))
+                    .thenReturn(BooksMock.responses(List.of(BooksMock.books.get(2))));
+
+            ResponseBookPageDTO result = bookService.listAllByCursor(storeId, cursor.encode(), 1, filter);
+
+            assertEquals(List.of(3L), result.getBooks().stream().map(ResponseBookDTO::getId).toList());
+            assertEquals(BooksCursor.of(BooksMock.books.get(2)).encode(), result.getNextCursor());
+            verify(bookRepository, never()).findBy(any(Specification.class), any());
+        }
+
+        @Test
+        void mustRejectPageSizeOutOfBounds() {
+            BooksFilterDTO filter = BooksFilterDTO.builder().build();
+
+            assertThrows(InvalidPageSizeException.class,
+                    () -> bookService.listAllByCursor(storeId, "", 0, filter));
+            assertThrows(InvalidPageSizeException.class,
+                    () -> bookService.listAllByCursor(storeId, "", Integer.MAX_VALUE, filter));
+
+            verifyNoInteractions(bookRepository);
+        }
+
+        @Test
+        void mustThrowInvalidCursor() {
+            assertThrows(InvalidCursorException.class, () -> bookService
+                    .listAllByCursor(storeId, "not-a-cursor", 2, BooksFilterDTO.builder().build()));
+
+            verify(bookRepository, never()).findBy(any(Specification.class), any());
+        }
+
+        @Test
+        void mustRoundTripCursor() {
+            BooksCursor cursor = new BooksCursor(LocalDate.of(2025, 4, 17), 42L);
+
+            BooksCursor decoded = BooksCursor.decode(cursor.encode());
+
+            assertEquals(cursor.getCreatedAt(), decoded.getCreatedAt());
+            assertEquals(cursor.getId(), decoded.getId());
+            assertNull(BooksCursor.decode(""));
+        }
     }
 
     @Nested
@@ -146,6 +420,7 @@ public class BookServiceTest {
             verify(storeRepository, times(1)).findById(storeId);
             verify(bookRepository, times(1)).save(any(Book.class));
             verify(fileStorageService, times(1)).uploadFile(any());
+            verify(eventPublisher, times(1)).publishEvent(any(BookChangedEvent.class));
 
             assertEquals(bookId, responseBookDTO.getId());
             assertEquals(requestBookDTO.getTitle(), responseBookDTO.getTitle());
@@ -157,6 +432,18 @@ public class BookServiceTest {
             assertEquals("image-url", responseBookDTO.getCover());
             assertEquals(LocalDate.now(), responseBookDTO.getCreatedAt());
         }
+
+        @Test
+        void mustRemoveCoverWhenInsertFails() {
+            when(storeRepository.findById(storeId)).thenReturn(Optional.of(store));
+            when(fileStorageService.uploadFile(any())).thenReturn("image-url");
+            when(bookRepository.save(any(Book.class))).thenThrow(new IllegalStateException("connection lost"));
+
+            assertThrows(IllegalStateException.class, () -> bookService.createBook(storeId, requestBookDTO));
+
+            verify(fileStorageService, times(1)).removeOrphanedFile("image-url");
+            verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
+        }
     }
 
     @Nested
@@ -182,6 +469,31 @@ public class BookServiceTest {
 
             verify(bookRepository, times(1)).findById(bookId);
             verify(bookRepository, times(1)).delete(any(Book.class));
+            verify(eventPublisher, times(1)).publishEvent(any(BookChangedEvent.class));
+            verify(fileStorageService, never()).removeFileByUrl(any());
+        }
+
+        @Test
+        void mustRemoveCoverOnlyAfterTheDeleteCommits() {
+            book.setCover("cover-url");
+            when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
+
+            bookService.deleteBook(bookId);
+
+            InOrder inOrder = inOrder(bookRepository, fileStorageService);
+            inOrder.verify(bookRepository).delete(book);
+            inOrder.verify(fileStorageService).removeOrphanedFile("cover-url");
+        }
+
+        @Test
+        void mustKeepCoverWhenDeleteFails() {
+            book.setCover("cover-url");
+            when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
+            doThrow(new IllegalStateException("connection lost")).when(bookRepository).delete(book);
+
+            assertThrows(IllegalStateException.class, () -> bookService.deleteBook(bookId));
+
+            verifyNoInteractions(fileStorageService);
         }
     }
 
@@ -202,6 +514,7 @@ public class BookServiceTest {
 
         @Test
         void mustUpdateBook() {
+            String previousCover = book.getCover();
             when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
             when(fileStorageService.uploadFile(any())).thenReturn("image-url");
 
@@ -216,8 +529,9 @@ public class BookServiceTest {
 
             verify(bookRepository, times(1)).findById(bookId);
             verify(bookRepository, times(1)).save(any(Book.class));
-            verify(fileStorageService, times(1)).removeFileByUrl(any());
+            verify(fileStorageService, times(1)).removeOrphanedFile(previousCover);
             verify(fileStorageService, times(1)).uploadFile(any());
+            verify(transactionTemplate, times(1)).executeWithoutResult(any());
 
             assertEquals(requestBookDTO.getTitle(), responseBookDTO.getTitle());
             assertEquals(requestBookDTO.getSummary(), responseBookDTO.getSummary());
@@ -230,6 +544,19 @@ public class BookServiceTest {
             assertEquals(book.getCreatedAt(), responseBookDTO.getCreatedAt());
             assertEquals(book.getId(), responseBookDTO.getId());
         }
+
+        @Test
+        void mustKeepPreviousCoverWhenUpdateFails() {
+            book.setCover("previous-url");
+            when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
+            when(fileStorageService.uploadFile(any())).thenReturn("image-url");
+            when(bookRepository.save(any(Book.class))).thenThrow(new IllegalStateException("connection lost"));
+
+            assertThrows(IllegalStateException.class, () -> bookService.updateBook(bookId, requestBookDTO));
+
+            verify(fileStorageService, times(1)).removeOrphanedFile("image-url");
+            verify(fileStorageService, never()).removeOrphanedFile("previous-url");
+        }
     }
 
     @Nested
@@ -268,4 +595,50 @@ public class BookServiceTest {
             assertEquals(book.getId(), responseBookDTO.getId());
         }
     }
+
+    @Nested
+    class UpdateAvailableInBulkTests {
+        private UpdateBooksAvailableDTO request(Object... idsAndStates) {
+            List<UpdateBooksAvailableDTO.Item> items = new ArrayList<>();
+            for (int i = 0; i < idsAndStates.length; i += 2) {
+                items.add(UpdateBooksAvailableDTO.Item.builder()
+                        .id((Long) idsAndStates[i])
+                        .available((Boolean) idsAndStates[i + 1])
+                        .build());
+            }
+            return UpdateBooksAvailableDTO.builder().books(items).build();
+        }
+
+        @Test
+        void mustUpdateEachStateOnceAndReportMissingIds() {
+            when(bookRepository.findIdsByStoreIdAndIdIn(storeId, List.of(1L, 2L, 3L, 99L)))
+                    .thenReturn(List.of(1L, 2L, 3L));
+            when(bookRepository.updateAvailable(storeId, List.of(1L, 2L), false)).thenReturn(2);
+            when(bookRepository.updateAvailable(storeId, List.of(3L), true)).thenReturn(1);
+
+            ResponseUpdateAvailableDTO response = bookService.changeAvailable(storeId,
+                    request(1L, true, 2L, false, 3L, true, 1L, false, 99L, true));
+
+            assertEquals(3, response.getUpdated());
+            assertEquals(List.of(99L), response.getNotFound());
+
+            verify(bookRepository, times(2)).updateAvailable(eq(storeId), anyCollection(), anyBoolean());
+            verify(bookRepository, never()).findById(any());
+            verify(eventPublisher, times(2)).publishEvent(any(BooksAvailabilityChangedEvent.class));
+        }
+
+        @Test
+        void mustNotUpdateWhenNoBookBelongsToStore() {
+            when(bookRepository.findIdsByStoreIdAndIdIn(storeId, List.of(7L, 8L))).thenReturn(List.of());
+
+            ResponseUpdateAvailableDTO response = bookService.changeAvailable(storeId,
+                    request(7L, true, 8L, false));
+
+            assertEquals(0, response.getUpdated());
+            assertEquals(List.of(7L, 8L), response.getNotFound());
+
+            verify(bookRepository, never()).updateAvailable(any(), anyCollection(), anyBoolean());
+            verify(eventPublisher, never()).publishEvent(any(BooksAvailabilityChangedEvent.class));
+        }
+    }
 }
@@ -9,16 +9,20 @@ import com.karoldm.bookstore.enums.Roles;
 import com.karoldm.bookstore.exceptions.*;
 import com.karoldm.bookstore.repositories.AppUserRepository;
 import com.karoldm.bookstore.repositories.StoreRepository;
+import com.karoldm.bookstore.security.TokensRevokedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,6 +40,12 @@ public class EmployeeServiceTest {
     @Mock
     private StoreRepository storeRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
     private AppUser employee;
     private Store store;
     private RegisterUserDTO registerUserDTO;
@@ -114,6 +124,7 @@ public class EmployeeServiceTest {
                     .thenReturn(Optional.empty());
 
             when(userRepository.save(any(AppUser.class))).thenReturn(AppUser.builder().id(1L).build());
+            when(passwordEncoder.encode(registerUserDTO.getPassword())).thenReturn("encoded password");
 
             ResponseUserDTO response = employeeService.createEmployee(testStoreId, registerUserDTO);
 
@@ -121,12 +132,9 @@ public class EmployeeServiceTest {
             assertEquals(registerUserDTO.getUsername(), response.getUsername());
             assertNotNull(response.getId());
 
-            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
-            String encryptedPassword = encoder.encode(registerUserDTO.getPassword());
-
-            assertTrue(encoder.matches(registerUserDTO.getPassword(), encryptedPassword));
-
-            verify(userRepository, times(1)).save(any(AppUser.class));
+            ArgumentCaptor<AppUser> saved = ArgumentCaptor.forClass(AppUser.class);
+            verify(userRepository, times(1)).save(saved.capture());
+            assertEquals("encoded password", saved.getValue().getPassword());
         }
     }
 
@@ -256,6 +264,11 @@ public class EmployeeServiceTest {
             assertNotNull(response.getId());
 
             verify(userRepository, times(1)).save(employee);
+
+            ArgumentCaptor<TokensRevokedEvent> event = ArgumentCaptor.forClass(TokensRevokedEvent.class);
+            verify(eventPublisher, times(1)).publishEvent(event.capture());
+            assertEquals(List.of(employee), event.getValue().getUsers());
+            assertEquals(1, employee.getTokenVersion());
         }
     }
 
@@ -300,6 +313,7 @@ public class EmployeeServiceTest {
             employeeService.deleteEmployee(testStoreId, testEmployeeId);
 
             verify(userRepository, times(1)).delete(employee);
+            verify(eventPublisher, times(1)).publishEvent(any(TokensRevokedEvent.class));
         }
     }
 }
@@ -3,6 +3,7 @@ package com.karoldm.bookstore.services;
 import com.karoldm.bookstore.entities.AppUser;
 import com.karoldm.bookstore.entities.Store;
 import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -142,4 +143,25 @@ public class StoreSecurityServiceTest {
             assertFalse(result);
         }
     }
+
+    @Nested
+    class TokenPrincipalTests {
+        @Test
+        void mustCheckStoreFromTokenClaims() {
+            UserPrincipal storeEmployee = new UserPrincipal(5L, "employee", Roles.EMPLOYEE, testStoreId, 0);
+            UserPrincipal otherAdmin = new UserPrincipal(6L, "wrong_admin", Roles.ADMIN, 2L, 0);
+
+            assertTrue(storeSecurityService.canAccessStore(storeEmployee, testStoreId));
+            assertFalse(storeSecurityService.isStoreAdmin(storeEmployee, testStoreId));
+            assertFalse(storeSecurityService.canAccessStore(otherAdmin, testStoreId));
+            assertFalse(storeSecurityService.isStoreAdmin(otherAdmin, testStoreId));
+        }
+
+        @Test
+        void mustReturnTrueToStoreAdminPrincipal() {
+            UserPrincipal storeAdmin = new UserPrincipal(4L, "admin", Roles.ADMIN, testStoreId, 0);
+
+            assertTrue(storeSecurityService.isStoreAdmin(storeAdmin, testStoreId));
+        }
+    }
 }
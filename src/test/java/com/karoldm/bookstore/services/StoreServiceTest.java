@@ -1,5 +1,6 @@
 package com.karoldm.bookstore.services;
 
+import com.karoldm.bookstore.catalog.StoreChangedEvent;
 import com.karoldm.bookstore.dto.requests.UpdateStoreDTO;
 import com.karoldm.bookstore.dto.responses.ResponseStoreDTO;
 import com.karoldm.bookstore.entities.Store;
@@ -11,8 +12,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -28,6 +33,10 @@ public class StoreServiceTest {
 
     @Mock
     private FileStorageService fileStorageService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @InjectMocks
     private StoreService storeService;
@@ -107,17 +116,32 @@ public class StoreServiceTest {
         @Test
         void mustUpdateStore() {
             when(storeRepository.findById(store.getId())).thenReturn(Optional.of(store));
-            when(fileStorageService.uploadFile(any())).thenReturn("image-url");
+            when(fileStorageService.uploadFile(any())).thenReturn("new-image-url");
             ResponseStoreDTO responseStoreDTO = storeService.updateStore(store.getId(), updateStoreDTO);
 
             assertEquals(store.getId(), responseStoreDTO.getId());
             assertEquals(store.getName(), responseStoreDTO.getName());
             assertEquals(store.getSlogan(), responseStoreDTO.getSlogan());
-            assertEquals(store.getBanner(), responseStoreDTO.getBanner());
+            assertEquals("new-image-url", responseStoreDTO.getBanner());
             verify(storeRepository, times(1)).findById(store.getId());
             verify(storeRepository, times(1)).save(store);
+            verify(eventPublisher, times(1)).publishEvent(any(StoreChangedEvent.class));
             verify(fileStorageService, times(1)).uploadFile(any());
-            verify(fileStorageService, times(1)).removeFileByUrl(any());
+            verify(fileStorageService, times(1)).removeOrphanedFile("image-url");
+            verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        }
+
+        @Test
+        void mustKeepPreviousBannerWhenUpdateFails() {
+            when(storeRepository.findById(store.getId())).thenReturn(Optional.of(store));
+            when(fileStorageService.uploadFile(any())).thenReturn("new-image-url");
+            when(storeRepository.save(store)).thenThrow(new IllegalStateException("connection lost"));
+
+            assertThrows(IllegalStateException.class, () -> storeService.updateStore(store.getId(), updateStoreDTO));
+
+            verify(fileStorageService, times(1)).removeOrphanedFile("new-image-url");
+            verify(fileStorageService, never()).removeOrphanedFile("image-url");
+            verify(eventPublisher, never()).publishEvent(any(StoreChangedEvent.class));
         }
     }
 }
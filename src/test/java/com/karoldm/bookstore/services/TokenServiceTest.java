@@ -1,29 +1,52 @@
 package com.karoldm.bookstore.services;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.karoldm.bookstore.entities.AppUser;
+import com.karoldm.bookstore.entities.Store;
+import com.karoldm.bookstore.enums.Roles;
+import com.karoldm.bookstore.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TokenServiceTest {
     private TokenService tokenService;
+    private SimpleMeterRegistry meterRegistry;
 
     final private String username = "karol.marques";
+    private AppUser user;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        user = AppUser.builder()
+                .id(7L)
+                .username(username)
+                .role(Roles.EMPLOYEE)
+                .store(Store.builder().id(3L).build())
+                .tokenVersion(4)
+                .build();
         tokenService = new TokenService(
                 "secret-key",
                 2,
-                168
+                168,
+                true,
+                100,
+                meterRegistry
         );
     }
 
     @Test
     void shouldGenerateTokenWithSubject() {
-        String token = tokenService.generateToken(username);
+        String token = tokenService.generateToken(user);
         String subject = tokenService.validateToken(token);
 
         assertEquals("karol.marques", subject);
@@ -32,21 +55,59 @@ public class TokenServiceTest {
 
     @Test
     void shouldGenerateRefreshTokenWithSubject() {
-        String token = tokenService.generateRefreshToken(username);
-        String subject = tokenService.validateToken(token);
+        String token = tokenService.generateRefreshToken(user);
+        String subject = tokenService.validateRefreshToken(token);
 
         assertEquals("karol.marques", subject);
     }
 
+    @Test
+    void shouldNotAcceptOneKindOfTokenForTheOther() {
+        String accessToken = tokenService.generateToken(user);
+        String refreshToken = tokenService.generateRefreshToken(user);
+
+        assertThrows(JWTVerificationException.class, () -> tokenService.validateToken(refreshToken));
+        assertThrows(JWTVerificationException.class, () -> tokenService.principalOf(refreshToken));
+        assertThrows(JWTVerificationException.class, () -> tokenService.validateRefreshToken(accessToken));
+        assertThrows(JWTVerificationException.class, () -> tokenService.refreshPrincipalOf(accessToken));
+    }
+
+    @Test
+    void shouldTellLegacyTokensApartByTheirId() {
+        Algorithm algorithm = Algorithm.HMAC256("secret-key");
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        String legacyAccess = JWT.create().withSubject(username).withExpiresAt(expiresAt).sign(algorithm);
+        String legacyRefresh = JWT.create().withSubject(username).withJWTId("token-id")
+                .withExpiresAt(expiresAt).sign(algorithm);
+
+        assertEquals(username, tokenService.validateToken(legacyAccess));
+        assertEquals(username, tokenService.validateRefreshToken(legacyRefresh));
+        assertThrows(JWTVerificationException.class, () -> tokenService.validateToken(legacyRefresh));
+    }
+
+    @Test
+    void shouldGiveEachRefreshTokenItsOwnId() {
+        Optional<String> first = tokenService.idOf(tokenService.generateRefreshToken(user));
+        Optional<String> second = tokenService.idOf(tokenService.generateRefreshToken(user));
+
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertNotEquals(first.get(), second.get());
+        assertTrue(tokenService.idOf(tokenService.generateToken(user)).isEmpty());
+    }
+
     @Test
     void shouldThrowJWTVerificationExceptionWhenGenerateToken() {
         tokenService = new TokenService(
                 "secret-key",
                 0,
-                168
+                168,
+                true,
+                100,
+                meterRegistry
         );
 
-        String token = tokenService.generateToken(username);
+        String token = tokenService.generateToken(user);
 
         assertThrows(JWTVerificationException.class, () -> {
             tokenService.validateToken(token);
@@ -58,13 +119,73 @@ public class TokenServiceTest {
         tokenService = new TokenService(
                 "secret-key",
                 2,
-                0
+                0,
+                true,
+                100,
+                meterRegistry
         );
 
-        String token = tokenService.generateRefreshToken(username);
+        String token = tokenService.generateRefreshToken(user);
 
         assertThrows(JWTVerificationException.class, () -> {
-            tokenService.validateToken(token);
+            tokenService.validateRefreshToken(token);
         });
     }
+
+    @Test
+    void shouldAnswerRepeatedValidationsFromCache() {
+        String token = tokenService.generateToken(user);
+
+        assertEquals(username, tokenService.validateToken(token));
+        assertEquals(username, tokenService.validateToken(token));
+
+        assertEquals(1.0, cacheGets("hit"));
+        assertEquals(1.0, cacheGets("miss"));
+    }
+
+    @Test
+    void shouldStillRejectTamperedTokenAfterOriginalWasCached() {
+        String token = tokenService.generateToken(user);
+        tokenService.validateToken(token);
+
+        String[] parts = token.split("\\.");
+        String otherPayload = tokenService.generateToken(AppUser.builder().id(8L).username("someone.else").role(Roles.ADMIN).build()).split("\\.")[1];
+        String tampered = parts[0] + "." + otherPayload + "." + parts[2];
+
+        assertThrows(SignatureVerificationException.class, () -> tokenService.validateToken(tampered));
+    }
+
+    @Test
+    void shouldReadPrincipalFromSelfContainedToken() {
+        String token = tokenService.generateToken(user);
+
+        Optional<UserPrincipal> principal = tokenService.principalOf(token);
+
+        assertEquals(Optional.of(new UserPrincipal(7L, username, Roles.EMPLOYEE, 3L, 4)), principal);
+    }
+
+    @Test
+    void shouldOnlyNameTheUserWhenNotSelfContained() {
+        tokenService = new TokenService(
+                "secret-key",
+                2,
+                168,
+                false,
+                100,
+                meterRegistry
+        );
+
+        String token = tokenService.generateToken(user);
+
+        assertEquals(username, tokenService.validateToken(token));
+        assertTrue(tokenService.principalOf(token).isEmpty());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "verified-tokens")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
 }